@@ -1,14 +1,19 @@
 package fateczl.CriptoGitClient;
 
 import fateczl.CriptoGitClient.service.ConsoleService;
+import fateczl.CriptoGitClient.service.Settings;
 
 public class CriptoGitClientApplication {
 
 	public static void main(String[] args) {
 		System.out.println("Iniciando CriptoGit Client...");
 		
+		// Aplica as opções da linha de comando (ex.: --jobs 8)
+		Settings settings = new Settings();
+		settings.applyArgs(args);
+		
 		// Executa a aplicação sem inicializar o Spring Boot automaticamente
-		ConsoleService consoleService = new ConsoleService();
+		ConsoleService consoleService = new ConsoleService(settings);
 		consoleService.run();
 		consoleService.close();
 		
@@ -1,11 +1,12 @@
 package fateczl.CriptoGitClient.model;
 
 public class Blob {
-    private String hash;
+    private ObjectId hash;
     private byte[] content;
     private String relativePath;
+    private FileStat stat;
 
-    public void setHash(String hash) {
+    public void setHash(ObjectId hash) {
         this.hash = hash;
     }
 
@@ -18,7 +19,11 @@ public class Blob {
         this.relativePath = relativePath;
     }
     
-    public String getHash() {
+    public void setStat(FileStat stat) {
+        this.stat = stat;
+    }
+
+    public ObjectId getHash() {
         return hash;
     }
     
@@ -29,4 +34,8 @@ public class Blob {
     public String getRelativePath() {
         return relativePath;
     }
+
+    public FileStat getStat() {
+        return stat;
+    }
 }
@@ -0,0 +1,34 @@
+package fateczl.CriptoGitClient.model;
+
+/**
+ * Tree já calculada de um diretório do index (extensão cache-tree do index):
+ * a hash da tree e a quantidade de entradas do index dentro do diretório, incluindo os subdiretórios
+ */
+public class CacheTreeEntry {
+    private ObjectId hash;
+    private int entryCount;
+
+    public CacheTreeEntry() {
+    }
+
+    public CacheTreeEntry(ObjectId hash, int entryCount) {
+        this.hash = hash;
+        this.entryCount = entryCount;
+    }
+
+    public void setHash(ObjectId hash) {
+        this.hash = hash;
+    }
+
+    public void setEntryCount(int entryCount) {
+        this.entryCount = entryCount;
+    }
+
+    public ObjectId getHash() {
+        return hash;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+}
@@ -1,14 +1,14 @@
 package fateczl.CriptoGitClient.model;
 
 public class Commit {
-    private String hash;
+    private ObjectId hash;
     private String message;
     private String author;
     private String date;
     private Tree rootTree;
-    private String parentHash;
+    private ObjectId parentHash;
 
-    public void setHash(String hash) {
+    public void setHash(ObjectId hash) {
         this.hash = hash;
     }
 
@@ -28,11 +28,11 @@ public class Commit {
         this.rootTree = rootTree;
     }
 
-    public void setParent(String parentHash) {
+    public void setParent(ObjectId parentHash) {
         this.parentHash = parentHash;
     }
 
-    public String getHash() {
+    public ObjectId getHash() {
         return hash;
     }
 
@@ -52,7 +52,7 @@ public class Commit {
         return rootTree;
     }
 
-    public String getParentHash() {
+    public ObjectId getParentHash() {
         return parentHash;
     }
 }
@@ -0,0 +1,76 @@
+package fateczl.CriptoGitClient.model;
+
+/**
+ * Dados de stat de um arquivo guardados no index (tamanho, mtime, ctime e file key),
+ * usados para saber se o arquivo mudou sem precisar ler o seu conteúdo
+ */
+public class FileStat {
+    private long size;
+    private long mtime;
+    private long ctime;
+    private long fileKey;
+    // Tipo do arquivo, usado apenas durante a varredura (não é gravado no index)
+    private boolean directory;
+    private boolean regularFile;
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public void setMtime(long mtime) {
+        this.mtime = mtime;
+    }
+
+    public void setCtime(long ctime) {
+        this.ctime = ctime;
+    }
+
+    public void setFileKey(long fileKey) {
+        this.fileKey = fileKey;
+    }
+
+    public void setDirectory(boolean directory) {
+        this.directory = directory;
+    }
+
+    public void setRegularFile(boolean regularFile) {
+        this.regularFile = regularFile;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getMtime() {
+        return mtime;
+    }
+
+    public long getCtime() {
+        return ctime;
+    }
+
+    public long getFileKey() {
+        return fileKey;
+    }
+
+    public boolean isDirectory() {
+        return directory;
+    }
+
+    public boolean isRegularFile() {
+        return regularFile;
+    }
+
+    /**
+     * Confere se os dados de stat são iguais aos de outro stat
+     * @param other Stat a ser comparado
+     * @return true se tamanho, mtime, ctime e file key forem iguais
+     */
+    public boolean matches(FileStat other) {
+        return other != null
+            && size == other.size
+            && mtime == other.mtime
+            && ctime == other.ctime
+            && fileKey == other.fileKey;
+    }
+}
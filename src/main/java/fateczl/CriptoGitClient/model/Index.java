@@ -1,47 +1,257 @@
 package fateczl.CriptoGitClient.model;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.io.IOException;
 import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
 
 public class Index {
-    private List<Blob> blobs;
+    // Entradas do index ordenadas pelo caminho relativo: as buscas por caminho são binárias
+    // e a ordem já é a usada na gravação do arquivo index
+    private TreeMap<String, Blob> blobs;
+    // Momento (em nanossegundos) da última gravação do arquivo index
+    private long timestamp;
+    // Quantidade de alterações em memória ainda não gravadas no arquivo index
+    private int pendingEntries;
+    // Caminhos relativos de cada nome de arquivo, usados pelo 'add <nome>'.
+    // Montado na primeira busca por nome e mantido pelas alterações seguintes do index
+    private Map<String, List<String>> pathsByName;
+    // Extensão cache-tree: tree já calculada de cada diretório ("" é a raiz), removida ao longo do caminho
+    // de qualquer entrada alterada, assim o commit recalcula apenas as trees dos diretórios alterados
+    private Map<String, CacheTreeEntry> cacheTree = new HashMap<>();
+    // Commit cujas entradas estão todas no index (o último commit gravado a partir dele)
+    private ObjectId baseCommit;
 
     public Index() {
-    this.blobs = new ArrayList<>();
+    this.blobs = new TreeMap<>();
     }
 
-    public void addBlob(Blob blob, String repositorioPath, String filePath) throws IOException {
-        try {
-            // Remove o caminho do repositório do caminho do arquivo, mantendo apenas o caminho relativo
-            filePath = filePath.replace(repositorioPath, "");
-            blob.setRelativePath(filePath);
-            // Adiciona o blob ao index
-            this.blobs.add(blob);
-            StringBuilder indexContent = new StringBuilder();
-            // Monta a linha do index com a SHA-1 do blob e o caminho do arquivo
-            indexContent.append(blob.getHash()).append(" ").append(filePath).append("\n");
-            Path indexPath = Paths.get(repositorioPath, ".criptogit", "index");
-            Files.write(indexPath, indexContent.toString().getBytes(), StandardOpenOption.APPEND);
-        } catch (IOException e) {
-            throw new IOException("Erro ao adicionar o blob " + blob.getHash() + " no index do repositório " + repositorioPath + ": " + e.getMessage());
+    // Sincronizado para permitir que as threads do add paralelo atualizem o index
+    // A entrada fica pendente em memória e o arquivo index é gravado uma única vez ao final do add (IndexService.flush)
+    public synchronized void addBlob(Blob blob, String repositorioPath, String filePath) {
+        // Remove o caminho do repositório do caminho do arquivo, mantendo apenas o caminho relativo
+        filePath = filePath.replace(repositorioPath, "");
+        blob.setRelativePath(filePath);
+        // Adiciona o blob ao index, substituindo a entrada anterior do mesmo arquivo
+        Blob previous = this.blobs.put(filePath, blob);
+        if (previous == null) {
+            addPathByName(filePath);
         }
+        // Uma entrada com o mesmo conteúdo (apenas o stat mudou) não altera as trees
+        if (previous == null || !previous.getHash().equals(blob.getHash())) {
+            invalidateCacheTree(filePath);
+        }
+        this.pendingEntries++;
+    }
+
+    /**
+     * Adiciona ao index em memória um blob referenciado no commit anterior,
+     * sem substituir a entrada do mesmo caminho que já estiver no index
+     * @param blob Blob do commit anterior, com o relativePath preenchido
+     */
+    public synchronized void addParentBlob(Blob blob) {
+        if (this.blobs.putIfAbsent(blob.getRelativePath(), blob) == null) {
+            addPathByName(blob.getRelativePath());
+            invalidateCacheTree(blob.getRelativePath());
+        }
+    }
+
+    /**
+     * Procura a entrada do index de um arquivo
+     * @param relativePath Caminho relativo do arquivo
+     * @return Blob do arquivo ou null se não estiver no index
+     */
+    public synchronized Blob findByPath(String relativePath) {
+        return this.blobs.get(relativePath);
+    }
+
+    /**
+     * Procura os caminhos do index de todos os arquivos com um nome
+     * @param name Nome do arquivo (sem diretórios)
+     * @return Caminhos relativos encontrados, vazia se nenhum arquivo do index tiver o nome
+     */
+    public synchronized List<String> findPathsByName(String name) {
+        if (this.pathsByName == null) {
+            this.pathsByName = new HashMap<>();
+            for (String relativePath : this.blobs.keySet()) {
+                addPathByName(relativePath);
+            }
+        }
+        List<String> paths = this.pathsByName.get(name);
+        return paths == null ? new ArrayList<>() : new ArrayList<>(paths);
+    }
+
+    /**
+     * Retorna o primeiro caminho do index maior ou igual ao informado (as entradas são ordenadas pelo caminho)
+     * @param relativePath Caminho relativo
+     * @return Caminho encontrado ou null se não houver
+     */
+    public synchronized String ceilingPath(String relativePath) {
+        return this.blobs.ceilingKey(relativePath);
+    }
+
+    /**
+     * Retorna o primeiro caminho do index maior que o informado
+     * @param relativePath Caminho relativo
+     * @return Caminho encontrado ou null se não houver
+     */
+    public synchronized String higherPath(String relativePath) {
+        return this.blobs.higherKey(relativePath);
+    }
+
+    /**
+     * Retorna a tree já calculada de um diretório
+     * @param directory Caminho relativo do diretório ("" para a raiz)
+     * @return Tree do diretório ou null se ele foi alterado desde o último commit
+     */
+    public synchronized CacheTreeEntry getCacheTree(String directory) {
+        return this.cacheTree.get(directory);
+    }
+
+    public synchronized void putCacheTree(String directory, CacheTreeEntry entry) {
+        this.cacheTree.put(directory, entry);
+    }
+
+    /**
+     * Retorna as trees já calculadas, indexadas pelo caminho do diretório
+     * @return Cópia do cache-tree
+     */
+    public synchronized Map<String, CacheTreeEntry> getCacheTree() {
+        return new HashMap<>(this.cacheTree);
+    }
+
+    public synchronized void setCacheTree(Map<String, CacheTreeEntry> cacheTree) {
+        this.cacheTree = new HashMap<>(cacheTree);
+    }
+
+    // Remove a tree de todos os diretórios acima da entrada, até a raiz
+    private void invalidateCacheTree(String relativePath) {
+        if (this.cacheTree.isEmpty()) {
+            return;
+        }
+        String directory = relativePath;
+        int separator = Math.max(directory.lastIndexOf('/'), directory.lastIndexOf('\\'));
+        while (separator > 0) {
+            directory = directory.substring(0, separator);
+            this.cacheTree.remove(directory);
+            separator = Math.max(directory.lastIndexOf('/'), directory.lastIndexOf('\\'));
+        }
+        this.cacheTree.remove("");
+    }
+
+    private void addPathByName(String relativePath) {
+        if (this.pathsByName != null) {
+            this.pathsByName.computeIfAbsent(nameOf(relativePath), k -> new ArrayList<>(1)).add(relativePath);
+        }
+    }
+
+    private void removePathByName(String relativePath) {
+        if (this.pathsByName != null) {
+            List<String> paths = this.pathsByName.get(nameOf(relativePath));
+            if (paths != null) {
+                paths.remove(relativePath);
+                if (paths.isEmpty()) {
+                    this.pathsByName.remove(nameOf(relativePath));
+                }
+            }
+        }
+    }
+    // Último segmento do caminho relativo (o index pode ter sido gravado no Windows ou no Linux)
+    private static String nameOf(String relativePath) {
+        return relativePath.substring(Math.max(relativePath.lastIndexOf('/'), relativePath.lastIndexOf('\\')) + 1);
+    }
+
+    /**
+     * Confere se a entrada do index ainda corresponde ao arquivo, sem ler o seu conteúdo.
+     * Assim como no index do git, entradas com mtime igual ou posterior à gravação do index são
+     * consideradas "racy": o arquivo pode ter sido alterado no mesmo instante em que a hash foi calculada,
+     * então a hash precisa ser recalculada
+     * @param blob Entrada do index
+     * @param stat Stat atual do arquivo
+     * @return true se a hash da entrada pode ser reaproveitada
+     */
+    public boolean isUpToDate(Blob blob, FileStat stat) {
+        return blob.getStat() != null
+            && blob.getStat().matches(stat)
+            && stat.getMtime() < this.timestamp;
+    }
+
+    /**
+     * Atualiza o momento de gravação do index a partir do mtime do arquivo index
+     * @param repositorioPath Caminho do repositório
+     * @throws IOException Se houver erro ao ler o arquivo index
+     */
+    public void refreshTimestamp(String repositorioPath) throws IOException {
+        Path indexPath = Paths.get(repositorioPath, ".criptogit", "index");
+        if (Files.exists(indexPath)) {
+            this.timestamp = Files.getLastModifiedTime(indexPath).to(TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public synchronized void removeBlob(Blob blob) {
+        if (this.blobs.remove(blob.getRelativePath(), blob)) {
+            removePathByName(blob.getRelativePath());
+            invalidateCacheTree(blob.getRelativePath());
+            this.pendingEntries++;
+        }
+    }
+
+    public synchronized int size() {
+        return this.blobs.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return this.blobs.isEmpty();
+    }
+
+    /**
+     * Retorna as entradas do index ordenadas pelo caminho
+     * @return Cópia da lista de entradas
+     */
+    public synchronized List<Blob> getBlobs() {
+        return new ArrayList<>(blobs.values());
+    }
+
+    public synchronized void setBlobs(List<Blob> blobs) {
+        this.blobs = new TreeMap<>();
+        for (Blob blob : blobs) {
+            this.blobs.put(blob.getRelativePath(), blob);
+        }
+        // Remontado na próxima busca por nome
+        this.pathsByName = null;
+        // As trees calculadas não correspondem mais às entradas
+        this.cacheTree = new HashMap<>();
+        this.baseCommit = null;
+    }
+
+    public synchronized int getPendingEntries() {
+        return pendingEntries;
+    }
+
+    public synchronized void clearPendingEntries() {
+        this.pendingEntries = 0;
+    }
+
+    public synchronized ObjectId getBaseCommit() {
+        return baseCommit;
     }
 
-    public void removeBlob(Blob blob) {
-        this.blobs.remove(blob);
+    public synchronized void setBaseCommit(ObjectId baseCommit) {
+        this.baseCommit = baseCommit;
     }
 
-    public List<Blob> getBlobs() {
-        return blobs;
+    public long getTimestamp() {
+        return timestamp;
     }
 
-    public void setBlobs(List<Blob> blobs) {
-        this.blobs = blobs;
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,170 @@
+package fateczl.CriptoGitClient.model;
+
+import java.util.Arrays;
+
+/**
+ * Identificador imutável de um object (blob, tree ou commit): os 20 bytes da hash SHA-1.
+ * Ocupa metade da memória de uma String hexadecimal de 40 caracteres e
+ * converte de/para hexadecimal sem criar objetos intermediários
+ */
+public final class ObjectId implements Comparable<ObjectId> {
+
+    // Quantidade de bytes de uma hash SHA-1
+    public static final int SIZE = 20;
+    // Quantidade de caracteres da hash em hexadecimal
+    public static final int HEX_SIZE = SIZE * 2;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final byte[] bytes;
+    // Calculado uma única vez, pois o ObjectId é usado como chave em mapas e conjuntos
+    private final int hashCode;
+
+    private ObjectId(byte[] bytes) {
+        this.bytes = bytes;
+        this.hashCode = Arrays.hashCode(bytes);
+    }
+
+    /**
+     * Cria o ObjectId a partir dos bytes da hash
+     * @param bytes Array com a hash
+     * @param offset Posição do primeiro byte da hash no array
+     * @return ObjectId da hash
+     */
+    public static ObjectId fromBytes(byte[] bytes, int offset) {
+        if (bytes.length - offset < SIZE) {
+            throw new IllegalArgumentException("Hash inválida: são necessários " + SIZE + " bytes.");
+        }
+        return new ObjectId(Arrays.copyOfRange(bytes, offset, offset + SIZE));
+    }
+
+    public static ObjectId fromBytes(byte[] bytes) {
+        return fromBytes(bytes, 0);
+    }
+
+    /**
+     * Cria o ObjectId a partir da hash em hexadecimal, sem criar substrings
+     * @param hex Texto com a hash
+     * @param offset Posição do primeiro caractere da hash no texto
+     * @return ObjectId da hash
+     */
+    public static ObjectId fromHex(CharSequence hex, int offset) {
+        if (hex == null || hex.length() - offset < HEX_SIZE) {
+            throw new IllegalArgumentException("Hash inválida: " + hex);
+        }
+        byte[] bytes = new byte[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            int high = Character.digit(hex.charAt(offset + i * 2), 16);
+            int low = Character.digit(hex.charAt(offset + i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Hash inválida: " + hex);
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return new ObjectId(bytes);
+    }
+
+    public static ObjectId fromHex(CharSequence hex) {
+        if (hex != null && hex.length() != HEX_SIZE) {
+            throw new IllegalArgumentException("Hash inválida: " + hex);
+        }
+        return fromHex(hex, 0);
+    }
+
+    /**
+     * Confere se o texto é uma hash SHA-1 em hexadecimal
+     * @param hex Texto a ser conferido
+     * @return true se o texto tiver 40 dígitos hexadecimais
+     */
+    public static boolean isValid(CharSequence hex) {
+        if (hex == null || hex.length() != HEX_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < HEX_SIZE; i++) {
+            if (Character.digit(hex.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copia os bytes da hash para um array
+     * @param destination Array de destino
+     * @param offset Posição inicial no array de destino
+     */
+    public void copyTo(byte[] destination, int offset) {
+        System.arraycopy(bytes, 0, destination, offset, SIZE);
+    }
+
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
+    /**
+     * Escreve a hash em hexadecimal no final do StringBuilder
+     * @param sb StringBuilder de destino
+     * @return O próprio StringBuilder
+     */
+    public StringBuilder appendHex(StringBuilder sb) {
+        for (byte b : bytes) {
+            sb.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+        }
+        return sb;
+    }
+
+    public String toHex() {
+        char[] chars = new char[HEX_SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Nome do diretório do object: os 2 primeiros caracteres da hash
+     */
+    public String getDirName() {
+        return new String(new char[] { HEX[(bytes[0] >> 4) & 0xF], HEX[bytes[0] & 0xF] });
+    }
+
+    /**
+     * Nome do arquivo do object: os 38 caracteres restantes da hash
+     */
+    public String getFileName() {
+        char[] chars = new char[HEX_SIZE - 2];
+        for (int i = 1; i < SIZE; i++) {
+            chars[(i - 1) * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[(i - 1) * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    @Override
+    public int compareTo(ObjectId other) {
+        return Arrays.compareUnsigned(bytes, other.bytes);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ObjectId)) {
+            return false;
+        }
+        ObjectId other = (ObjectId) obj;
+        return hashCode == other.hashCode && Arrays.equals(bytes, other.bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+}
@@ -4,7 +4,7 @@ import java.util.List;
 import java.util.ArrayList;
 
 public class Tree {
-    private String hash;
+    private ObjectId hash;
     private String name;
     private List<Arquivo> arquivos;
     private List<Tree> trees;
@@ -14,7 +14,7 @@ public class Tree {
         this.trees = new ArrayList<>();
     }
 
-    public void setHash(String hash) {
+    public void setHash(ObjectId hash) {
         this.hash = hash;
     }
 
@@ -30,7 +30,7 @@ public class Tree {
         this.trees = trees;
     }
 
-    public String getHash() {
+    public ObjectId getHash() {
         return hash;
     }
 
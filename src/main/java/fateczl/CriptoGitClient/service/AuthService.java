@@ -8,7 +8,6 @@ import java.nio.charset.StandardCharsets;
 import java.security.PrivateKey;
 import java.util.Base64;
 
-import javax.crypto.Cipher;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -90,9 +89,7 @@ public class AuthService {
             
             // Descriptografa a mensagem com a chave privada
             PrivateKey privateKey = keyService.loadPrivateKey(repositorioPath);
-            Cipher cipher = Cipher.getInstance("RSA/ECB/PKCS1Padding");
-            cipher.init(Cipher.DECRYPT_MODE, privateKey);
-            byte[] decryptedMessage = cipher.doFinal(encryptedMessage);
+            byte[] decryptedMessage = CryptoEngine.decryptRsa(encryptedMessage, privateKey);
             
             // Converte os bytes descriptografados para string UTF-8 (não codifica em Base64)
             return new String(decryptedMessage, StandardCharsets.UTF_8);
@@ -66,7 +66,7 @@ public class BlobService {
             if (blob == null) {
                 throw new IllegalArgumentException("Blob[" + i + "] não pode ser nulo");
             }
-            if (blob.getHash() == null || blob.getHash().trim().isEmpty()) {
+            if (getEntryName(blob) == null || getEntryName(blob).trim().isEmpty()) {
                 throw new IllegalArgumentException("Hash do Blob[" + i + "] não pode ser nulo ou vazio");
             }
             if (blob.getContent() == null) {
@@ -81,7 +81,7 @@ public class BlobService {
             try (ZipOutputStream zip = new ZipOutputStream(zipOutputStream)) {
                 for (Blob blob : blobs) {
                     // Usar o hash como nome do arquivo no ZIP, ou relativePath se disponível
-                    String fileName = blob.getHash();
+                    String fileName = getEntryName(blob);
                     
                     // Criar entrada no ZIP
                     ZipEntry entry = new ZipEntry(fileName);
@@ -139,5 +139,15 @@ public class BlobService {
             throw new Exception("Erro inesperado ao enviar blobs em lote: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * Nome da entrada do blob no ZIP: o relativePath se disponível, senão a hash
+     */
+    private String getEntryName(Blob blob) {
+        if (blob.getRelativePath() != null) {
+            return blob.getRelativePath();
+        }
+        return blob.getHash() != null ? blob.getHash().toHex() : null;
+    }
     
 }
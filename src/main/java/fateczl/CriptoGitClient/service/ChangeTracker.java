@@ -0,0 +1,261 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Monitora o diretório de trabalho com um WatchService e guarda os caminhos alterados desde o último add.
+ *
+ * Opcional (opção --watch): enquanto o monitor está ativo, o 'add .' processa apenas os caminhos alterados,
+ * sem listar o repositório inteiro. O monitor começa exigindo um percurso completo, pois não sabe o que mudou
+ * antes de ser iniciado, e volta a exigi-lo se o sistema operacional descartar eventos (OVERFLOW)
+ * ou se não for possível monitorar algum diretório.
+ *
+ * Diretórios iniciados com "." e os ignorados pelo .criptogitignore não são monitorados,
+ * assim como nos percursos do TreeService.
+ */
+public class ChangeTracker {
+
+    // Um monitor por repositório aberto neste processo
+    private static final Map<Path, ChangeTracker> trackers = new ConcurrentHashMap<>();
+
+    private final Path root;
+    private final String rootPath;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> keys = new ConcurrentHashMap<>();
+    // Caminhos relativos (como no index) alterados desde o último add
+    private Set<String> dirtyPaths = new HashSet<>();
+    // Indica que os eventos não são confiáveis e o próximo add precisa percorrer o repositório inteiro
+    private boolean fullScanRequired = true;
+    private final Thread thread;
+
+    private ChangeTracker(Path root) throws IOException {
+        this.root = root;
+        this.rootPath = root.toString();
+        this.watchService = root.getFileSystem().newWatchService();
+        registerTree(root, null, false);
+        this.thread = new Thread(this::processEvents, "criptogit-watch");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Inicia o monitor do repositório, se ainda não estiver ativo
+     * @param repositorioPath Caminho do repositório
+     * @return Monitor do repositório
+     * @throws IOException Se houver erro ao registrar os diretórios
+     */
+    public static ChangeTracker start(String repositorioPath) throws IOException {
+        Path key = Path.of(repositorioPath).toAbsolutePath().normalize();
+        ChangeTracker tracker = trackers.get(key);
+        if (tracker == null) {
+            tracker = new ChangeTracker(key);
+            trackers.put(key, tracker);
+            System.out.println("Monitorando alterações em: " + key);
+        }
+        return tracker;
+    }
+
+    /**
+     * Retorna o monitor ativo do repositório
+     * @param repositorioPath Caminho do repositório
+     * @return Monitor ou null se o repositório não estiver sendo monitorado
+     */
+    public static ChangeTracker get(String repositorioPath) {
+        return trackers.get(Path.of(repositorioPath).toAbsolutePath().normalize());
+    }
+
+    /**
+     * Encerra todos os monitores
+     */
+    public static void stopAll() {
+        for (ChangeTracker tracker : trackers.values()) {
+            tracker.stop();
+        }
+        trackers.clear();
+    }
+
+    public void stop() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Erro ao encerrar o monitor de alterações: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Retorna e limpa os caminhos alterados, se eles forem confiáveis
+     * @return Caminhos relativos alterados ou null se for necessário percorrer o repositório inteiro
+     */
+    public synchronized Set<String> drainDirtyPaths() {
+        if (fullScanRequired) {
+            return null;
+        }
+        Set<String> drained = dirtyPaths;
+        dirtyPaths = new HashSet<>();
+        return drained;
+    }
+
+    /**
+     * Indica o início de um percurso completo: as alterações anteriores serão vistas por ele,
+     * as que chegarem durante o percurso ficam para o próximo add
+     */
+    public synchronized void beginFullScan() {
+        dirtyPaths = new HashSet<>();
+        fullScanRequired = false;
+    }
+
+    /**
+     * Confere se o próximo add pode usar apenas os caminhos alterados
+     */
+    public synchronized boolean isFullScanRequired() {
+        return fullScanRequired;
+    }
+
+    /**
+     * Retorna uma cópia dos caminhos alterados sem limpá-los (usada por consultas como o status)
+     * @return Caminhos relativos alterados ou null se for necessário percorrer o repositório inteiro
+     */
+    public synchronized Set<String> peekDirtyPaths() {
+        return fullScanRequired ? null : new HashSet<>(dirtyPaths);
+    }
+
+    private synchronized void markDirty(Path path) {
+        dirtyPaths.add(path.toString().replace(rootPath, ""));
+    }
+
+    /**
+     * Descarta os caminhos alterados e exige um percurso completo no próximo add. Usado quando o monitor perde
+     * eventos e quando um add falha depois de já ter retirado os caminhos alterados
+     */
+    public synchronized void requireFullScan() {
+        fullScanRequired = true;
+        dirtyPaths = new HashSet<>();
+    }
+
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            Path directory = keys.get(key);
+            if (directory != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Eventos descartados: não há como saber o que mudou
+                        requireFullScan();
+                        continue;
+                    }
+                    Path child = directory.resolve((Path) event.context());
+                    String name = child.getFileName().toString();
+                    if (name.equals(IgnoreRules.IGNORE_FILE)) {
+                        // Regras alteradas: os caminhos monitorados podem não ser mais os mesmos
+                        requireFullScan();
+                        continue;
+                    }
+                    if (name.startsWith(".")) {
+                        continue;
+                    }
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(child)) {
+                        // Diretório novo: passa a monitorá-lo e marca tudo o que já houver dentro dele
+                        try {
+                            registerTree(child, ignoreRulesFor(directory), true);
+                        } catch (IOException e) {
+                            requireFullScan();
+                        }
+                    } else if (!Files.isDirectory(child)) {
+                        markDirty(child);
+                    }
+                }
+            }
+            if (!key.reset()) {
+                // Diretório removido ou inacessível
+                keys.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Registra um diretório e os seus subdiretórios, respeitando o .criptogitignore
+     * @param start Diretório inicial
+     * @param parentRules Regras válidas no diretório pai de start (null quando start é a raiz)
+     * @param markFiles true para marcar como alterados os arquivos encontrados
+     */
+    private void registerTree(Path start, IgnoreRules parentRules, boolean markFiles) throws IOException {
+        Map<Path, IgnoreRules> rulesByDirectory = new HashMap<>();
+        if (parentRules != null) {
+            rulesByDirectory.put(start.getParent(), parentRules);
+        }
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                IgnoreRules rules;
+                if (dir.equals(root)) {
+                    rules = IgnoreRules.load(root);
+                } else {
+                    IgnoreRules parentRules = rulesByDirectory.get(dir.getParent());
+                    String relativePath = dir.toString().replace(rootPath, "");
+                    if (dir.getFileName().toString().startsWith(".") || parentRules.isIgnored(relativePath, true)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    rules = parentRules.forDirectory(dir, relativePath);
+                }
+                rulesByDirectory.put(dir, rules);
+                keys.put(dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (markFiles && attrs.isRegularFile()) {
+                    markDirty(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) {
+                rulesByDirectory.remove(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Monta as regras do .criptogitignore válidas dentro de um diretório, a partir da raiz
+     */
+    private IgnoreRules ignoreRulesFor(Path directory) throws IOException {
+        IgnoreRules rules = IgnoreRules.load(root);
+        if (directory.equals(root)) {
+            return rules;
+        }
+        Path current = root;
+        for (Path segment : root.relativize(directory)) {
+            current = current.resolve(segment);
+            rules = rules.forDirectory(current, current.toString().replace(rootPath, ""));
+        }
+        return rules;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+}
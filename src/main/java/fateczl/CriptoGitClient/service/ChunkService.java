@@ -0,0 +1,293 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Divide arquivos grandes em chunks definidos pelo conteúdo (no estilo do FastCDC).
+ *
+ * Cada chunk é gravado como um blob comum e o arquivo passa a ser representado por uma lista de chunks:
+ *
+ * MAGIC (\0CGCHUNKS\n) | "size <tamanho total>\n" | uma linha "<hash do chunk> <tamanho>" por chunk
+ *
+ * Os pontos de corte dependem apenas dos bytes próximos a eles (hash "gear"), então uma alteração em uma
+ * região do arquivo muda somente os chunks daquela região: os demais mantêm a mesma hash e não são
+ * gravados, criptografados nem enviados novamente.
+ */
+public class ChunkService {
+
+    // Cabeçalho da lista de chunks: o byte nulo inicial não aparece no início de arquivos de texto
+    static final byte[] MAGIC = "\0CGCHUNKS\n".getBytes(StandardCharsets.US_ASCII);
+
+    // Tamanhos mínimo, médio e máximo dos chunks
+    static final int MIN_CHUNK_SIZE = 256 * 1024;
+    static final int AVG_CHUNK_SIZE = 1024 * 1024;
+    static final int MAX_CHUNK_SIZE = 8 * 1024 * 1024;
+    // Normalização do FastCDC: antes do tamanho médio o corte é mais difícil (mais bits),
+    // depois dele é mais fácil (menos bits), concentrando os tamanhos perto da média
+    private static final long MASK_SMALL = maskOf(22);
+    private static final long MASK_LARGE = maskOf(18);
+
+    // Valor aleatório (fixo) de cada byte para a hash gear
+    private static final long[] GEAR = new long[256];
+
+    static {
+        // splitmix64 com semente fixa: a tabela precisa ser a mesma em todas as execuções
+        long seed = 0x43524950544f4749L;
+        for (int i = 0; i < GEAR.length; i++) {
+            seed += 0x9e3779b97f4a7c15L;
+            long z = seed;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            GEAR[i] = z ^ (z >>> 31);
+        }
+    }
+
+    // Buffer de leitura, alocado no primeiro arquivo dividido
+    private byte[] buffer;
+
+    /**
+     * Grava um arquivo como chunks e lista de chunks
+     * @param file Caminho do arquivo
+     * @param objectsPath Caminho da pasta objects
+     * @param md MessageDigest SHA-1
+     * @return Hash da lista de chunks, que representa o arquivo na tree
+     * @throws IOException Se houver erro ao ler o arquivo ou gravar os objects
+     */
+    public ObjectId storeChunkedFile(Path file, Path objectsPath, MessageDigest md) throws IOException {
+        return chunkFile(file, objectsPath, md);
+    }
+
+    /**
+     * Calcula a hash da lista de chunks de um arquivo sem gravar nada (usada pelo status)
+     * @param file Caminho do arquivo
+     * @param md MessageDigest SHA-1
+     * @return Hash da lista de chunks
+     * @throws IOException Se houver erro ao ler o arquivo
+     */
+    public ObjectId hashChunkedFile(Path file, MessageDigest md) throws IOException {
+        return chunkFile(file, null, md);
+    }
+
+    /**
+     * Divide o arquivo em chunks e monta a lista, gravando os objects apenas se objectsPath for informado
+     */
+    private ObjectId chunkFile(Path file, Path objectsPath, MessageDigest md) throws IOException {
+        if (buffer == null) {
+            buffer = new byte[MAX_CHUNK_SIZE];
+        }
+        StringBuilder list = new StringBuilder();
+        long total = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            int filled = 0;
+            boolean eof = false;
+            while (filled > 0 || !eof) {
+                // Completa o buffer para que o próximo corte possa chegar ao tamanho máximo
+                while (!eof && filled < buffer.length) {
+                    int read = in.read(ByteBuffer.wrap(buffer, filled, buffer.length - filled));
+                    if (read < 0) {
+                        eof = true;
+                    } else {
+                        filled += read;
+                    }
+                }
+                if (filled == 0) {
+                    break;
+                }
+                int cut = findCutPoint(buffer, 0, filled);
+                md.reset();
+                md.update(buffer, 0, cut);
+                ObjectId chunkHash = ObjectId.fromBytes(md.digest());
+                if (objectsPath != null) {
+                    storeChunk(objectsPath, chunkHash, buffer, cut);
+                }
+                chunkHash.appendHex(list).append(' ').append(cut).append('\n');
+                total += cut;
+                System.arraycopy(buffer, cut, buffer, 0, filled - cut);
+                filled -= cut;
+            }
+        }
+
+        byte[] header = ("size " + total + "\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] entries = list.toString().getBytes(StandardCharsets.US_ASCII);
+        byte[] content = new byte[MAGIC.length + header.length + entries.length];
+        System.arraycopy(MAGIC, 0, content, 0, MAGIC.length);
+        System.arraycopy(header, 0, content, MAGIC.length, header.length);
+        System.arraycopy(entries, 0, content, MAGIC.length + header.length, entries.length);
+        md.reset();
+        ObjectId listHash = ObjectId.fromBytes(md.digest(content));
+        if (objectsPath != null) {
+            storeChunk(objectsPath, listHash, content, content.length);
+        }
+        return listHash;
+    }
+
+    /**
+     * Procura o ponto de corte do próximo chunk
+     * @param data Bytes a partir do início do chunk
+     * @param offset Posição do início do chunk
+     * @param length Quantidade de bytes disponíveis
+     * @return Tamanho do chunk
+     */
+    static int findCutPoint(byte[] data, int offset, int length) {
+        int limit = Math.min(length, MAX_CHUNK_SIZE);
+        if (limit <= MIN_CHUNK_SIZE) {
+            return limit;
+        }
+        int normal = Math.min(limit, AVG_CHUNK_SIZE);
+        long fingerprint = 0;
+        int i = MIN_CHUNK_SIZE;
+        for (; i < normal; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[data[offset + i] & 0xFF];
+            if ((fingerprint & MASK_SMALL) == 0) {
+                return i + 1;
+            }
+        }
+        for (; i < limit; i++) {
+            fingerprint = (fingerprint << 1) + GEAR[data[offset + i] & 0xFF];
+            if ((fingerprint & MASK_LARGE) == 0) {
+                return i + 1;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Confere se o conteúdo de um blob é uma lista de chunks
+     * @param content Conteúdo do blob (ou os seus primeiros bytes)
+     * @return true se começar com o cabeçalho da lista de chunks
+     */
+    public static boolean isChunkList(byte[] content) {
+        return content.length >= MAGIC.length
+            && Arrays.equals(content, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * Lê as hashes dos chunks de uma lista de chunks
+     * @param content Conteúdo da lista
+     * @return Hashes dos chunks, na ordem do arquivo
+     * @throws IOException Se a lista for inválida
+     */
+    public static List<ObjectId> parseChunkList(byte[] content) throws IOException {
+        if (!isChunkList(content)) {
+            throw new IOException("Lista de chunks inválida.");
+        }
+        String text = new String(content, MAGIC.length, content.length - MAGIC.length, StandardCharsets.US_ASCII);
+        List<ObjectId> chunks = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            if (line.isEmpty() || line.startsWith("size ")) {
+                continue;
+            }
+            try {
+                chunks.add(ObjectId.fromHex(line, 0));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Lista de chunks inválida: " + line);
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Lê o tamanho do arquivo registrado na lista de chunks, sem abrir os chunks
+     * @param content Conteúdo da lista
+     * @return Tamanho do arquivo ou -1 se a lista não tiver a linha "size"
+     * @throws IOException Se a lista for inválida
+     */
+    public static long parseChunkListSize(byte[] content) throws IOException {
+        if (!isChunkList(content)) {
+            throw new IOException("Lista de chunks inválida.");
+        }
+        String text = new String(content, MAGIC.length, content.length - MAGIC.length, StandardCharsets.US_ASCII);
+        for (String line : text.split("\n")) {
+            if (line.startsWith("size ")) {
+                try {
+                    return Long.parseLong(line.substring(5).trim());
+                } catch (NumberFormatException e) {
+                    throw new IOException("Lista de chunks inválida: " + line);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Abre o conteúdo completo do arquivo a partir dos seus chunks, lendo um chunk por vez
+     * @param objectsPath Caminho da pasta objects
+     * @param chunks Hashes dos chunks
+     * @return Stream com o conteúdo do arquivo
+     */
+    public static InputStream openChunks(Path objectsPath, List<ObjectId> chunks) {
+        return new SequenceInputStream(new Enumeration<InputStream>() {
+            private int next;
+
+            @Override
+            public boolean hasMoreElements() {
+                return next < chunks.size();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                ObjectId chunk = chunks.get(next++);
+                try {
+                    InputStream in = ObjectStoreService.openObject(objectsPath, chunk);
+                    if (in == null) {
+                        throw new IOException("Chunk não encontrado: " + chunk);
+                    }
+                    return in;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Grava um chunk (ou a lista de chunks) se ele ainda não existir, através de um arquivo temporário
+     * que o ObjectWriter renomeia no sync do add
+     */
+    private void storeChunk(Path objectsPath, ObjectId hash, byte[] data, int length) throws IOException {
+        ObjectExistenceFilter objectFilter = ObjectExistenceFilter.forObjects(objectsPath);
+        Path objectDir = objectsPath.resolve(hash.getDirName());
+        Path objectFile = objectDir.resolve(hash.getFileName());
+        if (objectFilter.exists(objectFile)) {
+            return;
+        }
+        objectFilter.createDirectory(objectDir);
+        Path tempFile = Files.createTempFile(objectsPath, "tmp_", null);
+        try {
+            try (OutputStream out = ObjectStoreService.openObjectOutput(Files.newOutputStream(tempFile))) {
+                out.write(data, 0, length);
+            }
+            if (ObjectWriter.forObjects(objectsPath).submit(tempFile, objectFile)) {
+                // O temporário agora pertence ao ObjectWriter; se outra thread já enviou o mesmo chunk, é descartado
+                tempFile = null;
+            }
+            objectFilter.add(objectFile);
+        } finally {
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    // Máscara com os bits mais altos: na hash gear eles dependem da maior janela de bytes
+    private static long maskOf(int bits) {
+        return ((1L << bits) - 1) << (64 - bits);
+    }
+}
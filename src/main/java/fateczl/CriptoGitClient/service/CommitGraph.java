@@ -0,0 +1,410 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Arquivo commit-graph (.criptogit/objects/info/commit-graph): os dados de cada commit necessários para
+ * percorrer o histórico, em registros de tamanho fixo, sem abrir nem interpretar os objects dos commits.
+ *
+ * commit-graph: "CGCG" | versão (int) | quantidade de commits (int)
+ *               fan-out: 256 ints com a quantidade acumulada de hashes cujo primeiro byte é menor ou igual ao índice
+ *               hashes ordenadas (20 bytes cada)
+ *               registros, na ordem das hashes: tree raiz (20 bytes) | posição do 1º pai (int) | posição do 2º pai (int)
+ *                                               | número de geração (int) | data em segundos (long)
+ *               final: SHA-1 de todo o conteúdo anterior (20 bytes)
+ *
+ * Os pais são guardados pela posição no próprio arquivo (NO_PARENT quando não existem), então subir no
+ * histórico é apenas ler outro registro. O número de geração é 1 para commits sem pai e 1 + o maior
+ * número de geração dos pais nos demais: um commit nunca é ancestral de outro com geração menor ou igual,
+ * o que permite encerrar cedo as buscas de ancestralidade.
+ */
+public class CommitGraph {
+
+    static final int MAGIC = 0x43474347; // "CGCG"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final int FANOUT_SIZE = 256;
+    // tree (20 bytes) + 2 pais (int) + geração (int) + data (long)
+    static final int RECORD_SIZE = ObjectId.SIZE + 4 + 4 + 4 + 8;
+    public static final int NO_PARENT = -1;
+
+    private final ByteBuffer data;
+    private final int count;
+    private final int idsOffset;
+    private final int recordsOffset;
+
+    /**
+     * Dados de um commit a ser gravado no commit-graph
+     */
+    public static class Entry {
+        final ObjectId id;
+        final ObjectId tree;
+        final List<ObjectId> parents;
+        final long timestamp;
+
+        public Entry(ObjectId id, ObjectId tree, List<ObjectId> parents, long timestamp) {
+            this.id = id;
+            this.tree = tree;
+            this.parents = parents;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private CommitGraph(Path graphPath, ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE + FANOUT_SIZE * 4 + ObjectId.SIZE
+            || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("Commit-graph inválido: " + graphPath);
+        }
+        this.count = data.getInt(8);
+        this.idsOffset = HEADER_SIZE + FANOUT_SIZE * 4;
+        this.recordsOffset = idsOffset + count * ObjectId.SIZE;
+        if (count < 0 || data.capacity() != recordsOffset + (long) count * RECORD_SIZE + ObjectId.SIZE) {
+            throw new IOException("Commit-graph corrompido: " + graphPath);
+        }
+    }
+
+    /**
+     * Caminho do commit-graph de uma pasta objects
+     */
+    public static Path graphPath(Path objectsPath) {
+        return objectsPath.resolve("info").resolve("commit-graph");
+    }
+
+    /**
+     * Lê o commit-graph da pasta objects
+     * @param objectsPath Caminho da pasta .criptogit/objects
+     * @return Commit-graph ou null se ele ainda não existir
+     * @throws IOException Se o arquivo estiver corrompido
+     */
+    public static CommitGraph load(Path objectsPath) throws IOException {
+        Path graphPath = graphPath(objectsPath);
+        if (!Files.exists(graphPath)) {
+            return null;
+        }
+        byte[] bytes = Files.readAllBytes(graphPath);
+        if (bytes.length >= ObjectId.SIZE) {
+            byte[] checksum = newDigest().digest(Arrays.copyOf(bytes, bytes.length - ObjectId.SIZE));
+            if (!Arrays.equals(checksum, 0, ObjectId.SIZE, bytes, bytes.length - ObjectId.SIZE, bytes.length)) {
+                throw new IOException("Checksum inválido no commit-graph: " + graphPath);
+            }
+        }
+        return new CommitGraph(graphPath, ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Garante que o commit e todos os seus ancestrais estejam no commit-graph. Apenas os commits que ainda
+     * não estão no arquivo são lidos da pasta objects; se houver algum, o arquivo é gravado novamente
+     * @param objectsPath Caminho da pasta .criptogit/objects
+     * @param head Commit mais recente
+     * @return Commit-graph atualizado (null se head for null e o arquivo não existir)
+     * @throws IOException Se houver erro ao ler um commit ou gravar o arquivo
+     */
+    public static CommitGraph update(Path objectsPath, ObjectId head) throws IOException {
+        CommitGraph graph = load(objectsPath);
+        if (head == null || (graph != null && graph.find(head) >= 0)) {
+            return graph;
+        }
+        Map<ObjectId, Entry> missing = new HashMap<>();
+        Deque<ObjectId> pending = new ArrayDeque<>();
+        pending.push(head);
+        while (!pending.isEmpty()) {
+            ObjectId id = pending.pop();
+            if (missing.containsKey(id) || (graph != null && graph.find(id) >= 0)) {
+                continue;
+            }
+            Entry entry = readCommit(objectsPath, id);
+            missing.put(id, entry);
+            for (ObjectId parent : entry.parents) {
+                pending.push(parent);
+            }
+        }
+        List<Entry> entries = new ArrayList<>(missing.values());
+        if (graph != null) {
+            entries.addAll(graph.entries());
+        }
+        write(objectsPath, entries);
+        return load(objectsPath);
+    }
+
+    /**
+     * Lê um commit da pasta objects (usado apenas para os commits que ainda não estão no commit-graph)
+     */
+    static Entry readCommit(Path objectsPath, ObjectId id) throws IOException {
+        byte[] commitData = ObjectStoreService.readObject(objectsPath, id);
+        if (commitData == null) {
+            throw new IOException("Commit não encontrado: " + id);
+        }
+        ObjectId tree = null;
+        List<ObjectId> parents = new ArrayList<>();
+        long timestamp = 0;
+        for (String line : new String(commitData).split("\n")) {
+            if (line.startsWith("tree ")) {
+                tree = ObjectId.fromHex(line, 5);
+            } else if (line.startsWith("parent ")) {
+                parents.add(ObjectId.fromHex(line, 7));
+            } else if (line.startsWith("date ")) {
+                timestamp = parseDate(line.substring(5).trim());
+            }
+        }
+        if (tree == null) {
+            throw new IOException("Formato de commit inválido: " + id);
+        }
+        return new Entry(id, tree, parents, timestamp);
+    }
+
+    /**
+     * Converte a data gravada no commit (formato de Date.toString()) em segundos
+     * @return Segundos desde 1970 ou 0 se a data não puder ser lida
+     */
+    static long parseDate(String date) {
+        try {
+            return new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US).parse(date).getTime() / 1000;
+        } catch (ParseException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Grava o commit-graph com os commits informados, calculando as posições dos pais e os números de geração.
+     * Pais que não estão na lista são tratados como inexistentes; apenas os dois primeiros pais são guardados
+     * @param objectsPath Caminho da pasta .criptogit/objects
+     * @param entries Commits do arquivo
+     * @throws IOException Se houver erro ao gravar o arquivo
+     */
+    public static void write(Path objectsPath, List<Entry> entries) throws IOException {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort((a, b) -> a.id.compareTo(b.id));
+        Map<ObjectId, Integer> positions = new HashMap<>();
+        for (int i = 0; i < sorted.size(); i++) {
+            positions.put(sorted.get(i).id, i);
+        }
+        int[] generations = computeGenerations(sorted, positions);
+
+        int[] fanout = new int[FANOUT_SIZE];
+        byte[] hash = new byte[ObjectId.SIZE];
+        for (Entry entry : sorted) {
+            entry.id.copyTo(hash, 0);
+            fanout[hash[0] & 0xFF]++;
+        }
+        for (int i = 1; i < fanout.length; i++) {
+            fanout[i] += fanout[i - 1];
+        }
+
+        Path graphPath = graphPath(objectsPath);
+        Files.createDirectories(graphPath.getParent());
+        Path tempGraph = Files.createTempFile(graphPath.getParent(), "commit-graph", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tempGraph, StandardOpenOption.WRITE)) {
+                MessageDigest md = newDigest();
+                OutputStream fileOut = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+                DataOutputStream out = new DataOutputStream(new DigestOutputStream(fileOut, md));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(sorted.size());
+                for (int total : fanout) {
+                    out.writeInt(total);
+                }
+                for (Entry entry : sorted) {
+                    entry.id.copyTo(hash, 0);
+                    out.write(hash);
+                }
+                for (int i = 0; i < sorted.size(); i++) {
+                    Entry entry = sorted.get(i);
+                    entry.tree.copyTo(hash, 0);
+                    out.write(hash);
+                    out.writeInt(parentPosition(entry, 0, positions));
+                    out.writeInt(parentPosition(entry, 1, positions));
+                    out.writeInt(generations[i]);
+                    out.writeLong(entry.timestamp);
+                }
+                out.flush();
+                // O checksum não passa pelo DigestOutputStream
+                fileOut.write(md.digest());
+                fileOut.flush();
+                channel.force(true);
+            }
+            try {
+                Files.move(tempGraph, graphPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempGraph, graphPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempGraph);
+        }
+    }
+
+    private static int parentPosition(Entry entry, int n, Map<ObjectId, Integer> positions) {
+        if (entry.parents.size() <= n) {
+            return NO_PARENT;
+        }
+        Integer position = positions.get(entry.parents.get(n));
+        return position != null ? position : NO_PARENT;
+    }
+
+    /**
+     * Calcula os números de geração sem recursão (o histórico pode ser mais profundo que a pilha)
+     */
+    private static int[] computeGenerations(List<Entry> sorted, Map<ObjectId, Integer> positions) {
+        int[] generations = new int[sorted.size()];
+        Deque<Integer> stack = new ArrayDeque<>();
+        for (int start = 0; start < sorted.size(); start++) {
+            if (generations[start] != 0) {
+                continue;
+            }
+            stack.push(start);
+            while (!stack.isEmpty()) {
+                int position = stack.peek();
+                int generation = 1;
+                boolean ready = true;
+                for (int n = 0; n < 2; n++) {
+                    int parent = parentPosition(sorted.get(position), n, positions);
+                    if (parent == NO_PARENT) {
+                        continue;
+                    }
+                    if (generations[parent] == 0) {
+                        stack.push(parent);
+                        ready = false;
+                    } else {
+                        generation = Math.max(generation, generations[parent] + 1);
+                    }
+                }
+                if (ready) {
+                    generations[position] = generation;
+                    stack.pop();
+                }
+            }
+        }
+        return generations;
+    }
+
+    /**
+     * Retorna todos os commits do arquivo, para regravá-lo com commits novos
+     */
+    private List<Entry> entries() {
+        List<Entry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<ObjectId> parents = new ArrayList<>(2);
+            for (int n = 0; n < 2; n++) {
+                int parent = getParent(i, n);
+                if (parent != NO_PARENT) {
+                    parents.add(getId(parent));
+                }
+            }
+            entries.add(new Entry(getId(i), getTree(i), parents, getTimestamp(i)));
+        }
+        return entries;
+    }
+
+    /**
+     * Procura a posição de um commit no arquivo
+     * @param id Hash do commit
+     * @return Posição do commit ou -1 se ele não estiver no commit-graph
+     */
+    public int find(ObjectId id) {
+        byte[] target = new byte[ObjectId.SIZE];
+        id.copyTo(target, 0);
+        int first = target[0] & 0xFF;
+        // O fan-out limita a busca às hashes que começam com o mesmo byte
+        int low = first == 0 ? 0 : data.getInt(HEADER_SIZE + (first - 1) * 4);
+        int high = data.getInt(HEADER_SIZE + first * 4) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int cmp = compare(middle, target);
+            if (cmp < 0) {
+                low = middle + 1;
+            } else if (cmp > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    public ObjectId getId(int position) {
+        return ObjectId.fromBytes(read(idsOffset + position * ObjectId.SIZE));
+    }
+
+    public ObjectId getTree(int position) {
+        return ObjectId.fromBytes(read(recordOffset(position)));
+    }
+
+    /**
+     * Posição do n-ésimo pai (0 ou 1) no arquivo
+     * @return Posição do pai ou NO_PARENT
+     */
+    public int getParent(int position, int n) {
+        return data.getInt(recordOffset(position) + ObjectId.SIZE + n * 4);
+    }
+
+    public int getGeneration(int position) {
+        return data.getInt(recordOffset(position) + ObjectId.SIZE + 8);
+    }
+
+    /**
+     * Data do commit em segundos desde 1970
+     */
+    public long getTimestamp(int position) {
+        return data.getLong(recordOffset(position) + ObjectId.SIZE + 12);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    private int recordOffset(int position) {
+        return recordsOffset + position * RECORD_SIZE;
+    }
+
+    private byte[] read(int offset) {
+        byte[] bytes = new byte[ObjectId.SIZE];
+        data.get(offset, bytes);
+        return bytes;
+    }
+
+    // Compara a hash da posição com a hash procurada, byte a byte e sem sinal
+    private int compare(int position, byte[] target) {
+        int base = idsOffset + position * ObjectId.SIZE;
+        for (int i = 0; i < ObjectId.SIZE; i++) {
+            int cmp = Integer.compare(data.get(base + i) & 0xFF, target[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (Exception e) {
+            throw new IOException("SHA-1 indisponível: " + e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package fateczl.CriptoGitClient.service;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -11,6 +12,7 @@ import java.util.List;
 import fateczl.CriptoGitClient.model.Blob;
 import fateczl.CriptoGitClient.model.Commit;
 import fateczl.CriptoGitClient.model.Index;
+import fateczl.CriptoGitClient.model.ObjectId;
 import fateczl.CriptoGitClient.model.Tree;
 
 public class CommitService {
@@ -21,6 +23,8 @@ public class CommitService {
     private FileService fileService;
     private VersionService versionService;
     private CriptografiaService criptografiaService;
+    private int jobs = 1;
+    private boolean useMasterKey;
 
     public void setRepositorioPath(String repositorioPath) {
         this.repositorioPath = repositorioPath;
@@ -28,6 +32,12 @@ public class CommitService {
     public void setIndex(Index index) {
         this.index = index;
     }
+    public void setJobs(int jobs) {
+        this.jobs = Math.max(1, jobs);
+    }
+    public void setUseMasterKey(boolean useMasterKey) {
+        this.useMasterKey = useMasterKey;
+    }
     
     /*
      * Cria as trees necessarias para o commit, incluindo a tree raiz
@@ -67,37 +77,53 @@ public class CommitService {
         if (Files.exists(headPath)) {
             List<String> parentCommitHash = Files.readAllLines(headPath);
             if (!parentCommitHash.isEmpty()) {
-                commit.setParent(parentCommitHash.getFirst());
-                // Adiciona os arquivos referenciados no commit anterior ao index (apenas em memória)
-                getParentCommitFiles(parentCommitHash.getFirst());
+                commit.setParent(ObjectId.fromHex(parentCommitHash.getFirst().trim()));
+                // Se o index não foi gravado a partir do commit anterior (index antigo, clone ou unlock),
+                // adiciona os arquivos referenciados nele ao index (apenas em memória)
+                if (!commit.getParentHash().equals(index.getBaseCommit())) {
+                    getParentCommitFiles(commit.getParentHash());
+                }
             }
         }
         
         
         MessageDigest md = MessageDigest.getInstance("SHA-1");
-        // Inicia o processamento recursivo das Trees
+        // Monta as Trees a partir das entradas do index, recalculando apenas os diretórios alterados
         treeService = new TreeService();
         treeService.setIndex(index);
-        Tree rootTree = treeService.processTreesRecursively(Paths.get(repositorioPath), objectsPath, md);
+        treeService.setRepositorioPath(repositorioPath);
+        Tree rootTree = treeService.buildTreesFromIndex(objectsPath, md);
         // Define o apontamento para a tree raiz
         commit.setRootTree(rootTree);
         // Salva o objeto de commit no diretório objects
         processCommit(commit, objectsPath, md);
 
+        // Espera as trees e o commit ficarem duráveis antes de apontar o HEAD para eles
+        ObjectWriter.forObjects(objectsPath).sync();
+
         // Cria/Atualiza o arquivo HEAD, apontando pra esse commit        
-        Files.write(headPath, commit.getHash().getBytes());
+        Files.write(headPath, commit.getHash().toHex().getBytes());
+        // Inclui o commit no commit-graph; se falhar, o log completa o commit-graph depois
+        try {
+            CommitGraph.update(objectsPath, commit.getHash());
+        } catch (IOException e) {
+            System.err.println("Erro ao atualizar o commit-graph: " + e.getMessage());
+        }
 
         
         // Criptografa o commit
         criptografiaService = new CriptografiaService();
+        criptografiaService.setJobs(jobs);
+        criptografiaService.setUseMasterKey(useMasterKey);
         criptografiaService.encryptBlobs(repositorioPath, commit.getHash());
         
         // Salva a versão do commit
         saveCommitVersion(commit.getHash());
         
-        // Limpa o index
-        Path indexPath = Paths.get(repositorioPath, ".criptogit", "index");
-        Files.write(indexPath, new byte[0]);
+        // Regrava o index com o cache-tree atualizado, mantendo o stat cache para que o próximo add
+        // não precise recalcular a hash dos arquivos que não mudaram
+        index.setBaseCommit(commit.getHash());
+        new IndexService().write(index, repositorioPath);
     }
 
     /**
@@ -105,9 +131,9 @@ public class CommitService {
      * para serem referenciados no novo commit
      * @throws Exception 
      */
-    public void getParentCommitFiles(String parentHash) throws Exception {        
+    public void getParentCommitFiles(ObjectId parentHash) throws Exception {        
         // Lê o commit para obter a hash da tree raiz
-        String rootTreeHash = getRootTreeHashFromCommit(parentHash);
+        ObjectId rootTreeHash = getRootTreeHashFromCommit(parentHash);
         
         // Inicia o processo recursivo a partir da tree raiz
         getLastCommitFilesRecursively(rootTreeHash, "");
@@ -116,25 +142,23 @@ public class CommitService {
     /**
      * Lê o commit e extrai a hash da tree raiz
      */
-    private String getRootTreeHashFromCommit(String commitHash) throws IOException {
-        // Procura o blob do commit
+    private ObjectId getRootTreeHashFromCommit(ObjectId commitHash) throws IOException {
+        // Procura o blob do commit (solto ou empacotado)
         Path objectsPath = Paths.get(repositorioPath, ".criptogit", "objects");
-        String dirName = commitHash.substring(0, 2);
-        String fileName = commitHash.substring(2);
-        Path commitPath = Paths.get(objectsPath.toString(), dirName, fileName);
+        byte[] commitData = ObjectStoreService.readObject(objectsPath, commitHash);
         
         // Se não encontrar, lança exceção
-        if (!Files.exists(commitPath)) {
+        if (commitData == null) {
             throw new IOException("Commit não encontrado: " + commitHash);
         }
         
         // Lê o conteúdo do commit
-        String commitContent = new String(Files.readAllBytes(commitPath));
+        String commitContent = new String(commitData);
         String[] lines = commitContent.split("\n");
         
         // A primeira linha deve conter "tree <hash>"
         if (lines.length > 0 && lines[0].startsWith("tree ")) {
-            return lines[0].substring(5); // Remove "tree " do início e retorna a hash
+            return ObjectId.fromHex(lines[0], 5); // Ignora "tree " do início e retorna a hash
         }
         
         throw new IOException("Formato de commit inválido: " + commitHash);
@@ -144,20 +168,18 @@ public class CommitService {
      * Processa uma tree recursivamente, montando os blobs anteriores com seus relativePaths no index
      * para serem referenciados novamente no novo Commit
      */
-    private void getLastCommitFilesRecursively(String treeHash, String currentPath) throws IOException {
-        // Busca o blob da tree atual através da hash
+    private void getLastCommitFilesRecursively(ObjectId treeHash, String currentPath) throws IOException {
+        // Busca o blob da tree atual através da hash (solto ou empacotado)
         Path objectsPath = Paths.get(repositorioPath, ".criptogit", "objects");
-        String dirName = treeHash.substring(0, 2);
-        String fileName = treeHash.substring(2);
-        Path treePath = Paths.get(objectsPath.toString(), dirName, fileName);
+        byte[] treeData = ObjectStoreService.readObject(objectsPath, treeHash);
         
         // Se não encontrou, lança exceção
-        if (!Files.exists(treePath)) {
+        if (treeData == null) {
             throw new IOException("Tree não encontrada: " + treeHash);
         }
         
         // Lê o conteúdo da tree
-        String treeContent = new String(Files.readAllBytes(treePath));
+        String treeContent = new String(treeData);
         String[] lines = treeContent.split("\n");
         
         for (String line : lines) {
@@ -166,14 +188,14 @@ public class CommitService {
                 continue;
             }
             // Divide as partes da linha
-            String[] parts = line.split(" ");
+            String[] parts = TreeService.splitTreeLine(line);
             // Formato padrão de tree: tree <nomeDaPasta> <hashDaTree>
             // ou blob <nomeDoArquivo> <hashDoBlob>
             // então só processa se tiver 3 partes
-            if (parts.length >= 3) {
+            if (parts != null) {
                 String type = parts[0]; // "blob" ou "tree"
                 String name = parts[1]; // <nomeDoArquivo/Pasta>
-                String hash = parts[2]; // <hashDoBlob/Tree>
+                ObjectId hash = ObjectId.fromHex(parts[2]); // <hashDoBlob/Tree>
                 
                 // se aquela linha referenciar um blob
                 if ("blob".equals(type)) {
@@ -182,15 +204,19 @@ public class CommitService {
                     blob.setHash(hash);
                     
                     // Monta o relativePath
-                    String relativePath = currentPath.isEmpty() ? "\\" + name : currentPath + "\\" + name;
+                    String relativePath = currentPath + File.separator + name;
                     blob.setRelativePath(relativePath);
+                    // Arquivos removidos do diretório de trabalho não voltam para o index
+                    if (!Files.exists(Paths.get(repositorioPath + relativePath))) {
+                        continue;
+                    }
                     
-                    // Adiciona ao index
-                    index.getBlobs().add(blob);
+                    // Adiciona ao index, sem substituir as entradas adicionadas pelo usuário
+                    index.addParentBlob(blob);
                 } else if ("tree".equals(type)) {
                     // Se aquela linha referenciar uma tree
                     // Chama recursivamente para processar a sub-tree
-                    String newPath = currentPath.isEmpty() ? "\\" + name : currentPath + "\\" + name;
+                    String newPath = currentPath + File.separator + name;
                     getLastCommitFilesRecursively(hash, newPath);
                 }
             }
@@ -203,37 +229,36 @@ public class CommitService {
      private void processCommit(Commit commit, Path objectsPath, MessageDigest md) throws IOException {
         // Define as linhas a serem escritas no blob do commit
         StringBuilder blobContent = new StringBuilder();
-        blobContent.append("tree ").append(commit.getRootTree().getHash()).append("\n");
+        blobContent.append("tree ");
+        commit.getRootTree().getHash().appendHex(blobContent).append("\n");
         if (commit.getParentHash() != null) {
-            blobContent.append("parent ").append(commit.getParentHash()).append("\n");
+            blobContent.append("parent ");
+            commit.getParentHash().appendHex(blobContent).append("\n");
         }
         blobContent.append("author ").append(commit.getAuthor()).append("\n");
         blobContent.append("date ").append(commit.getDate()).append("\n");
         blobContent.append("message ").append(commit.getMessage()).append("\n");
         
         // Calcula a hash do conteúdo do commit
-        byte[] sha1bytes = md.digest(blobContent.toString().getBytes());
-        StringBuilder sb = new StringBuilder();
-        for (byte b : sha1bytes) {
-            sb.append(String.format("%02x", b));
-        }
-        commit.setHash(sb.toString());
+        byte[] content = blobContent.toString().getBytes();
+        commit.setHash(ObjectId.fromBytes(md.digest(content)));
         
         // Pega os 2 primeiros caracteres da hash para o diretório e os 38 restantes para o arquivo
-        String hash = commit.getHash();
-        String dirName = hash.substring(0, 2);        // 2 primeiros caracteres
-        String fileName = hash.substring(2);         // 38 caracteres restantes
+        ObjectId hash = commit.getHash();
+        String dirName = hash.getDirName();        // 2 primeiros caracteres
+        String fileName = hash.getFileName();     // 38 caracteres restantes
         
         // Monta o blob do commit para ser armazenado
         Blob commitBlob = new Blob();
-        commitBlob.setContent(blobContent.toString().getBytes());
+        commitBlob.setContent(content);
         commitBlob.setHash(commit.getHash());
         
         // Cria a pasta do blob
         Path objectDir = Paths.get(objectsPath.toString(), dirName);
-        treeService = new TreeService();
-        treeService.setIndex(index);
-        treeService.createDirectory(objectDir);
+        // Usa um TreeService próprio para não descartar as entradas do commit guardadas em treeService
+        TreeService objectTreeService = new TreeService();
+        objectTreeService.setIndex(index);
+        objectTreeService.createDirectory(objectDir);
         // Cria o blob
         Path objectFile = Paths.get(objectDir.toString(), fileName);
         fileService = new FileService();
@@ -247,7 +272,7 @@ public class CommitService {
      * @param commitHash Hash do commit que foi criado
      * @throws Exception Se houver erro ao salvar a versão
      */
-    private void saveCommitVersion(String commitHash) throws Exception {
+    private void saveCommitVersion(ObjectId commitHash) throws Exception {
         Path versionsPath = Paths.get(repositorioPath, ".criptogit", "versions");
         
         // Cria a pasta versions se não existir
@@ -261,7 +286,7 @@ public class CommitService {
         
         // Salva o conteúdo do HEAD no arquivo de versão
         Path versionFile = versionsPath.resolve(String.valueOf(nextVersion));
-        Files.write(versionFile, commitHash.getBytes());
+        Files.write(versionFile, commitHash.toHex().getBytes());
     }   
 
 }
\ No newline at end of file
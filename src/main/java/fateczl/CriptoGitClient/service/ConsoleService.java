@@ -14,9 +14,27 @@ public class ConsoleService {
     CriptografiaService criptografiaService = new CriptografiaService();
     CommitService commitService = new CommitService();
     CloneService cloneService = new CloneService();
-    Settings settings = new Settings();
+    Settings settings;
     KeyService keyService = new KeyService();
     ColaboradorService colaboradorService = new ColaboradorService();
+    PackService packService = new PackService();
+    StatusService statusService;
+    DiffService diffService = new DiffService();
+    LogService logService = new LogService();
+
+    public ConsoleService() {
+        this(new Settings());
+    }
+
+    public ConsoleService(Settings settings) {
+        this.settings = settings;
+        ObjectStoreService.setCompression(settings.isCompressObjects());
+        try {
+            CryptoEngine.setProvider(settings.getCryptoProvider());
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage() + ". Usando o provider padrão.");
+        }
+    }
 
     public void run() {
         String command;
@@ -34,6 +52,9 @@ public class ConsoleService {
                     System.out.print("Digite o caminho do repositório: ");
                     String path = scanner.nextLine();
                     repositorioService.init(path);
+                    if (settings.isWatch() && repositorioService.getRepositorio().getPath() != null) {
+                        ChangeTracker.start(repositorioService.getRepositorio().getPath());
+                    }
                     break;
                 case "add":
                     if (!checkRepositorioInicializado()) {
@@ -43,6 +64,8 @@ public class ConsoleService {
                     String filename = scanner.nextLine();
                     fileService.setRepositorioPath(repositorioService.getRepositorio().getPath());
                     fileService.setIndex(repositorioService.getIndex());
+                    fileService.setJobs(settings.getJobs());
+                    fileService.setChunkThreshold(settings.getChunkThreshold());
                     fileService.add(filename);
                     break;
                 case "add-collaborator":
@@ -87,6 +110,8 @@ public class ConsoleService {
                     String message = scanner.nextLine();
                     commitService.setRepositorioPath(repositorioService.getRepositorio().getPath());
                     commitService.setIndex(repositorioService.getIndex());
+                    commitService.setJobs(settings.getJobs());
+                    commitService.setUseMasterKey(settings.isMasterKey());
                     commitService.commit(message);
                     break;
                 case "create-key-pair":
@@ -133,6 +158,54 @@ public class ConsoleService {
                     }
                     unlockService.unlock(repositorioService.getRepositorio().getPath());
                     break;
+                case "repack":
+                    if (!checkRepositorioInicializado()) {
+                        break;
+                    }
+                    packService.repack(repositorioService.getRepositorio().getPath());
+                    break;
+                case "status":
+                    if (!checkRepositorioInicializado()) {
+                        break;
+                    }
+                    statusService = new StatusService();
+                    statusService.setRepositorioPath(repositorioService.getRepositorio().getPath());
+                    statusService.setIndex(repositorioService.getIndex());
+                    statusService.setJobs(settings.getJobs());
+                    statusService.status();
+                    break;
+                case "diff":
+                    if (!checkRepositorioInicializado()) {
+                        break;
+                    }
+                    System.out.print("Digite o commit de origem (vazio para o HEAD): ");
+                    String from = scanner.nextLine();
+                    System.out.print("Digite o commit de destino (vazio para o diretório de trabalho): ");
+                    String to = scanner.nextLine();
+                    diffService.setRepositorioPath(repositorioService.getRepositorio().getPath());
+                    diffService.setIndex(repositorioService.getIndex());
+                    diffService.diff(from, to);
+                    break;
+                case "log":
+                    if (!checkRepositorioInicializado()) {
+                        break;
+                    }
+                    System.out.print("Digite a quantidade de commits (vazio para todos): ");
+                    String limit = scanner.nextLine().trim();
+                    logService.setRepositorioPath(repositorioService.getRepositorio().getPath());
+                    logService.log(limit.isEmpty() ? 0 : Integer.parseInt(limit));
+                    break;
+                case "merge-base":
+                    if (!checkRepositorioInicializado()) {
+                        break;
+                    }
+                    System.out.print("Digite o primeiro commit (vazio para o HEAD): ");
+                    String first = scanner.nextLine();
+                    System.out.print("Digite o segundo commit (vazio para o HEAD): ");
+                    String second = scanner.nextLine();
+                    logService.setRepositorioPath(repositorioService.getRepositorio().getPath());
+                    logService.showMergeBase(first, second);
+                    break;
                 case "create-remote-repository":
                     System.out.print("Digite o nome do repositório: ");
                     repositorio = scanner.nextLine();
@@ -149,14 +222,19 @@ public class ConsoleService {
                     System.out.println("create-key-pair - Cria um par de chaves RSA (private_key.pem e public_key.pem)");
                     System.out.println("create-remote-repository - Cria um repositório remoto");
                     System.out.println("clone - Clona um repositório remoto para o repositório local");
+                    System.out.println("diff - Mostra as diferenças entre dois commits ou entre um commit e o diretório de trabalho");
                     System.out.println("exit - Sai do programa");
                     System.out.println("init - Inicializa um repositório local");
                     System.out.println("list-remote-repositories - Lista todos os repositórios remotos");
                     System.out.println("load-public-keys - Recebe as chaves públicas dos colaboradores de um repositório");
+                    System.out.println("log - Mostra o histórico de commits a partir do HEAD");
                     System.out.println("login - Faz login no servidor");
+                    System.out.println("merge-base - Mostra o ancestral comum mais recente de dois commits");
                     System.out.println("pull - Puxa os commits do repositório remoto para o repositório local");
                     System.out.println("push - Envia os commits do repositório local para o repositório remoto");
                     System.out.println("register - Registra um novo usuário");
+                    System.out.println("repack - Agrupa os objects do repositório local em arquivos pack");
+                    System.out.println("status - Mostra as alterações do diretório de trabalho, do index e do HEAD");
                     System.out.println("test - Testa a conexão com o servidor");
                     System.out.println("unlock - Desbloqueia o repositório local");
                     break;
@@ -182,6 +260,7 @@ public class ConsoleService {
     }
 
     public void close() {
+        ChangeTracker.stopAll();
         scanner.close();
     }
     
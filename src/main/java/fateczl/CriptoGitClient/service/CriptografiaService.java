@@ -4,7 +4,13 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
@@ -14,41 +20,74 @@ import java.security.PublicKey;
 import java.security.KeyFactory;
 import java.security.spec.X509EncodedKeySpec;
 import java.util.Set;
-import java.util.HashSet;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 import javax.crypto.Cipher;
-import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
 
+import fateczl.CriptoGitClient.model.ObjectId;
+
 
 public class CriptografiaService {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
     
-    private Set<String> usedNames = new HashSet<>();
+    // Acessados pelas threads do pool durante a criptografia das trees
+    private Set<String> usedNames = ConcurrentHashMap.newKeySet();
     private Random random = new SecureRandom();
-    private List<PublicKey> publicKeys = new ArrayList<>();
+    private volatile List<PublicKey> publicKeys = List.of();
+    // Pacote de chaves de cada chave pública, na mesma ordem de publicKeys
+    private volatile List<KeyBundle> bundles = List.of();
+    private int jobs = 1;
+    // Com a opção --master-key, a chave mestra do commit sendo criptografado
+    private boolean useMasterKey;
+    private MasterKey masterKey;
     private VersionService versionService;
     private KeyService keyService;
 
     public CriptografiaService() {
         this.keyService = new KeyService();
     }
+
+    /**
+     * Define quantas threads criptografam os objects do commit
+     * @param jobs Quantidade de threads
+     */
+    public void setJobs(int jobs) {
+        this.jobs = Math.max(1, jobs);
+    }
+
+    /**
+     * Define se o commit usa uma chave mestra, com as chaves dos objects derivadas dela (veja MasterKey)
+     * @param useMasterKey true para uma chave mestra por commit; false para uma chave aleatória por object
+     */
+    public void setUseMasterKey(boolean useMasterKey) {
+        this.useMasterKey = useMasterKey;
+    }
     
     /**
      * Criptografa todos os blobs referenciados em um commit
      * @param repositorioPath Caminho do repositório
      * @param commitHash Hash do commit a ser criptografado
      */
-    public void encryptBlobs(String repositorioPath, String commitHash) throws Exception {
+    public void encryptBlobs(String repositorioPath, ObjectId commitHash) throws Exception {
         // Limpa o conjunto de nomes usados para cada nova operação
         usedNames.clear();
         
         // Carrega as chaves públicas
         loadPublicKeys(repositorioPath);
+        masterKey = null;
         
         // Procura a pasta .criptogit/objects do repositorio
         Path objectsPath = Paths.get(repositorioPath, ".criptogit", "objects");
@@ -62,14 +101,14 @@ public class CriptografiaService {
             Files.createDirectories(lockedPath);
         }
         
-        // Procura o blob do commit
-        Path commitBlobPath = Paths.get(objectsPath.toString(), commitHash.substring(0, 2), commitHash.substring(2));
-        if (!Files.exists(commitBlobPath)) {
+        // Procura o blob do commit (solto ou empacotado)
+        byte[] commitData = ObjectStoreService.readObject(objectsPath, commitHash);
+        if (commitData == null) {
             throw new Exception("Erro ao criptografar objects: blob do commit não encontrado.");
         }
         
         // Lê o conteúdo do commit
-        String commitContent = new String(Files.readAllBytes(commitBlobPath));
+        String commitContent = new String(commitData);
         String[] lines = commitContent.split("\n");
         
         // A primeira linha deve conter "tree <hash>"
@@ -77,117 +116,227 @@ public class CriptografiaService {
             throw new Exception("Formato de commit inválido: " + commitHash);
         }
         
-        String rootTreeHash = lines[0].substring(5); // Remove "tree " do início
-        
-        // Criptografa recursivamente a tree raiz
-        String encryptedRootTreeHash = encryptTreeRecursively(rootTreeHash, objectsPath, lockedPath);
+        ObjectId rootTreeHash = ObjectId.fromHex(lines[0], 5); // Ignora "tree " do início
         
-        // Criptografa o próprio commit
-        encryptCommit(commitHash, encryptedRootTreeHash, objectsPath, lockedPath);        
-        
-        // Criptografa o HEAD após criptografar blobs, trees e commits
-        encryptHead(repositorioPath, commitHash);
+        // Abre um pacote de chaves por chave pública; todos os pacotes do commit têm o mesmo nome único
+        String bundleName = generateUniqueName();
+        List<KeyBundle> openedBundles = new ArrayList<>();
+        try {
+            for (PublicKey publicKey : publicKeys) {
+                openedBundles.add(KeyBundle.create(lockedPath, publicKey, bundleName));
+            }
+            bundles = List.copyOf(openedBundles);
+            
+            // Gera a chave mestra do commit e a criptografa uma única vez para cada chave pública
+            if (useMasterKey) {
+                masterKey = MasterKey.generate();
+                for (int i = 0; i < publicKeys.size(); i++) {
+                    bundles.get(i).add(KeyBundle.MASTER_KEY_ENTRY, masterKey.wrap(publicKeys.get(i)));
+                }
+            }
+            
+            // Criptografa recursivamente a tree raiz
+            String encryptedRootTreeHash = encryptTreeRecursively(rootTreeHash, objectsPath, lockedPath);
+            
+            // Criptografa o próprio commit
+            encryptCommit(commitHash, encryptedRootTreeHash, objectsPath, lockedPath);        
+            
+            // Criptografa o HEAD após criptografar blobs, trees e commits
+            encryptHead(repositorioPath, commitHash);
+        } finally {
+            bundles = List.of();
+            for (KeyBundle bundle : openedBundles) {
+                bundle.close();
+            }
+        }
 
         System.out.println("Criptografia concluída! Arquivos criptografados salvos em: .criptogit/locked");
     }
     
     /**
-     * Criptografa uma tree recursivamente
+     * Criptografa uma tree recursivamente, distribuindo os blobs e as sub-trees entre as threads do pool.
+     * Cada tree só é criptografada depois de todos os objects que ela referencia
      * @param treeHash Hash da tree a ser criptografada
      * @param objectsPath Caminho da pasta objects
      * @param lockedPath Caminho da pasta locked
      * @return Hash da tree criptografada
      */
-    private String encryptTreeRecursively(String treeHash, Path objectsPath, Path lockedPath) throws Exception {
-        // Busca o blob da tree atual através da hash
-        String dirName = treeHash.substring(0, 2);
-        String fileName = treeHash.substring(2);
-        Path treePath = Paths.get(objectsPath.toString(), dirName, fileName);
-        
-        // Se não encontrou, lança exceção
-        if (!Files.exists(treePath)) {
-            throw new IOException("Tree não encontrada: " + treeHash);
-        }
-        
-        // Lê o conteúdo da tree
-        String treeContent = new String(Files.readAllBytes(treePath));
-        String[] lines = treeContent.split("\n");
-        
-        // Processa recursivamente todos os blobs e trees referenciados
-        for (String line : lines) {
-            // Se a linha estiver vazia, pula pra próxima linha
-            if (line.trim().isEmpty()) {
-                continue;
+    private String encryptTreeRecursively(ObjectId treeHash, Path objectsPath, Path lockedPath) throws Exception {
+        Map<ObjectId, ForkJoinTask<?>> tasks = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool(jobs);
+        try {
+            return pool.invoke(new TreeTask(treeHash, objectsPath, lockedPath, tasks));
+        } catch (CompletionException e) {
+            // A exceção pode chegar embrulhada mais de uma vez quando é repassada entre as threads
+            Throwable cause = e;
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
             }
-            
-            // Divide as partes da linha
-            String[] parts = line.split(" ");
-            // Formato padrão de tree: tree <nomeDaPasta> <hashDaTree>
-            // ou blob <nomeDoArquivo> <hashDoBlob>
-            // então só processa se tiver 3 partes
-            if (parts.length >= 3) {
-                String type = parts[0]; // "blob" ou "tree"
-                String hash = parts[2]; // <hashDoBlob/Tree>
+            throw cause instanceof Exception ? (Exception) cause : e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Registra a tarefa de um object referenciado. Um object que aparece mais de uma vez no commit
+     * (arquivos iguais, sub-trees iguais ou chunks repetidos) é criptografado por uma única tarefa
+     * @param pending Tarefas que a tree atual deve executar
+     * @param shared Tarefas de outras trees que a tree atual deve esperar
+     */
+    private static void claim(Map<ObjectId, ForkJoinTask<?>> tasks, ObjectId hash, ForkJoinTask<?> task,
+                              List<ForkJoinTask<?>> pending, List<ForkJoinTask<?>> shared) {
+        ForkJoinTask<?> existing = tasks.putIfAbsent(hash, task);
+        if (existing == null) {
+            pending.add(task);
+        } else {
+            shared.add(existing);
+        }
+    }
+
+    private static void runAll(List<ForkJoinTask<?>> pending, List<ForkJoinTask<?>> shared) {
+        ForkJoinTask.invokeAll(pending);
+        for (ForkJoinTask<?> task : shared) {
+            task.join();
+        }
+    }
+
+    private class TreeTask extends RecursiveTask<String> {
+        private final ObjectId treeHash;
+        private final Path objectsPath;
+        private final Path lockedPath;
+        private final Map<ObjectId, ForkJoinTask<?>> tasks;
+
+        TreeTask(ObjectId treeHash, Path objectsPath, Path lockedPath, Map<ObjectId, ForkJoinTask<?>> tasks) {
+            this.treeHash = treeHash;
+            this.objectsPath = objectsPath;
+            this.lockedPath = lockedPath;
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected String compute() {
+            try {
+                // Busca o blob da tree atual através da hash (solto ou empacotado)
+                byte[] treeData = ObjectStoreService.readObject(objectsPath, treeHash);
                 
-                // se aquela linha referenciar um blob
-                if ("blob".equals(type)) {
-                    // Criptografa o blob (mas não altera a referência na tree)
-                    encryptBlob(hash, objectsPath, lockedPath);
-                    
-                } else if ("tree".equals(type)) {
-                    // Se aquela linha referenciar uma tree
-                    // Chama recursivamente para processar a sub-tree
-                    encryptTreeRecursively(hash, objectsPath, lockedPath);
+                // Se não encontrou, lança exceção
+                if (treeData == null) {
+                    throw new IOException("Tree não encontrada: " + treeHash);
                 }
+                
+                // Lê o conteúdo da tree
+                String treeContent = new String(treeData);
+                
+                // Cria uma tarefa para cada blob e sub-tree referenciados
+                List<ForkJoinTask<?>> pending = new ArrayList<>();
+                List<ForkJoinTask<?>> shared = new ArrayList<>();
+                for (String line : treeContent.split("\n")) {
+                    // Formato padrão de tree: tree <nomeDaPasta> <hashDaTree>
+                    // ou blob <nomeDoArquivo> <hashDoBlob>
+                    String[] parts = line.trim().isEmpty() ? null : TreeService.splitTreeLine(line);
+                    if (parts == null) {
+                        continue;
+                    }
+                    ObjectId hash = ObjectId.fromHex(parts[2]);
+                    if ("blob".equals(parts[0])) {
+                        claim(tasks, hash, new BlobTask(hash, objectsPath, lockedPath, tasks), pending, shared);
+                    } else if ("tree".equals(parts[0])) {
+                        claim(tasks, hash, new TreeTask(hash, objectsPath, lockedPath, tasks), pending, shared);
+                    }
+                }
+                runAll(pending, shared);
+                
+                // Criptografa o conteúdo ORIGINAL da tree (sem alterar as referências)
+                return encryptTreeContent(treeContent, treeHash, objectsPath, lockedPath);
+            } catch (Exception e) {
+                throw new CompletionException(e);
             }
         }
-        
-        // Criptografa o conteúdo ORIGINAL da tree (sem alterar as referências)
-        return encryptTreeContent(treeContent, treeHash, objectsPath, lockedPath);
+    }
+
+    private class BlobTask extends RecursiveAction {
+        private final ObjectId blobHash;
+        private final Path objectsPath;
+        private final Path lockedPath;
+        private final Map<ObjectId, ForkJoinTask<?>> tasks;
+
+        BlobTask(ObjectId blobHash, Path objectsPath, Path lockedPath, Map<ObjectId, ForkJoinTask<?>> tasks) {
+            this.blobHash = blobHash;
+            this.objectsPath = objectsPath;
+            this.lockedPath = lockedPath;
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                // Arquivo dividido em chunks: cada chunk é criptografado como um blob próprio,
+                // então os chunks que já tinham sido criptografados em outra versão são pulados
+                if (!isEncrypted(blobHash, objectsPath) && isChunkList(blobHash, objectsPath)) {
+                    List<ForkJoinTask<?>> pending = new ArrayList<>();
+                    List<ForkJoinTask<?>> shared = new ArrayList<>();
+                    for (ObjectId chunkHash : ChunkService.parseChunkList(ObjectStoreService.readObject(objectsPath, blobHash))) {
+                        claim(tasks, chunkHash, new BlobTask(chunkHash, objectsPath, lockedPath, tasks), pending, shared);
+                    }
+                    runAll(pending, shared);
+                }
+                encryptBlob(blobHash, objectsPath, lockedPath);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }
+    }
+
+    private boolean isEncrypted(ObjectId hash, Path objectsPath) throws IOException {
+        Path keyPath = Paths.get(objectsPath.toString(), hash.getDirName(), hash.toHex() + ".key");
+        return ObjectExistenceFilter.forObjects(objectsPath).exists(keyPath);
+    }
+
+    private boolean isChunkList(ObjectId blobHash, Path objectsPath) throws IOException {
+        byte[] prefix;
+        try (InputStream in = ObjectStoreService.openObject(objectsPath, blobHash)) {
+            prefix = in.readNBytes(ChunkService.MAGIC.length);
+        }
+        return ChunkService.isChunkList(prefix);
     }
     
     /**
-     * Criptografa um blob individual
+     * Criptografa um blob individual (os chunks de um arquivo dividido são criptografados antes, pelo BlobTask)
      * @param blobHash Hash do blob a ser criptografado
      * @param objectsPath Caminho da pasta objects
      * @param lockedPath Caminho da pasta locked
      * @return Hash do blob criptografado
      */
-    private String encryptBlob(String blobHash, Path objectsPath, Path lockedPath) throws Exception {
-        // Busca o blob através da hash
-        String dirName = blobHash.substring(0, 2);
-        String fileName = blobHash.substring(2);
-        Path blobPath = Paths.get(objectsPath.toString(), dirName, fileName);
+    private String encryptBlob(ObjectId blobHash, Path objectsPath, Path lockedPath) throws Exception {
+        // Busca o blob através da hash (solto ou empacotado)
+        String dirName = blobHash.getDirName();
         
         // Se não encontrou, lança exceção
-        if (!Files.exists(blobPath)) {
+        if (!ObjectStoreService.hasObject(objectsPath, blobHash)) {
             throw new IOException("Blob não encontrado: " + blobHash);
         }
         
         // Verifica se o blob já foi criptografado anteriormente
-        String keyName = blobHash + ".key";
-        Path keyPath = Paths.get(objectsPath.toString(), dirName, keyName);
+        String keyName = blobHash.toHex() + ".key";
         
-        if (Files.exists(keyPath)) {
+        if (isEncrypted(blobHash, objectsPath)) {
             // Blob já foi criptografado, não precisa processar novamente
-            return blobHash; // Retorna a hash original pois já está criptografado
+            return blobHash.toHex(); // Retorna a hash original pois já está criptografado
         }
         
-        // Lê o conteúdo do blob
-        byte[] originalContent = Files.readAllBytes(blobPath);
-        
         // Gera uma chave simétrica diferente para cada blob
-        SecretKey secretKey = generateSymmetricKey();
-        
-        // Criptografa o conteúdo
-        byte[] encryptedContent = encryptContent(originalContent, secretKey);
+        SecretKey secretKey = objectKey(blobHash);
         
-        // Criptografa a hash SHA-1 completa com a mesma chave simétrica
-        byte[] encryptedHash = encryptContent(blobHash.getBytes(), secretKey);
-        String encryptedBlobName = bytesToHex(encryptedHash);
+        // Criptografa a hash SHA-1 completa com a mesma chave simétrica (ou com a chave de nomes da chave mestra)
+        String encryptedBlobName = encryptedName(blobHash, secretKey);
         
-        // Salva o blob criptografado e sua chave na mesma pasta do blob original
-        String newHash = saveEncryptedBlobWithKey(encryptedContent, secretKey, encryptedBlobName, keyName, dirName, objectsPath, lockedPath);
+        // Criptografa o conteúdo direto do object para a pasta locked, um segmento por vez,
+        // e salva a chave na mesma pasta do blob original
+        String newHash;
+        try (InputStream in = ObjectStoreService.openObject(objectsPath, blobHash)) {
+            newHash = saveEncryptedBlobWithKey(Channels.newChannel(in), secretKey, encryptedBlobName, keyName, dirName, objectsPath, lockedPath);
+        }
         
         return newHash;
     }
@@ -200,29 +349,26 @@ public class CriptografiaService {
      * @param lockedPath Caminho da pasta locked
      * @return Hash da tree criptografada
      */
-    private String encryptTreeContent(String treeContent, String treeHash, Path objectsPath, Path lockedPath) throws Exception {
+    private String encryptTreeContent(String treeContent, ObjectId treeHash, Path objectsPath, Path lockedPath) throws Exception {
         // Verifica se a tree já foi criptografada anteriormente
-        String keyName = treeHash + ".key";
-        String dirName = treeHash.substring(0, 2);
+        String keyName = treeHash.toHex() + ".key";
+        String dirName = treeHash.getDirName();
         Path keyPath = Paths.get(objectsPath.toString(), dirName, keyName);
         
-        if (Files.exists(keyPath)) {
+        if (ObjectExistenceFilter.forObjects(objectsPath).exists(keyPath)) {
             // Tree já foi criptografada, não precisa processar novamente
-            return treeHash; // Retorna a hash original pois já está criptografada
+            return treeHash.toHex(); // Retorna a hash original pois já está criptografada
         }
         
         // Gera uma chave simétrica para a tree
-        SecretKey secretKey = generateSymmetricKey();
-        
-        // Criptografa o conteúdo da tree
-        byte[] encryptedContent = encryptContent(treeContent.getBytes(), secretKey);
+        SecretKey secretKey = objectKey(treeHash);
         
-        // Criptografa a hash SHA-1 completa com a mesma chave simétrica
-        byte[] encryptedHash = encryptContent(treeHash.getBytes(), secretKey);
-        String encryptedTreeName = bytesToHex(encryptedHash);
+        // Criptografa a hash SHA-1 completa com a mesma chave simétrica (ou com a chave de nomes da chave mestra)
+        String encryptedTreeName = encryptedName(treeHash, secretKey);
         
         // Salva a tree criptografada e sua chave
-        String newHash = saveEncryptedBlobWithKey(encryptedContent, secretKey, encryptedTreeName, keyName, dirName, objectsPath, lockedPath);
+        String newHash = saveEncryptedBlobWithKey(Channels.newChannel(new ByteArrayInputStream(treeContent.getBytes())),
+            secretKey, encryptedTreeName, keyName, dirName, objectsPath, lockedPath);
         
         return newHash;
     }
@@ -235,64 +381,87 @@ public class CriptografiaService {
      * @param lockedPath Caminho da pasta locked
      * @return Hash do commit criptografado
      */
-    private String encryptCommit(String commitHash, String encryptedRootTreeHash, Path objectsPath, Path lockedPath) throws Exception {
-        // Busca o commit original
-        String dirName = commitHash.substring(0, 2);
-        String fileName = commitHash.substring(2);
-        Path commitPath = Paths.get(objectsPath.toString(), dirName, fileName);
+    private String encryptCommit(ObjectId commitHash, String encryptedRootTreeHash, Path objectsPath, Path lockedPath) throws Exception {
+        // Busca o commit original (solto ou empacotado)
+        String dirName = commitHash.getDirName();
         
-        if (!Files.exists(commitPath)) {
+        if (!ObjectStoreService.hasObject(objectsPath, commitHash)) {
             throw new IOException("Commit não encontrado: " + commitHash);
         }
         
         // Verifica se o commit já foi criptografado anteriormente
-        String keyName = commitHash + ".key";
+        String keyName = commitHash.toHex() + ".key";
         Path keyPath = Paths.get(objectsPath.toString(), dirName, keyName);
         
-        if (Files.exists(keyPath)) {
+        if (ObjectExistenceFilter.forObjects(objectsPath).exists(keyPath)) {
             // Commit já foi criptografado, não precisa processar novamente
-            return commitHash; // Retorna a hash original pois já está criptografado
+            return commitHash.toHex(); // Retorna a hash original pois já está criptografado
         }
         
         // Lê o conteúdo do commit
-        String commitContent = new String(Files.readAllBytes(commitPath));
+        String commitContent = new String(ObjectStoreService.readObject(objectsPath, commitHash));
         
         // Gera uma chave simétrica para o commit
-        SecretKey secretKey = generateSymmetricKey();
-        
-        // Criptografa o conteúdo ORIGINAL do commit (sem alterar as referências)
-        byte[] encryptedContent = encryptContent(commitContent.getBytes(), secretKey);
+        SecretKey secretKey = objectKey(commitHash);
         
-        // Criptografa a hash SHA-1 completa com a mesma chave simétrica
-        byte[] encryptedHash = encryptContent(commitHash.getBytes(), secretKey);
-        String encryptedCommitName = bytesToHex(encryptedHash);
+        // Criptografa a hash SHA-1 completa com a mesma chave simétrica (ou com a chave de nomes da chave mestra)
+        String encryptedCommitName = encryptedName(commitHash, secretKey);
         
-        // Salva o commit criptografado e sua chave na mesma pasta do commit original
-        String newHash = saveEncryptedBlobWithKey(encryptedContent, secretKey, encryptedCommitName, keyName, dirName, objectsPath, lockedPath);
+        // Salva o conteúdo ORIGINAL do commit criptografado (sem alterar as referências) e sua chave
+        // na mesma pasta do commit original
+        String newHash = saveEncryptedBlobWithKey(Channels.newChannel(new ByteArrayInputStream(commitContent.getBytes())),
+            secretKey, encryptedCommitName, keyName, dirName, objectsPath, lockedPath);
 
         return newHash;
     }
     
+    /**
+     * Chave simétrica de um object: derivada da chave mestra ou, sem ela, aleatória
+     * @param hash Hash do object
+     */
+    private SecretKey objectKey(ObjectId hash) throws Exception {
+        return masterKey != null ? masterKey.objectKey(hash) : generateSymmetricKey();
+    }
+
+    /**
+     * Nome de um object na pasta locked: a hash criptografada com a chave do object ou com a chave de nomes
+     * @param hash Hash do object
+     * @param secretKey Chave do object
+     */
+    private String encryptedName(ObjectId hash, SecretKey secretKey) throws Exception {
+        return bytesToHex(masterKey != null ? masterKey.encryptName(hash) : encryptContent(hash.toHex().getBytes(), secretKey));
+    }
+    
     /**
      * Gera uma chave simétrica AES
      * @return Chave simétrica gerada
      */
     private SecretKey generateSymmetricKey() throws Exception {
-        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
-        keyGenerator.init(256); // 256 bits
-        return keyGenerator.generateKey();
+        return CryptoEngine.generateAesKey(); // 256 bits
     }
     
     /**
-     * Criptografa conteúdo usando AES
+     * Criptografa o nome de um object usando AES em modo ECB (determinístico: a mesma chave
+     * e a mesma hash geram sempre o mesmo nome). O conteúdo dos objects usa o SegmentedCipher
      * @param content Conteúdo a ser criptografado
      * @param secretKey Chave para criptografia
      * @return Conteúdo criptografado
      */
     private byte[] encryptContent(byte[] content, SecretKey secretKey) throws Exception {
-        Cipher cipher = Cipher.getInstance("AES");
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey);
-        return cipher.doFinal(content);
+        return CryptoEngine.aes(Cipher.ENCRYPT_MODE, content, secretKey);
+    }
+
+    /**
+     * Grava um conteúdo na pasta locked no formato segmentado (AES-GCM)
+     * @param content Conteúdo original
+     * @param secretKey Chave simétrica
+     * @param target Arquivo criptografado
+     */
+    private void writeEncrypted(ReadableByteChannel content, SecretKey secretKey, Path target) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            SegmentedCipher.encrypt(content, out, secretKey);
+        }
     }
     
     /**
@@ -309,9 +478,8 @@ public class CriptografiaService {
                 sb.append(chars.charAt(random.nextInt(chars.length())));
             }
             name = sb.toString();
-        } while (usedNames.contains(name));
+        } while (!usedNames.add(name));
         
-        usedNames.add(name);
         return name;
     }
     
@@ -321,11 +489,12 @@ public class CriptografiaService {
      * @return String hexadecimal
      */
     private String bytesToHex(byte[] bytes) {
-        StringBuilder result = new StringBuilder();
-        for (byte b : bytes) {
-            result.append(String.format("%02x", b));
+        char[] result = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            result[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            result[i * 2 + 1] = HEX[bytes[i] & 0xF];
         }
-        return result.toString();
+        return new String(result);
     }
     
     /**
@@ -339,8 +508,8 @@ public class CriptografiaService {
             throw new Exception("Erro: pasta 'keys' não encontrada no repositório. Crie a pasta 'keys' em .criptogit e adicione suas chaves com os comandos: openssl genrsa -out private_key.pem 2048 && openssl rsa -in private_key.pem -pubout -out public_key.pem");
         }
         
-        // Limpa a lista de chaves públicas
-        publicKeys.clear();
+        // Monta a lista nova antes de publicá-la para as threads
+        List<PublicKey> loadedKeys = new ArrayList<>();
         
         // Lista todos os arquivos na pasta keys
         try (var stream = Files.list(keysPath)) {
@@ -351,7 +520,7 @@ public class CriptografiaService {
                 if (fileName.startsWith("public_key") && fileName.endsWith(".pem")) {
                     try {
                         PublicKey publicKey = loadPublicKeyFromFile(keyFile);
-                        publicKeys.add(publicKey);
+                        loadedKeys.add(publicKey);
                     } catch (Exception e) {
                         System.err.println("Erro ao carregar chave pública " + fileName + ": " + e.getMessage());
                     }
@@ -359,9 +528,10 @@ public class CriptografiaService {
             }
         }
         
-        if (publicKeys.isEmpty()) {
+        if (loadedKeys.isEmpty()) {
             throw new Exception("Erro: nenhuma chave pública encontrada na pasta keys");
         }
+        publicKeys = List.copyOf(loadedKeys);
         
         System.out.println("Total de chaves públicas carregadas: " + publicKeys.size());
     }
@@ -399,14 +569,12 @@ public class CriptografiaService {
      * @throws Exception Se houver erro na criptografia
      */
     private byte[] encryptSymmetricKeyWithPublicKey(SecretKey secretKey, PublicKey publicKey) throws Exception {
-        Cipher cipher = Cipher.getInstance("RSA");
-        cipher.init(Cipher.ENCRYPT_MODE, publicKey);
-        return cipher.doFinal(secretKey.getEncoded());
+        return CryptoEngine.wrapKey(secretKey, publicKey);
     }
     
     /**
-     * Salva um blob criptografado e suas chaves simétricas no repositório
-     * @param encryptedContent Conteúdo criptografado
+     * Criptografa e salva um blob e suas chaves simétricas no repositório
+     * @param content Conteúdo original, criptografado em segmentos enquanto é gravado na pasta locked
      * @param secretKey Chave simétrica usada para criptografar
      * @param encryptedName Nome do blob criptografado
      * @param keyName Nome do arquivo da chave simétrica original
@@ -415,34 +583,33 @@ public class CriptografiaService {
      * @param lockedPath Caminho da pasta locked
      * @return Hash do blob salvo
      */
-    private String saveEncryptedBlobWithKey(byte[] encryptedContent, SecretKey secretKey, 
+    private String saveEncryptedBlobWithKey(ReadableByteChannel content, SecretKey secretKey, 
                                           String encryptedName, String keyName, String dirName, 
                                           Path objectsPath, Path lockedPath) throws Exception {
         // Cria a estrutura de diretórios
+        ObjectExistenceFilter objectFilter = ObjectExistenceFilter.forObjects(objectsPath);
         Path dirPath = Paths.get(objectsPath.toString(), dirName);
-        if (!Files.exists(dirPath)) {
-            Files.createDirectories(dirPath);
-        }
+        objectFilter.createDirectory(dirPath);
         
         // Salva o blob criptografado na pasta locked
         Path encryptedFilePath = Paths.get(lockedPath.toString(), encryptedName);
-        Files.write(encryptedFilePath, encryptedContent);
+        writeEncrypted(content, secretKey, encryptedFilePath);
         
         // Salva a chave simétrica original descriptografada na pasta do blob
         Path originalKeyFilePath = Paths.get(objectsPath.toString(), dirName, keyName);
         Files.write(originalKeyFilePath, secretKey.getEncoded());
-        
+        objectFilter.add(originalKeyFilePath);
+        // Guarda o nome do arquivo na pasta locked, usado nos pacotes dos colaboradores adicionados depois
+        Files.writeString(KeyBundle.lockedNameFile(originalKeyFilePath), encryptedName, StandardCharsets.US_ASCII);
+
         // Criptografa a chave simétrica com cada chave pública RSA
-        for (int i = 0; i < publicKeys.size(); i++) {
+        // (com a chave mestra não há o que gravar: ela já foi criptografada para cada chave pública)
+        for (int i = 0; masterKey == null && i < publicKeys.size(); i++) {
             PublicKey publicKey = publicKeys.get(i);
             byte[] encryptedSymmetricKey = encryptSymmetricKeyWithPublicKey(secretKey, publicKey);
             
-            // Gera nome único para cada chave simétrica criptografada
-            String encryptedKeyName = generateUniqueName();
-            
-            // Salva a chave simétrica criptografada
-            Path encryptedKeyFilePath = Paths.get(lockedPath.toString(), encryptedKeyName);
-            Files.write(encryptedKeyFilePath, encryptedSymmetricKey);
+            // Guarda a chave criptografada no pacote do colaborador, junto com o nome do arquivo que ela abre
+            bundles.get(i).add(encryptedName, encryptedSymmetricKey);
         }
                 
         return encryptedName;
@@ -454,7 +621,7 @@ public class CriptografiaService {
      * @param commitHash Hash do commit atual (versão do HEAD)
      * @throws Exception Se houver erro na criptografia
      */
-    private void encryptHead(String repositorioPath, String commitHash) throws Exception {
+    private void encryptHead(String repositorioPath, ObjectId commitHash) throws Exception {
         // Caminho do arquivo HEAD
         Path headPath = Paths.get(repositorioPath, ".criptogit", "HEAD");
         if (!Files.exists(headPath)) {
@@ -474,11 +641,8 @@ public class CriptografiaService {
         int versionNumber = versionService.findNextVersionNumber(versionsPath);
         
         // Gera uma chave simétrica específica para o HEAD
-        SecretKey headSecretKey = generateSymmetricKey();
+        SecretKey headSecretKey = masterKey != null ? masterKey.headKey(versionNumber) : generateSymmetricKey();
         
-        // Criptografa o conteúdo do HEAD
-        byte[] encryptedHeadContent = encryptContent(headContent.getBytes(), headSecretKey);        
-               
         // Caminho da pasta locked
         Path lockedPath = Paths.get(repositorioPath, ".criptogit", "locked");
         if (!Files.exists(lockedPath)) {
@@ -487,23 +651,24 @@ public class CriptografiaService {
         
         // Salva o HEAD criptografado na pasta locked
         Path encryptedHeadFilePath = Paths.get(lockedPath.toString(), versionNumber + ".head");
-        Files.write(encryptedHeadFilePath, encryptedHeadContent);
+        writeEncrypted(Channels.newChannel(new ByteArrayInputStream(headContent.getBytes())), headSecretKey, encryptedHeadFilePath);
         
-        // Criptografa a chave simétrica do HEAD com cada chave pública RSA
-        for (int i = 0; i < publicKeys.size(); i++) {
+        // Criptografa a chave simétrica do HEAD com cada chave pública RSA (exceto quando derivada da chave mestra)
+        for (int i = 0; masterKey == null && i < publicKeys.size(); i++) {
             PublicKey publicKey = publicKeys.get(i);
             byte[] encryptedHeadSymmetricKey = encryptSymmetricKeyWithPublicKey(headSecretKey, publicKey);
             
-            // Gera nome único para cada chave simétrica criptografada do HEAD
-            String encryptedHeadKeyName = generateUniqueName();
-            
-            // Salva a chave simétrica criptografada do HEAD
-            Path encryptedHeadKeyFilePath = Paths.get(lockedPath.toString(), encryptedHeadKeyName);
-            Files.write(encryptedHeadKeyFilePath, encryptedHeadSymmetricKey);
+            // Guarda a chave criptografada do HEAD no pacote do colaborador
+            bundles.get(i).add(encryptedHeadFilePath.getFileName().toString(), encryptedHeadSymmetricKey);
         }
         
         // Salva a chave simétrica original do HEAD na pasta versions
         saveHeadSymmetricKey(repositorioPath, versionNumber, headSecretKey);
+        
+        // Salva a chave mestra ao lado da chave do HEAD, para criptografá-la para os colaboradores adicionados depois
+        if (masterKey != null) {
+            Files.write(versionsPath.resolve(versionNumber + ".master"), masterKey.getEncoded());
+        }
     }
     
     /**
@@ -579,11 +744,11 @@ public class CriptografiaService {
         }
         
         // 2. Busca todos os arquivos .key na pasta objects
-        List<Path> symmetricKeyFiles = new ArrayList<>();
+        List<Path> objectKeyFiles = new ArrayList<>();
         try (var stream = Files.walk(objectsPath)) {
             stream.filter(Files::isRegularFile)
                   .filter(path -> path.getFileName().toString().endsWith(".key"))
-                  .forEach(symmetricKeyFiles::add);
+                  .forEach(objectKeyFiles::add);
         }
 
         // Confere se existe a pasta versions
@@ -593,54 +758,64 @@ public class CriptografiaService {
         }        
         
         // 3. Busca todos os arquivos .key na pasta versions
+        List<Path> headKeyFiles = new ArrayList<>();
         try (var stream = Files.walk(versionsPath)) {
             stream.filter(Files::isRegularFile)
                   .filter(path -> path.getFileName().toString().endsWith(".key"))
-                  .forEach(symmetricKeyFiles::add);
+                  .forEach(headKeyFiles::add);
         }
         
         // Se não existem chaves simétricas, retorna
-        if (symmetricKeyFiles.isEmpty()) {
+        if (objectKeyFiles.isEmpty() && headKeyFiles.isEmpty()) {
             System.out.println("Nenhuma chave simétrica encontrada na pasta objects.");
             return;
         }
         
-        System.out.println("Total de chaves simétricas encontradas: " + symmetricKeyFiles.size());
+        System.out.println("Total de chaves simétricas encontradas: " + (objectKeyFiles.size() + headKeyFiles.size()));
         
-        // 4. Criptografa cada chave simétrica com cada nova chave pública
+        // 4. Criptografa cada chave simétrica com cada nova chave pública, no pacote do novo colaborador
         Path lockedPath = Paths.get(repositorioPath, ".criptogit", "locked");
         if (!Files.exists(lockedPath)) {
             Files.createDirectories(lockedPath);
         }
         
         int totalEncrypted = 0;
-        // Para cada arquivo de chave simétrica
-        for (Path keyFile : symmetricKeyFiles) {
-            // Lê o conteúdo da chave simétrica
-            byte[] keyContent = Files.readAllBytes(keyFile);
-            
-            // Reconstrói a SecretKey a partir dos bytes
-            SecretKey secretKey = new SecretKeySpec(keyContent, "AES");
+        String bundleName = generateUniqueName();
+        List<KeyBundle> newBundles = new ArrayList<>();
+        try {
+            for (PublicKey publicKey : newPublicKeys) {
+                newBundles.add(KeyBundle.create(lockedPath, publicKey, bundleName));
+            }
             
-            // Obtém o nome do arquivo
-            String keyFileName = keyFile.getFileName().toString();
+            // Chaves dos objects, com o nome do arquivo que cada uma abre na pasta locked
+            for (Path keyFile : objectKeyFiles) {
+                SecretKey secretKey = new SecretKeySpec(Files.readAllBytes(keyFile), "AES");
+                String lockedName = lockedObjectName(keyFile, secretKey);
+                if (lockedName != null) {
+                    totalEncrypted += addToBundles(newBundles, newPublicKeys, lockedName, secretKey);
+                }
+            }
             
-            // Para cada nova chave pública, criptografa a chave simétrica
-            // e salva na pasta locked
-            for (int i = 0; i < newPublicKeys.size(); i++) {
-                PublicKey publicKey = newPublicKeys.get(i);
-                
-                // Criptografa o conteúdo da chave simétrica com a chave pública
-                byte[] encryptedKeyContent = encryptSymmetricKeyWithPublicKey(secretKey, publicKey);
-                
-                // Gera nome único para a chave simétrica criptografada
-                String encryptedFileName = generateUniqueName();
-                
-                // Salva a versão criptografada na pasta locked
-                Path encryptedKeyFilePath = Paths.get(lockedPath.toString(), encryptedFileName);
-                Files.write(encryptedKeyFilePath, encryptedKeyContent);
-                
-                totalEncrypted++;
+            // Chaves dos HEADs: a chave versions/<versão>.key abre o arquivo <versão>.head
+            for (Path keyFile : headKeyFiles) {
+                String keyFileName = keyFile.getFileName().toString();
+                String version = keyFileName.substring(0, keyFileName.length() - ".key".length());
+                Path masterKeyFile = keyFile.resolveSibling(version + ".master");
+                if (Files.exists(masterKeyFile)) {
+                    // Commit com chave mestra: ela abre o HEAD e os objects do commit
+                    MasterKey commitMasterKey = MasterKey.fromEncoded(Files.readAllBytes(masterKeyFile));
+                    for (int i = 0; i < newPublicKeys.size(); i++) {
+                        newBundles.get(i).add(KeyBundle.MASTER_KEY_ENTRY, commitMasterKey.wrap(newPublicKeys.get(i)));
+                    }
+                    totalEncrypted += newPublicKeys.size();
+                    continue;
+                }
+                SecretKey secretKey = new SecretKeySpec(Files.readAllBytes(keyFile), "AES");
+                totalEncrypted += addToBundles(newBundles, newPublicKeys, version + ".head", secretKey);
+            }
+        } finally {
+            for (KeyBundle bundle : newBundles) {
+                bundle.close();
             }
         }
         
@@ -661,6 +836,44 @@ public class CriptografiaService {
         System.out.println("\n*** Execute o comando push para devolver as novas chaves ao repositório e permitir o acesso dos novos colaboradores. ***\n");
     }
     
+    /**
+     * Nome, na pasta locked, do object aberto por uma chave da pasta objects
+     * @param keyFile Arquivo da chave (objects/xx/<hash>.key)
+     * @param secretKey Chave do object
+     * @return Nome do arquivo ou null se o nome não for aberto pela chave do object (commit com chave mestra)
+     */
+    private String lockedObjectName(Path keyFile, SecretKey secretKey) throws Exception {
+        String keyFileName = keyFile.getFileName().toString();
+        String hash = keyFileName.substring(0, keyFileName.length() - ".key".length());
+        // Com a chave aleatória do object, o nome é a hash criptografada com a própria chave
+        String objectKeyName = bytesToHex(encryptContent(hash.getBytes(), secretKey));
+        Path lockedNameFile = KeyBundle.lockedNameFile(keyFile);
+        if (!Files.exists(lockedNameFile)) {
+            // Objects criptografados antes de o nome ser guardado sempre usaram a chave aleatória
+            return objectKeyName;
+        }
+        // Os nomes dos commits com chave mestra são criptografados com a chave de nomes, e esses objects
+        // são abertos pela chave mestra do commit
+        String lockedName = Files.readString(lockedNameFile, StandardCharsets.US_ASCII).trim();
+        return lockedName.equals(objectKeyName) ? lockedName : null;
+    }
+
+    /**
+     * Acrescenta uma chave simétrica ao pacote de cada nova chave pública
+     * @param newBundles Pacotes dos novos colaboradores, na mesma ordem de newPublicKeys
+     * @param newPublicKeys Chaves públicas dos novos colaboradores
+     * @param lockedName Nome do arquivo da pasta locked aberto pela chave
+     * @param secretKey Chave simétrica
+     * @return Quantidade de chaves criptografadas
+     */
+    private int addToBundles(List<KeyBundle> newBundles, List<PublicKey> newPublicKeys, String lockedName,
+                             SecretKey secretKey) throws Exception {
+        for (int i = 0; i < newPublicKeys.size(); i++) {
+            newBundles.get(i).add(lockedName, encryptSymmetricKeyWithPublicKey(secretKey, newPublicKeys.get(i)));
+        }
+        return newPublicKeys.size();
+    }
+    
     /**
      * Recebe um array de chaves públicas do servidor e salva as que ainda não existem na pasta keys
      * @param settings Configurações do cliente
@@ -0,0 +1,207 @@
+package fateczl.CriptoGitClient.service;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.Provider;
+import java.security.PublicKey;
+import java.security.Security;
+import java.util.HashMap;
+import java.util.Map;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Contextos de criptografia (Cipher, KeyGenerator e Mac) reaproveitados por thread.
+ *
+ * Cipher.getInstance e KeyGenerator.getInstance procuram o algoritmo nos providers e alocam um objeto novo
+ * a cada chamada, o que pesa quando são feitas uma ou mais vezes por object. Aqui cada thread guarda uma
+ * instância por transformação e só a reinicializa (init) a cada uso.
+ *
+ * Os Cipher devolvidos pertencem à thread que os pediu: não devem ser guardados nem passados para outra
+ * thread, e não podem ser usados de forma aninhada (duas operações intercaladas com a mesma transformação).
+ *
+ * O provider pode ser escolhido com a opção --crypto-provider; sem ela é usado o provider padrão da JVM.
+ */
+public class CryptoEngine {
+
+    // Formato antigo do conteúdo e formato dos nomes criptografados (determinístico)
+    public static final String AES = "AES/ECB/PKCS5Padding";
+    // Conteúdo dos objects (SegmentedCipher)
+    public static final String AES_GCM = "AES/GCM/NoPadding";
+    // Chaves simétricas e desafio de autenticação
+    public static final String RSA = "RSA/ECB/PKCS1Padding";
+    public static final int AES_KEY_SIZE = 256;
+    // Derivação de chaves (HKDF, RFC 5869)
+    public static final String HMAC = "HmacSHA256";
+    private static final int HMAC_SIZE = 32;
+
+    private static volatile String provider;
+    // Incrementada quando o provider muda, para que as threads descartem os contextos antigos
+    private static volatile int generation;
+
+    private static final ThreadLocal<Contexts> contexts = ThreadLocal.withInitial(Contexts::new);
+
+    private CryptoEngine() {
+    }
+
+    /**
+     * Define o provider usado pelos próximos contextos criados
+     * @param name Nome do provider (ex.: SunJCE) ou null/vazio para o provider padrão
+     * @throws IllegalArgumentException Se o provider não estiver instalado
+     */
+    public static synchronized void setProvider(String name) {
+        String value = name == null || name.isBlank() ? null : name.trim();
+        if (value != null && Security.getProvider(value) == null) {
+            throw new IllegalArgumentException("Provider de criptografia não encontrado: " + value);
+        }
+        provider = value;
+        generation++;
+    }
+
+    public static String getProvider() {
+        return provider;
+    }
+
+    /**
+     * Devolve o Cipher da thread atual para a transformação, ainda sem inicializar
+     * @param transformation Transformação (AES, AES_GCM ou RSA)
+     * @throws GeneralSecurityException Se a transformação não estiver disponível no provider
+     */
+    public static Cipher cipher(String transformation) throws GeneralSecurityException {
+        Contexts current = current();
+        Cipher cipher = current.ciphers.get(transformation);
+        if (cipher == null) {
+            cipher = current.provider == null
+                ? Cipher.getInstance(transformation)
+                : Cipher.getInstance(transformation, current.provider);
+            current.ciphers.put(transformation, cipher);
+        }
+        return cipher;
+    }
+
+    /**
+     * Gera uma chave AES de 256 bits com o KeyGenerator da thread atual
+     */
+    public static SecretKey generateAesKey() throws GeneralSecurityException {
+        Contexts current = current();
+        if (current.aesKeyGenerator == null) {
+            KeyGenerator keyGenerator = current.provider == null
+                ? KeyGenerator.getInstance("AES")
+                : KeyGenerator.getInstance("AES", current.provider);
+            keyGenerator.init(AES_KEY_SIZE);
+            current.aesKeyGenerator = keyGenerator;
+        }
+        return current.aesKeyGenerator.generateKey();
+    }
+
+    /**
+     * Criptografa uma chave simétrica com uma chave pública RSA
+     * @return Bytes da chave criptografada (um bloco RSA)
+     */
+    public static byte[] wrapKey(SecretKey secretKey, PublicKey publicKey) throws GeneralSecurityException {
+        return encryptRsa(secretKey.getEncoded(), publicKey);
+    }
+
+    /**
+     * Criptografa um conteúdo pequeno (até um bloco RSA) com uma chave pública
+     */
+    public static byte[] encryptRsa(byte[] data, PublicKey publicKey) throws GeneralSecurityException {
+        Cipher cipher = cipher(RSA);
+        cipher.init(Cipher.ENCRYPT_MODE, publicKey);
+        return cipher.doFinal(data);
+    }
+
+    /**
+     * Descriptografa um bloco RSA com a chave privada
+     * @return Conteúdo original do bloco
+     * @throws GeneralSecurityException Se o bloco não tiver sido criptografado para esta chave
+     */
+    public static byte[] decryptRsa(byte[] data, PrivateKey privateKey) throws GeneralSecurityException {
+        Cipher cipher = cipher(RSA);
+        cipher.init(Cipher.DECRYPT_MODE, privateKey);
+        return cipher.doFinal(data);
+    }
+
+    /**
+     * Criptografa ou descriptografa um conteúdo pequeno (nomes de objects, formato antigo) com AES
+     * @param mode Cipher.ENCRYPT_MODE ou Cipher.DECRYPT_MODE
+     */
+    public static byte[] aes(int mode, byte[] data, SecretKey secretKey) throws GeneralSecurityException {
+        Cipher cipher = cipher(AES);
+        cipher.init(mode, secretKey);
+        return cipher.doFinal(data);
+    }
+
+    /**
+     * Etapa "extract" do HKDF: concentra o material da chave em uma chave pseudoaleatória
+     * @param salt Salt (não secreto)
+     * @param inputKey Material da chave
+     * @return Chave pseudoaleatória (32 bytes), usada em hkdfExpand
+     */
+    public static byte[] hkdfExtract(byte[] salt, byte[] inputKey) throws GeneralSecurityException {
+        Mac mac = mac();
+        mac.init(new SecretKeySpec(salt.length == 0 ? new byte[HMAC_SIZE] : salt, HMAC));
+        return mac.doFinal(inputKey);
+    }
+
+    /**
+     * Etapa "expand" do HKDF: deriva uma chave para um contexto (info) a partir da chave pseudoaleatória
+     * @param prk Chave pseudoaleatória de hkdfExtract
+     * @param info Contexto da chave derivada
+     * @param length Tamanho da chave derivada (até 255 * 32 bytes)
+     */
+    public static byte[] hkdfExpand(byte[] prk, byte[] info, int length) throws GeneralSecurityException {
+        if (length <= 0 || length > 255 * HMAC_SIZE) {
+            throw new GeneralSecurityException("Tamanho inválido para o HKDF: " + length);
+        }
+        Mac mac = mac();
+        mac.init(new SecretKeySpec(prk, HMAC));
+        byte[] result = new byte[length];
+        byte[] block = new byte[0];
+        for (int offset = 0, counter = 1; offset < length; counter++) {
+            mac.update(block);
+            mac.update(info);
+            mac.update((byte) counter);
+            block = mac.doFinal();
+            int size = Math.min(block.length, length - offset);
+            System.arraycopy(block, 0, result, offset, size);
+            offset += size;
+        }
+        return result;
+    }
+
+    private static Mac mac() throws GeneralSecurityException {
+        Contexts current = current();
+        if (current.hmac == null) {
+            current.hmac = current.provider == null ? Mac.getInstance(HMAC) : Mac.getInstance(HMAC, current.provider);
+        }
+        return current.hmac;
+    }
+
+    private static Contexts current() {
+        Contexts current = contexts.get();
+        if (current.generation != generation) {
+            current = new Contexts();
+            contexts.set(current);
+        }
+        return current;
+    }
+
+    private static final class Contexts {
+        private final Provider provider;
+        private final Map<String, Cipher> ciphers = new HashMap<>();
+        private KeyGenerator aesKeyGenerator;
+        private Mac hmac;
+        private final int generation;
+
+        Contexts() {
+            // Lê a geração antes do provider: se a geração já for a nova, o provider lido também é
+            this.generation = CryptoEngine.generation;
+            String name = CryptoEngine.provider;
+            this.provider = name == null ? null : Security.getProvider(name);
+        }
+    }
+}
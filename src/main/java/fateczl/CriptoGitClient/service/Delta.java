@@ -0,0 +1,246 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Codificação de um object como delta de outro object (base), no mesmo formato de instruções do git:
+ *
+ * delta:    tamanho da base (varint) | tamanho do resultado (varint) | instruções
+ * copiar:   1xxxxxxx | até 4 bytes de posição | até 3 bytes de tamanho (os bits xxxxxxx indicam os bytes presentes)
+ * inserir:  0xxxxxxx (1 a 127) | xxxxxxx bytes literais
+ *
+ * Os trechos em comum são encontrados indexando a base em blocos de BLOCK_SIZE bytes e
+ * percorrendo o resultado com uma hash deslizante do mesmo tamanho.
+ */
+public class Delta {
+
+    private static final int BLOCK_SIZE = 16;
+    // Quantidade máxima de candidatos conferidos para cada hash
+    private static final int MAX_CANDIDATES = 64;
+    private static final int MAX_INSERT = 127;
+    private static final int MAX_COPY = 0xFFFFFF;
+    private static final int PRIME = 0x01000193;
+    // PRIME elevado a BLOCK_SIZE - 1, usado para retirar o byte mais antigo da hash deslizante
+    private static final int PRIME_POW;
+
+    static {
+        int pow = 1;
+        for (int i = 0; i < BLOCK_SIZE - 1; i++) {
+            pow *= PRIME;
+        }
+        PRIME_POW = pow;
+    }
+
+    /**
+     * Calcula o delta que transforma a base no resultado
+     * @param base Conteúdo da base
+     * @param target Conteúdo do resultado
+     * @param maxSize Tamanho máximo aceito para o delta
+     * @return Delta ou null se a base for pequena demais, maxSize não for positivo ou o delta passar de maxSize
+     */
+    public static byte[] create(byte[] base, byte[] target, int maxSize) {
+        if (maxSize <= 0 || base.length < BLOCK_SIZE || target.length < BLOCK_SIZE) {
+            return null;
+        }
+
+        // Indexa os blocos da base: heads[hash] aponta para o último bloco com a hash e next encadeia os anteriores
+        int blocks = base.length / BLOCK_SIZE;
+        int tableSize = Integer.highestOneBit(Math.max(blocks, 1) * 2 - 1) << 1;
+        int[] heads = new int[tableSize];
+        int[] next = new int[blocks];
+        Arrays.fill(heads, -1);
+        for (int block = 0; block < blocks; block++) {
+            int slot = hash(base, block * BLOCK_SIZE) & (tableSize - 1);
+            next[block] = heads[slot];
+            heads[slot] = block;
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.min(maxSize, target.length / 4 + 64));
+        writeVarint(out, base.length);
+        writeVarint(out, target.length);
+
+        int insertStart = 0;
+        int position = 0;
+        int h = hash(target, 0);
+        while (position + BLOCK_SIZE <= target.length) {
+            int bestOffset = -1;
+            int bestLength = 0;
+            int candidates = 0;
+            for (int block = heads[h & (tableSize - 1)]; block >= 0 && candidates < MAX_CANDIDATES; block = next[block]) {
+                candidates++;
+                int offset = block * BLOCK_SIZE;
+                int length = matchLength(base, offset, target, position);
+                if (length > bestLength) {
+                    bestOffset = offset;
+                    bestLength = length;
+                }
+            }
+
+            if (bestLength < BLOCK_SIZE) {
+                // Sem trecho em comum: o byte entra na próxima inserção e a hash desliza um byte
+                if (position + BLOCK_SIZE < target.length) {
+                    h = (h - (target[position] & 0xFF) * PRIME_POW) * PRIME + (target[position + BLOCK_SIZE] & 0xFF);
+                }
+                position++;
+                continue;
+            }
+
+            // Estende o trecho em comum para trás, sobre os bytes que seriam inseridos
+            while (position > insertStart && bestOffset > 0 && base[bestOffset - 1] == target[position - 1]) {
+                bestOffset--;
+                position--;
+                bestLength++;
+            }
+            writeInsert(out, target, insertStart, position);
+            writeCopy(out, bestOffset, bestLength);
+            if (out.size() > maxSize) {
+                return null;
+            }
+            position += bestLength;
+            insertStart = position;
+            if (position + BLOCK_SIZE <= target.length) {
+                h = hash(target, position);
+            }
+        }
+        writeInsert(out, target, insertStart, target.length);
+        return out.size() > maxSize ? null : out.toByteArray();
+    }
+
+    /**
+     * Reconstrói o resultado a partir da base e do delta
+     * @param base Conteúdo da base
+     * @param delta Delta gerado por create
+     * @param offset Posição do início do delta no array
+     * @return Conteúdo do resultado
+     * @throws IOException Se o delta for inválido para a base
+     */
+    public static byte[] apply(byte[] base, byte[] delta, int offset) throws IOException {
+        int[] position = { offset };
+        long baseSize = readVarint(delta, position);
+        long targetSize = readVarint(delta, position);
+        if (baseSize != base.length || targetSize > Integer.MAX_VALUE) {
+            throw new IOException("Delta inválido: tamanho da base não confere.");
+        }
+        byte[] target = new byte[(int) targetSize];
+        int written = 0;
+        int i = position[0];
+        try {
+            while (i < delta.length) {
+                int op = delta[i++] & 0xFF;
+                if ((op & 0x80) != 0) {
+                    long copyOffset = 0;
+                    int copyLength = 0;
+                    for (int b = 0; b < 4; b++) {
+                        if ((op & (1 << b)) != 0) {
+                            copyOffset |= (long) (delta[i++] & 0xFF) << (b * 8);
+                        }
+                    }
+                    for (int b = 0; b < 3; b++) {
+                        if ((op & (0x10 << b)) != 0) {
+                            copyLength |= (delta[i++] & 0xFF) << (b * 8);
+                        }
+                    }
+                    if (copyLength == 0) {
+                        copyLength = 0x10000;
+                    }
+                    if (copyOffset + copyLength > base.length || written + copyLength > target.length) {
+                        throw new IOException("Delta inválido: cópia fora dos limites.");
+                    }
+                    System.arraycopy(base, (int) copyOffset, target, written, copyLength);
+                    written += copyLength;
+                } else if (op != 0) {
+                    if (i + op > delta.length || written + op > target.length) {
+                        throw new IOException("Delta inválido: inserção fora dos limites.");
+                    }
+                    System.arraycopy(delta, i, target, written, op);
+                    i += op;
+                    written += op;
+                } else {
+                    throw new IOException("Delta inválido: instrução desconhecida.");
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Delta inválido: instrução truncada.");
+        }
+        if (written != target.length) {
+            throw new IOException("Delta inválido: tamanho do resultado não confere.");
+        }
+        return target;
+    }
+
+    private static int hash(byte[] data, int offset) {
+        int h = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            h = h * PRIME + (data[offset + i] & 0xFF);
+        }
+        return h;
+    }
+
+    private static int matchLength(byte[] base, int baseOffset, byte[] target, int targetOffset) {
+        int max = Math.min(base.length - baseOffset, target.length - targetOffset);
+        int length = Arrays.mismatch(base, baseOffset, baseOffset + max, target, targetOffset, targetOffset + max);
+        return length < 0 ? max : length;
+    }
+
+    private static void writeInsert(ByteArrayOutputStream out, byte[] data, int start, int end) {
+        while (start < end) {
+            int length = Math.min(MAX_INSERT, end - start);
+            out.write(length);
+            out.write(data, start, length);
+            start += length;
+        }
+    }
+
+    private static void writeCopy(ByteArrayOutputStream out, int offset, int length) {
+        while (length > 0) {
+            int size = Math.min(MAX_COPY, length);
+            byte[] instruction = new byte[8];
+            int count = 1;
+            int op = 0x80;
+            for (int b = 0; b < 4; b++) {
+                int value = (offset >>> (b * 8)) & 0xFF;
+                if (value != 0) {
+                    op |= 1 << b;
+                    instruction[count++] = (byte) value;
+                }
+            }
+            for (int b = 0; b < 3; b++) {
+                int value = (size >>> (b * 8)) & 0xFF;
+                if (value != 0) {
+                    op |= 0x10 << b;
+                    instruction[count++] = (byte) value;
+                }
+            }
+            instruction[0] = (byte) op;
+            out.write(instruction, 0, count);
+            offset += size;
+            length -= size;
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while (value >= 0x80) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] data, int[] position) throws IOException {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            if (position[0] >= data.length || shift > 63) {
+                throw new IOException("Delta inválido: tamanho truncado.");
+            }
+            int b = data[position[0]++] & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
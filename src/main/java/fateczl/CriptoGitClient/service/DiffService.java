@@ -0,0 +1,556 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import fateczl.CriptoGitClient.model.Blob;
+import fateczl.CriptoGitClient.model.Index;
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Mostra as diferenças entre dois commits ou entre um commit e o diretório de trabalho, no formato unificado.
+ *
+ * - as trees são comparadas pelas hashes: apenas as subtrees com hash diferente são abertas;
+ * - no diretório de trabalho, os arquivos cujo stat confere com o index (e cuja entrada tem a mesma hash
+ *   do commit) não são lidos;
+ * - os blobs de texto são comparados linha a linha com o MyersDiff e cada hunk é escrito assim que fica completo;
+ * - blobs com byte nulo no início são tratados como binários e apenas informados: só os primeiros
+ *   BINARY_CHECK_SIZE bytes são lidos, mesmo nos arquivos divididos em chunks;
+ * - apenas conteúdos de texto de até MAX_TEXT_SIZE bytes são carregados na memória para o diff de linhas.
+ */
+public class DiffService {
+
+    // Linhas de contexto ao redor de cada alteração
+    private static final int CONTEXT_LINES = 3;
+    // Quantidade de bytes conferidos na detecção de binários (a mesma do git)
+    private static final int BINARY_CHECK_SIZE = 8000;
+    // Maior conteúdo de texto carregado na memória para o diff de linhas; acima dele só se informa que os arquivos diferem
+    private static final int MAX_TEXT_SIZE = 16 * 1024 * 1024;
+
+    private String repositorioPath;
+    private Index index;
+    private Path objectsPath;
+    private int changedFiles;
+    private int insertions;
+    private int deletions;
+
+    public void setRepositorioPath(String repositorioPath) {
+        this.repositorioPath = repositorioPath;
+    }
+
+    public void setIndex(Index index) {
+        this.index = index;
+    }
+
+    /**
+     * Mostra as diferenças entre dois commits ou entre um commit e o diretório de trabalho
+     * @param from Hash do commit de origem ou "HEAD" (vazio para HEAD)
+     * @param to Hash do commit de destino ou "HEAD" (vazio para o diretório de trabalho)
+     * @throws Exception Se houver erro ao ler os objects ou os arquivos
+     */
+    public void diff(String from, String to) throws Exception {
+        if (!Files.exists(Paths.get(repositorioPath, ".criptogit"))) {
+            System.err.println("\nErro: Diretório .criptogit não existe. Execute o comando init para criar um repositório CriptoGit.");
+            return;
+        }
+        objectsPath = Paths.get(repositorioPath, ".criptogit", "objects");
+        changedFiles = 0;
+        insertions = 0;
+        deletions = 0;
+        try {
+            ObjectId fromCommit = resolveCommit(from.isBlank() ? "HEAD" : from);
+            ObjectId fromTree = fromCommit != null ? readRootTree(fromCommit) : null;
+            if (to.isBlank()) {
+                Path repoRoot = Paths.get(repositorioPath);
+                diffTreeWithDirectory("", fromTree, repoRoot, IgnoreRules.load(repoRoot));
+            } else {
+                ObjectId toCommit = resolveCommit(to);
+                diffTrees("", fromTree, toCommit != null ? readRootTree(toCommit) : null);
+            }
+        } catch (IOException e) {
+            throw new Exception("Erro ao calcular o diff: " + e.getMessage());
+        }
+        if (changedFiles == 0) {
+            System.out.println("Nenhuma diferença encontrada.");
+        } else {
+            System.out.printf("%n%d arquivo(s) alterado(s), %d inserção(ões)(+), %d remoção(ões)(-)%n",
+                changedFiles, insertions, deletions);
+        }
+    }
+
+    /**
+     * Compara duas trees, abrindo apenas as subtrees com hash diferente
+     * @param directory Caminho relativo do diretório ("" para a raiz)
+     * @param oldTree Hash da tree de origem ou null se o diretório não existir na origem
+     * @param newTree Hash da tree de destino ou null se o diretório não existir no destino
+     */
+    private void diffTrees(String directory, ObjectId oldTree, ObjectId newTree) throws IOException {
+        if (oldTree != null && oldTree.equals(newTree)) {
+            return;
+        }
+        Map<String, String[]> oldEntries = readTree(oldTree);
+        Map<String, String[]> newEntries = readTree(newTree);
+        TreeSet<String> names = new TreeSet<>(oldEntries.keySet());
+        names.addAll(newEntries.keySet());
+        for (String name : names) {
+            String path = directory + File.separator + name;
+            String[] oldEntry = oldEntries.get(name);
+            String[] newEntry = newEntries.get(name);
+            ObjectId oldBlob = blobOf(oldEntry);
+            ObjectId newBlob = blobOf(newEntry);
+            if (oldBlob != null && newBlob != null) {
+                if (!oldBlob.equals(newBlob)) {
+                    diffContent(path, blobContent(oldBlob), blobContent(newBlob));
+                }
+            } else if (oldBlob != null) {
+                diffContent(path, blobContent(oldBlob), null);
+            } else if (newBlob != null) {
+                diffContent(path, null, blobContent(newBlob));
+            }
+            // Subtrees (inclusive quando um arquivo virou diretório ou o contrário)
+            ObjectId oldSubtree = treeOf(oldEntry);
+            ObjectId newSubtree = treeOf(newEntry);
+            if (oldSubtree != null || newSubtree != null) {
+                diffTrees(path, oldSubtree, newSubtree);
+            }
+        }
+    }
+
+    /**
+     * Compara uma tree com um diretório do diretório de trabalho. Arquivos que não estão na tree
+     * só aparecem se tiverem sido adicionados ao index (arquivos não rastreados não são mostrados)
+     * @param directory Caminho relativo do diretório ("" para a raiz)
+     * @param tree Hash da tree ou null se o diretório não existir no commit
+     * @param currentPath Diretório no disco ou null se ele não existir mais
+     * @param ignoreRules Regras do .criptogitignore válidas no diretório
+     */
+    private void diffTreeWithDirectory(String directory, ObjectId tree, Path currentPath, IgnoreRules ignoreRules) throws IOException {
+        Map<String, String[]> treeEntries = readTree(tree);
+        Map<String, Path> files = new HashMap<>();
+        Map<String, Path> directories = new HashMap<>();
+        if (currentPath != null) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(currentPath)) {
+                for (Path item : stream) {
+                    String name = item.getFileName().toString();
+                    // Ignora diretórios que começam com .
+                    if (name.startsWith(".")) {
+                        continue;
+                    }
+                    boolean isDirectory = Files.isDirectory(item);
+                    if (ignoreRules.isIgnored(directory + File.separator + name, isDirectory)) {
+                        continue;
+                    }
+                    if (isDirectory) {
+                        directories.put(name, item);
+                    } else if (Files.isRegularFile(item)) {
+                        files.put(name, item);
+                    }
+                }
+            }
+        }
+        TreeSet<String> names = new TreeSet<>(treeEntries.keySet());
+        names.addAll(files.keySet());
+        names.addAll(directories.keySet());
+        for (String name : names) {
+            String path = directory + File.separator + name;
+            String[] entry = treeEntries.get(name);
+            ObjectId blob = blobOf(entry);
+            Path file = files.get(name);
+            if (blob != null && file != null) {
+                diffBlobWithFile(path, blob, file);
+            } else if (blob != null) {
+                diffContent(path, blobContent(blob), null);
+            } else if (file != null && index != null && index.findByPath(path) != null) {
+                diffContent(path, null, new Content(file));
+            }
+            ObjectId subtree = treeOf(entry);
+            Path subdirectory = directories.get(name);
+            if (subtree != null || (subdirectory != null && hasIndexEntriesUnder(path))) {
+                IgnoreRules rules = subdirectory != null ? ignoreRules.forDirectory(subdirectory, path) : ignoreRules;
+                diffTreeWithDirectory(path, subtree, subdirectory, rules);
+            }
+        }
+    }
+
+    /**
+     * Compara um blob do commit com o arquivo atual, sem ler o arquivo quando o index garante que ele não mudou
+     */
+    private void diffBlobWithFile(String path, ObjectId blob, Path file) throws IOException {
+        Blob entry = index != null ? index.findByPath(path) : null;
+        if (entry != null && entry.getHash().equals(blob) && index.isUpToDate(entry, FileService.readFileStat(file))) {
+            return;
+        }
+        Content old = blobContent(blob);
+        Content current = new Content(file);
+        if (!sameContent(old, blob, current)) {
+            diffContent(path, old, current);
+        }
+    }
+
+    /**
+     * Confere se o arquivo tem o mesmo conteúdo do blob, lendo os dois em blocos
+     */
+    private boolean sameContent(Content old, ObjectId blob, Content current) throws IOException {
+        // Tamanhos diferentes (conhecidos sem ler o conteúdo) já bastam
+        if (old.size >= 0 && old.size != current.size) {
+            return false;
+        }
+        if (old.chunks != null) {
+            // Arquivo grande: compara as listas de chunks em vez do conteúdo
+            return new ChunkService().hashChunkedFile(current.file, newDigest()).equals(blob);
+        }
+        try (InputStream a = old.open(); InputStream b = current.open()) {
+            byte[] bufferA = new byte[64 * 1024];
+            byte[] bufferB = new byte[bufferA.length];
+            while (true) {
+                int readA = a.readNBytes(bufferA, 0, bufferA.length);
+                int readB = b.readNBytes(bufferB, 0, bufferB.length);
+                if (readA != readB || !Arrays.equals(bufferA, 0, readA, bufferB, 0, readB)) {
+                    return false;
+                }
+                if (readA < bufferA.length) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private boolean hasIndexEntriesUnder(String directory) {
+        if (index == null) {
+            return false;
+        }
+        String prefix = directory + File.separator;
+        String path = index.ceilingPath(prefix);
+        return path != null && path.startsWith(prefix);
+    }
+
+    /**
+     * Escreve o diff de um arquivo
+     * @param path Caminho relativo
+     * @param oldContent Conteúdo de origem ou null se o arquivo não existir na origem
+     * @param newContent Conteúdo de destino ou null se o arquivo não existir no destino
+     */
+    private void diffContent(String path, Content oldSide, Content newSide) throws IOException {
+        String name = path.substring(1).replace(File.separatorChar, '/');
+        StringBuilder header = new StringBuilder();
+        header.append("diff --criptogit a/").append(name).append(" b/").append(name).append('\n');
+        if (oldSide == null) {
+            header.append("arquivo novo\n");
+        } else if (newSide == null) {
+            header.append("arquivo removido\n");
+        }
+        changedFiles++;
+        // Decide pelo início de cada lado, antes de carregar qualquer conteúdo
+        if (isBinary(oldSide) || isBinary(newSide)) {
+            header.append("Arquivos binários a/").append(name).append(" e b/").append(name).append(" diferem\n");
+            System.out.print(header);
+            return;
+        }
+        byte[] oldContent = readText(oldSide);
+        byte[] newContent = readText(newSide);
+        if ((oldSide != null && oldContent == null) || (newSide != null && newContent == null)) {
+            header.append("Arquivos a/").append(name).append(" e b/").append(name)
+                .append(" diferem (maiores que ").append(MAX_TEXT_SIZE / (1024 * 1024)).append(" MB, sem diff de linhas)\n");
+            System.out.print(header);
+            return;
+        }
+        header.append("--- ").append(oldContent != null ? "a/" + name : "/dev/null").append('\n');
+        header.append("+++ ").append(newContent != null ? "b/" + name : "/dev/null").append('\n');
+        System.out.print(header);
+
+        List<String> oldLines = splitLines(oldContent);
+        List<String> newLines = splitLines(newContent);
+        // Cada linha distinta recebe um número: o MyersDiff compara apenas inteiros
+        Map<String, Integer> ids = new HashMap<>();
+        HunkWriter writer = new HunkWriter(oldLines, newLines);
+        MyersDiff.diff(toIds(oldLines, ids), toIds(newLines, ids), writer);
+        writer.flush();
+    }
+
+    /**
+     * Junta as edições próximas em hunks e escreve cada hunk assim que a próxima edição fica longe dele
+     */
+    private class HunkWriter implements MyersDiff.EditListener {
+        private final List<String> oldLines;
+        private final List<String> newLines;
+        // Edições do hunk atual: beginA, endA, beginB, endB
+        private final List<int[]> edits = new ArrayList<>();
+
+        HunkWriter(List<String> oldLines, List<String> newLines) {
+            this.oldLines = oldLines;
+            this.newLines = newLines;
+        }
+
+        @Override
+        public void edit(int beginA, int endA, int beginB, int endB) {
+            if (!edits.isEmpty() && beginA - edits.get(edits.size() - 1)[1] > 2 * CONTEXT_LINES) {
+                flush();
+            }
+            edits.add(new int[] { beginA, endA, beginB, endB });
+        }
+
+        void flush() {
+            if (edits.isEmpty()) {
+                return;
+            }
+            int[] first = edits.get(0);
+            int[] last = edits.get(edits.size() - 1);
+            int startA = Math.max(0, first[0] - CONTEXT_LINES);
+            int endA = Math.min(oldLines.size(), last[1] + CONTEXT_LINES);
+            int startB = first[2] - (first[0] - startA);
+            int endB = last[3] + (endA - last[1]);
+
+            StringBuilder hunk = new StringBuilder();
+            hunk.append("@@ -").append(range(startA, endA - startA))
+                .append(" +").append(range(startB, endB - startB)).append(" @@\n");
+            int line = startA;
+            for (int[] edit : edits) {
+                appendLines(hunk, ' ', oldLines, line, edit[0]);
+                appendLines(hunk, '-', oldLines, edit[0], edit[1]);
+                appendLines(hunk, '+', newLines, edit[2], edit[3]);
+                deletions += edit[1] - edit[0];
+                insertions += edit[3] - edit[2];
+                line = edit[1];
+            }
+            appendLines(hunk, ' ', oldLines, line, endA);
+            System.out.print(hunk);
+            edits.clear();
+        }
+
+        private String range(int start, int count) {
+            return count == 0 ? start + ",0" : (start + 1) + "," + count;
+        }
+
+        private void appendLines(StringBuilder hunk, char prefix, List<String> lines, int from, int to) {
+            for (int i = from; i < to; i++) {
+                String line = lines.get(i);
+                hunk.append(prefix).append(line);
+                if (!line.endsWith("\n")) {
+                    hunk.append("\n\\ Sem quebra de linha no final do arquivo\n");
+                }
+            }
+        }
+    }
+
+    /**
+     * Divide o conteúdo em linhas, mantendo o \n de cada uma (a última linha pode não ter)
+     */
+    private static List<String> splitLines(byte[] content) {
+        List<String> lines = new ArrayList<>();
+        if (content == null) {
+            return lines;
+        }
+        String text = new String(content, StandardCharsets.UTF_8);
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            end = end < 0 ? text.length() : end + 1;
+            lines.add(text.substring(start, end));
+            start = end;
+        }
+        return lines;
+    }
+
+    private static int[] toIds(List<String> lines, Map<String, Integer> ids) {
+        int[] result = new int[lines.size()];
+        for (int i = 0; i < result.length; i++) {
+            Integer id = ids.get(lines.get(i));
+            if (id == null) {
+                id = ids.size();
+                ids.put(lines.get(i), id);
+            }
+            result[i] = id;
+        }
+        return result;
+    }
+
+    /**
+     * Considera binário o conteúdo com um byte nulo nos primeiros BINARY_CHECK_SIZE bytes, como o git
+     */
+    static boolean isBinary(byte[] content) {
+        if (content == null) {
+            return false;
+        }
+        int limit = Math.min(content.length, BINARY_CHECK_SIZE);
+        for (int i = 0; i < limit; i++) {
+            if (content[i] == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Confere pelos primeiros BINARY_CHECK_SIZE bytes se um lado do diff é binário
+     * @param content Lado do diff ou null se o arquivo não existir nele
+     */
+    private boolean isBinary(Content content) throws IOException {
+        if (content == null) {
+            return false;
+        }
+        try (InputStream in = content.open()) {
+            return isBinary(in.readNBytes(BINARY_CHECK_SIZE));
+        }
+    }
+
+    /**
+     * Carrega um lado do diff de texto
+     * @param content Lado do diff ou null se o arquivo não existir nele
+     * @return Conteúdo ou null se o lado não existir ou for maior que MAX_TEXT_SIZE
+     */
+    private byte[] readText(Content content) throws IOException {
+        if (content == null || content.size > MAX_TEXT_SIZE) {
+            return null;
+        }
+        try (InputStream in = content.open()) {
+            byte[] data = in.readNBytes(MAX_TEXT_SIZE + 1);
+            return data.length > MAX_TEXT_SIZE ? null : data;
+        }
+    }
+
+    /**
+     * Abre um blob do commit para o diff. Se o blob for uma lista de chunks, lê apenas a lista
+     */
+    private Content blobContent(ObjectId blob) throws IOException {
+        InputStream in = ObjectStoreService.openObject(objectsPath, blob);
+        if (in == null) {
+            throw new IOException("Blob não encontrado: " + blob);
+        }
+        try (in) {
+            byte[] prefix = in.readNBytes(ChunkService.MAGIC.length);
+            if (!ChunkService.isChunkList(prefix)) {
+                return new Content(blob, null, -1);
+            }
+            byte[] rest = in.readAllBytes();
+            byte[] list = Arrays.copyOf(prefix, prefix.length + rest.length);
+            System.arraycopy(rest, 0, list, prefix.length, rest.length);
+            return new Content(blob, ChunkService.parseChunkList(list), ChunkService.parseChunkListSize(list));
+        }
+    }
+
+    /**
+     * Um lado do diff: um blob do commit (solto, empacotado ou dividido em chunks) ou um arquivo do diretório
+     * de trabalho. O conteúdo é aberto como stream a cada leitura, em vez de ficar inteiro na memória
+     */
+    private final class Content {
+        private final ObjectId blob;
+        // Chunks do blob, se ele for uma lista de chunks
+        private final List<ObjectId> chunks;
+        private final Path file;
+        // Tamanho do conteúdo ou -1 se ele só for conhecido lendo o object
+        private final long size;
+
+        Content(ObjectId blob, List<ObjectId> chunks, long size) {
+            this.blob = blob;
+            this.chunks = chunks;
+            this.file = null;
+            this.size = size;
+        }
+
+        Content(Path file) throws IOException {
+            this.blob = null;
+            this.chunks = null;
+            this.file = file;
+            this.size = Files.size(file);
+        }
+
+        InputStream open() throws IOException {
+            if (file != null) {
+                return Files.newInputStream(file);
+            }
+            if (chunks != null) {
+                return ChunkService.openChunks(objectsPath, chunks);
+            }
+            InputStream in = ObjectStoreService.openObject(objectsPath, blob);
+            if (in == null) {
+                throw new IOException("Blob não encontrado: " + blob);
+            }
+            return in;
+        }
+    }
+
+    private static ObjectId blobOf(String[] entry) {
+        return entry != null && entry[0].equals("blob") ? ObjectId.fromHex(entry[1]) : null;
+    }
+
+    private static ObjectId treeOf(String[] entry) {
+        return entry != null && entry[0].equals("tree") ? ObjectId.fromHex(entry[1]) : null;
+    }
+
+    /**
+     * Converte "HEAD" ou uma hash completa na hash do commit
+     * @return Hash do commit ou null se o HEAD ainda não existir
+     */
+    private ObjectId resolveCommit(String reference) throws IOException {
+        String value = reference.trim();
+        if (value.equalsIgnoreCase("HEAD")) {
+            Path headPath = Paths.get(repositorioPath, ".criptogit", "HEAD");
+            if (!Files.exists(headPath)) {
+                return null;
+            }
+            String head = Files.readString(headPath).trim();
+            return head.isEmpty() ? null : ObjectId.fromHex(head);
+        }
+        if (!ObjectId.isValid(value)) {
+            throw new IOException("Hash de commit inválida: " + value);
+        }
+        return ObjectId.fromHex(value);
+    }
+
+    private ObjectId readRootTree(ObjectId commitHash) throws IOException {
+        byte[] commitData = ObjectStoreService.readObject(objectsPath, commitHash);
+        if (commitData == null) {
+            throw new IOException("Commit não encontrado: " + commitHash);
+        }
+        String commitContent = new String(commitData);
+        if (!commitContent.startsWith("tree ")) {
+            throw new IOException("Formato de commit inválido: " + commitHash);
+        }
+        return ObjectId.fromHex(commitContent, 5);
+    }
+
+    /**
+     * Lê as linhas de uma tree
+     * @return Tipo e hash de cada entrada, indexados pelo nome (vazio se treeHash for null)
+     */
+    private Map<String, String[]> readTree(ObjectId treeHash) throws IOException {
+        Map<String, String[]> entries = new TreeMap<>();
+        if (treeHash == null) {
+            return entries;
+        }
+        byte[] treeData = ObjectStoreService.readObject(objectsPath, treeHash);
+        if (treeData == null) {
+            throw new IOException("Tree não encontrada: " + treeHash);
+        }
+        for (String line : new String(treeData).split("\n")) {
+            String[] parts = TreeService.splitTreeLine(line);
+            if (parts != null) {
+                entries.put(parts[1], new String[] { parts[0], parts[2] });
+            }
+        }
+        return entries;
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 indisponível: " + e.getMessage());
+        }
+    }
+}
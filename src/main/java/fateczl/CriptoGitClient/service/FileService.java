@@ -1,26 +1,90 @@
 package fateczl.CriptoGitClient.service;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import fateczl.CriptoGitClient.model.Arquivo;
 import fateczl.CriptoGitClient.model.Blob;
+import fateczl.CriptoGitClient.model.FileStat;
 import fateczl.CriptoGitClient.model.Index;
+import fateczl.CriptoGitClient.model.ObjectId;
 
 public class FileService {
 
+    // Tamanho do buffer direto reutilizado na leitura dos arquivos
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // A partir deste tamanho o arquivo é lido em regiões mapeadas em memória
+    private static final long MAPPED_THRESHOLD = 64L * 1024 * 1024;
+    // Tamanho de cada região mapeada
+    private static final long MAPPED_REGION_SIZE = 64L * 1024 * 1024;
+    // Indica se o sistema de arquivos oferece os atributos "unix" (ctime e inode)
+    private static volatile boolean unixAttributes = true;
+
     private String repositorioPath;
     private Index index;
     private TreeService treeService;
+    private ByteBuffer buffer;
+    // Array de cópia usado apenas com a compactação ativa
+    private byte[] chunk;
+    private int jobs = 1;
+    // Tamanho a partir do qual o arquivo é dividido em chunks (0 desativa)
+    private long chunkThreshold;
+    private ChunkService chunkService;
+    // Caminhos relativos encontrados pelo percurso completo do 'add .', compartilhados entre as threads
+    private Set<String> seenPaths;
 
     public void setRepositorioPath(String repositorioPath) {
         this.repositorioPath = repositorioPath;
     }
 
+    /**
+     * Define a quantidade de threads usadas pelo 'add .'
+     * @param jobs Quantidade de threads (1 processa sequencialmente)
+     */
+    public void setJobs(int jobs) {
+        this.jobs = Math.max(1, jobs);
+    }
+
+    /**
+     * Define o tamanho a partir do qual os arquivos são gravados como chunks
+     * @param chunkThreshold Tamanho em bytes (0 grava todos os arquivos como um único blob)
+     */
+    public void setChunkThreshold(long chunkThreshold) {
+        this.chunkThreshold = Math.max(0, chunkThreshold);
+    }
+
+    public long getChunkThreshold() {
+        return chunkThreshold;
+    }
+
+    public void setSeenPaths(Set<String> seenPaths) {
+        this.seenPaths = seenPaths;
+    }
+
+    public Set<String> getSeenPaths() {
+        return seenPaths;
+    }
+
     public void setIndex(Index index) {
         this.index = index;
     }
@@ -33,9 +97,23 @@ public class FileService {
     public void add (String filename) throws Exception {
         // Se o usuário fizer 'add .', cria o objeto de todos os arquivos e diretórios do repositório
         if (filename.equals(".")) {
+            // Com o monitor ativo (--watch), processa apenas os caminhos alterados desde o último add
+            ChangeTracker tracker = ChangeTracker.get(repositorioPath);
             try {
-                generateObjects(repositorioPath);
+                Set<String> dirtyPaths = tracker != null ? tracker.drainDirtyPaths() : null;
+                if (dirtyPaths != null) {
+                    addChangedFiles(dirtyPaths);
+                } else {
+                    if (tracker != null) {
+                        tracker.beginFullScan();
+                    }
+                    generateObjects(repositorioPath);
+                }
             } catch (Exception e) {
+                // Os caminhos alterados já foram retirados do monitor: o próximo add percorre o repositório inteiro
+                if (tracker != null) {
+                    tracker.requireFullScan();
+                }
                 throw new Exception("Erro ao criar os objects: " + e.getMessage());
             }
         } else {
@@ -46,6 +124,10 @@ public class FileService {
                 throw new Exception("Erro ao criar o object: " + e.getMessage());
             }
         }
+        // Torna duráveis os objects do add antes que o index passe a referenciá-los
+        ObjectWriter.forObjects(Paths.get(repositorioPath, ".criptogit", "objects")).sync();
+        // Grava as entradas pendentes no index uma única vez ao final do add
+        new IndexService().flush(index, repositorioPath);
     }
 
     /**
@@ -62,14 +144,24 @@ public class FileService {
         if (filename.startsWith("\"") && filename.endsWith("\"")) {
             filename = filename.substring(1, filename.length() - 1);
         }
-        // Procura o arquivo em toda a estrutura de diretórios
-        Path filePath = filename.contains(repositorioPath) ? Paths.get(filename) : findFileInRepository(filename);
+        // Procura o arquivo pelo nome, primeiro no index e depois na estrutura de diretórios
+        List<Path> matches = filename.contains(repositorioPath) ? List.of(Paths.get(filename)) : findFileInRepository(filename);
         
         // Se o arquivo não for encontrado, lança uma exceção
-        if (filePath == null) {
+        if (matches.isEmpty()) {
             System.out.println(" X Arquivo não encontrado: " + filename);
             return;
         }
+
+        // Se houver mais de um arquivo com o nome, não escolhe nenhum deles
+        if (matches.size() > 1) {
+            System.out.println(" X Existe mais de um arquivo com o nome " + filename + ". Informe o caminho completo de um deles:");
+            for (Path match : matches) {
+                System.out.println("   " + match);
+            }
+            return;
+        }
+        Path filePath = matches.get(0);
         
         // Se o caminho especificado não for um arquivo, lança uma exceção
         if (!Files.isRegularFile(filePath)) {
@@ -103,60 +195,185 @@ public class FileService {
             Files.createDirectory(objectsPath);
         }
         
+        long start = System.nanoTime();
+        seenPaths = ConcurrentHashMap.newKeySet();
+        treeService = new TreeService();
+        treeService.setIndex(index);
+        treeService.setFileService(this);
+        treeService.setRepositorioPath(repositorioPath);
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-1");
-            // Inicia o processamento recursivo
-            treeService = new TreeService();
-            treeService.setIndex(index);
-            treeService.processDirectoryRecursively(Paths.get(path), objectsPath, md);
+            if (jobs > 1) {
+                // Processa os diretórios em paralelo
+                treeService.processDirectoryInParallel(Paths.get(path), objectsPath, jobs);
+            } else {
+                MessageDigest md = MessageDigest.getInstance("SHA-1");
+                // Inicia o processamento recursivo
+                treeService.processDirectoryRecursively(Paths.get(path), objectsPath, md);
+            }
         } catch (IOException | NoSuchAlgorithmException e) {            
             throw new Exception("Erro ao processar arquivos: " + e.getMessage());
         }
+        removeMissingEntries();
+        seenPaths = null;
         System.out.println("Objects criados com sucesso.");
+        printThroughput(treeService.getProcessedFiles(), treeService.getProcessedBytes(), System.nanoTime() - start);
+    }
+
+    /**
+     * Remove do index as entradas que o percurso completo não encontrou e que não existem mais,
+     * para que o próximo commit registre a remoção dos arquivos
+     */
+    private void removeMissingEntries() {
+        int removed = 0;
+        for (Blob blob : index.getBlobs()) {
+            if (!seenPaths.contains(blob.getRelativePath()) && !Files.isRegularFile(Paths.get(repositorioPath + blob.getRelativePath()))) {
+                index.removeBlob(blob);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            System.out.println(removed + " arquivo(s) removido(s) do index.");
+        }
+    }
+
+    /**
+     * Gera os objects apenas dos arquivos alterados informados pelo ChangeTracker.
+     * Os caminhos ignorados (pastas com "." e o .criptogitignore) são desconsiderados e os removidos
+     * saem do index, como no percurso completo
+     * @param dirtyPaths Caminhos relativos alterados desde o último add
+     * @throws Exception Se houver erro ao gerar os objects
+     */
+    private void addChangedFiles(Set<String> dirtyPaths) throws Exception {
+        Path repoRoot = Paths.get(repositorioPath);
+        Path objectsPath = Paths.get(repositorioPath, ".criptogit", "objects");
+        if (!Files.exists(objectsPath)) {
+            Files.createDirectory(objectsPath);
+        }
+        long start = System.nanoTime();
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        IgnoreRules rootRules = IgnoreRules.load(repoRoot);
+        long files = 0;
+        long bytes = 0;
+        for (String relativePath : dirtyPaths) {
+            Path file = Paths.get(repositorioPath + relativePath);
+            if (!Files.exists(file)) {
+                removeEntries(relativePath);
+                continue;
+            }
+            if (!Files.isRegularFile(file) || rootRules.isIgnoredFile(repoRoot, file)) {
+                continue;
+            }
+            FileStat stat = readFileStat(file);
+            processFile(file, stat, objectsPath, md);
+            files++;
+            bytes += stat.getSize();
+        }
+        System.out.println("Add incremental: " + files + " arquivo(s) alterado(s) desde o último add.");
+        printThroughput(files, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Remove do index a entrada de um arquivo removido ou, se o caminho era um diretório, todas as entradas dentro dele
+     */
+    private void removeEntries(String relativePath) {
+        Blob blob = index.findByPath(relativePath);
+        if (blob != null) {
+            index.removeBlob(blob);
+            return;
+        }
+        String prefix = relativePath + File.separator;
+        for (String path = index.ceilingPath(prefix); path != null && path.startsWith(prefix); path = index.higherPath(path)) {
+            index.removeBlob(index.findByPath(path));
+        }
     }
 
     /**
-     * Procura um arquivo no repositório
+     * Exibe a vazão do add em arquivos por segundo e MB por segundo
+     * @param files Quantidade de arquivos processados
+     * @param bytes Quantidade de bytes processados
+     * @param elapsedNanos Tempo decorrido em nanossegundos
+     */
+    private void printThroughput(long files, long bytes, long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+        double megabytes = bytes / (1024.0 * 1024.0);
+        System.out.printf("%d arquivos (%.1f MB) em %.2f s com %d thread(s): %.0f arquivos/s, %.1f MB/s%n",
+            files, megabytes, seconds, jobs, files / seconds, megabytes / seconds);
+    }
+
+    /**
+     * Procura todos os arquivos do repositório com um nome.
+     * Os arquivos que já estão no index são encontrados pelo mapa de nomes do index, sem percorrer o repositório;
+     * com o monitor ativo (--watch), os arquivos novos vêm dos caminhos alterados. Sem o monitor, um arquivo novo
+     * com o mesmo nome de um arquivo do index só é visto percorrendo o repositório: por isso o repositório é
+     * percorrido sempre que não houver outra forma de saber se o nome é ambíguo (nenhuma ou uma única
+     * correspondência sem o monitor)
      * @param filename Nome do arquivo
-     * @return Caminho do arquivo
+     * @return Caminhos dos arquivos encontrados (vazia se nenhum for encontrado)
      * @throws IOException Se houver erro ao procurar o arquivo
      */
-    private Path findFileInRepository(String filename) throws IOException {
-        Path repoRoot = Paths.get(repositorioPath);
-        return findFileRecursively(repoRoot, filename);
+    private List<Path> findFileInRepository(String filename) throws IOException {
+        Set<String> candidates = new LinkedHashSet<>(index.findPathsByName(filename));
+        ChangeTracker tracker = ChangeTracker.get(repositorioPath);
+        Set<String> dirtyPaths = tracker != null ? tracker.peekDirtyPaths() : null;
+        if (dirtyPaths != null) {
+            for (String relativePath : dirtyPaths) {
+                if (Paths.get(relativePath).getFileName().toString().equals(filename)) {
+                    candidates.add(relativePath);
+                }
+            }
+        }
+        List<Path> matches = new ArrayList<>();
+        for (String relativePath : candidates) {
+            Path file = Paths.get(repositorioPath + relativePath);
+            if (Files.isRegularFile(file)) {
+                matches.add(file);
+            }
+        }
+        // Com duas ou mais correspondências o nome já é ambíguo; com o monitor ativo as candidatas estão completas
+        if (matches.isEmpty() || (matches.size() == 1 && dirtyPaths == null)) {
+            // Arquivo novo (ou possível homônimo não rastreado): percorre o repositório
+            Path repoRoot = Paths.get(repositorioPath);
+            List<Path> found = new ArrayList<>();
+            findFileRecursively(repoRoot, filename, IgnoreRules.load(repoRoot), found);
+            for (Path file : found) {
+                if (!matches.contains(file)) {
+                    matches.add(file);
+                }
+            }
+        }
+        return matches;
     }
     
     /**
      * Procura um arquivo no repositório recursivamente
      * @param currentPath Caminho do diretório atual
      * @param filename Nome do arquivo
-     * @return Caminho do arquivo
+     * @param ignoreRules Regras do .criptogitignore válidas no diretório atual
+     * @param matches Lista onde os arquivos encontrados são adicionados
      * @throws IOException Se houver erro ao procurar o arquivo
      */
-    private Path findFileRecursively(Path currentPath, String filename) throws IOException {
+    private void findFileRecursively(Path currentPath, String filename, IgnoreRules ignoreRules, List<Path> matches) throws IOException {
         // Lista todos os itens do diretório atual
         try (var stream = Files.list(currentPath)) {
             for (Path item : stream.collect(java.util.stream.Collectors.toList())) {
-                // Ignora o diretório .criptogit
-                if (item.toString().contains(".criptogit")) {
+                // Ignora o diretório .criptogit e os itens do .criptogitignore
+                String relativePath = item.toString().replace(repositorioPath, "");
+                boolean directory = Files.isDirectory(item);
+                if (ignoreRules.isIgnored(relativePath, directory)) {
                     continue;
                 }
                 
-                if (Files.isDirectory(item)) {
+                if (directory) {
                     // Se é um diretório, busca recursivamente
-                    Path found = findFileRecursively(item, filename);
-                    if (found != null) {
-                        return found;
-                    }
+                    findFileRecursively(item, filename, ignoreRules.forDirectory(item, relativePath), matches);
                 } else if (Files.isRegularFile(item)) {
                     // Se é um arquivo, verifica se o nome corresponde
                     if (item.getFileName().toString().equals(filename)) {
-                        return item;
+                        matches.add(item);
                     }
                 }
             }
         }
-        return null; // Arquivo não encontrado neste diretório
     }
 
     /**
@@ -168,43 +385,205 @@ public class FileService {
      * @throws IOException Se houver erro ao processar o arquivo
      */
     public Arquivo processFile(Path file, Path objectsPath, MessageDigest md) throws IOException {
-        String name = file.getFileName().toString();
+        return processFile(file, readFileStat(file), objectsPath, md);
+    }
 
-        // Pega o conteúdo do arquivo e cria um objeto Blob
-        Blob blob = new Blob();
-        blob.setContent(Files.readAllBytes(file));
+    /**
+     * Processa um arquivo cujo stat já foi lido e cria o objeto Blob.
+     * Se o stat for igual ao guardado no index, reaproveita a hash do index sem ler o arquivo
+     * @param file Caminho do arquivo
+     * @param stat Stat do arquivo
+     * @param objectsPath Caminho do diretório objects
+     * @param md MessageDigest
+     * @return Arquivo
+     * @throws IOException Se houver erro ao processar o arquivo
+     */
+    public Arquivo processFile(Path file, FileStat stat, Path objectsPath, MessageDigest md) throws IOException {
+        String name = file.getFileName().toString();
+        Arquivo arquivo = new Arquivo();
+        arquivo.setName(name);
 
-        // Faz a hash SHA-1 do conteúdo do arquivo                
-        byte[] sha1bytes = md.digest(blob.getContent());
-        StringBuilder sb = new StringBuilder();
-        for (byte b : sha1bytes) {
-            sb.append(String.format("%02x", b));
+        // Confere se o arquivo está no index com o mesmo stat
+        String relativePath = file.toString().replace(repositorioPath, "");
+        if (seenPaths != null) {
+            seenPaths.add(relativePath);
+        }
+        Blob cached = this.index.findByPath(relativePath);
+        if (cached != null && this.index.isUpToDate(cached, stat)) {
+            arquivo.setBlob(cached);
+            return arquivo;
         }
-        blob.setHash(sb.toString());
-
-        // Pega os 2 primeiros caracteres da hash para o diretório e os 38 restantes para o arquivo
-        String hash = blob.getHash();
-        String dirName = hash.substring(0, 2);        // 2 primeiros caracteres
-        String fileName = hash.substring(2);         // 38 caracteres restantes
 
-        // Confere se a pasta existe
-        // Se não existir, cria a pasta
-        Path objectDir = Paths.get(objectsPath.toString(), dirName);   
-        treeService = new TreeService();
-        treeService.setIndex(index);
-        treeService.createDirectory(objectDir);
-        // Confere se o blob existe
-        // Se não existir, cria o blob
-        Path objectFile = Paths.get(objectDir.toString(), fileName);
-        createFile(objectFile, blob);
+        // Cria o objeto Blob sem guardar o conteúdo em memória:
+        // a hash e o object são gerados lendo o arquivo em blocos
+        Blob blob = new Blob();
+        blob.setStat(stat);
+        if (chunkThreshold > 0 && stat.getSize() >= chunkThreshold) {
+            // Arquivos grandes viram uma lista de chunks, que compartilham os trechos iguais entre versões
+            if (chunkService == null) {
+                chunkService = new ChunkService();
+            }
+            blob.setHash(chunkService.storeChunkedFile(file, objectsPath, md));
+        } else {
+            blob.setHash(storeFileObject(file, objectsPath, md));
+        }
 
-        Arquivo arquivo = new Arquivo();
-        arquivo.setName(name);
         arquivo.setBlob(blob);
         this.index.addBlob(arquivo.getBlob(), repositorioPath, file.toString());
         return arquivo;
     }
 
+    /**
+     * Lê o stat de um arquivo com uma única consulta ao sistema de arquivos.
+     * Usa os atributos "unix" (ctime e inode) quando disponíveis e os atributos básicos nos demais sistemas
+     * @param file Caminho do arquivo
+     * @return Stat do arquivo
+     * @throws IOException Se houver erro ao ler os atributos
+     */
+    public static FileStat readFileStat(Path file) throws IOException {
+        FileStat stat = new FileStat();
+        if (unixAttributes) {
+            try {
+                Map<String, Object> attributes = Files.readAttributes(file, "unix:size,lastModifiedTime,ctime,ino,isDirectory,isRegularFile");
+                stat.setSize((Long) attributes.get("size"));
+                stat.setMtime(((FileTime) attributes.get("lastModifiedTime")).to(TimeUnit.NANOSECONDS));
+                stat.setCtime(((FileTime) attributes.get("ctime")).to(TimeUnit.NANOSECONDS));
+                stat.setFileKey((Long) attributes.get("ino"));
+                stat.setDirectory((Boolean) attributes.get("isDirectory"));
+                stat.setRegularFile((Boolean) attributes.get("isRegularFile"));
+                return stat;
+            } catch (UnsupportedOperationException | IllegalArgumentException e) {
+                unixAttributes = false;
+            }
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        stat.setSize(attributes.size());
+        stat.setMtime(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+        stat.setCtime(attributes.creationTime().to(TimeUnit.NANOSECONDS));
+        stat.setFileKey(attributes.fileKey() == null ? 0 : attributes.fileKey().hashCode());
+        stat.setDirectory(attributes.isDirectory());
+        stat.setRegularFile(attributes.isRegularFile());
+        return stat;
+    }
+
+    /**
+     * Lê o arquivo em blocos, calculando a hash SHA-1 e gravando o object na mesma passada.
+     * O conteúdo é copiado para um arquivo temporário no diretório objects, que é entregue ao ObjectWriter
+     * quando a hash é conhecida e renomeado para o caminho definitivo no sync do add.
+     * Arquivos grandes são lidos em regiões mapeadas em memória, os demais por um buffer direto reutilizado,
+     * de forma que o uso de heap não depende do tamanho do arquivo.
+     * @param file Caminho do arquivo
+     * @param objectsPath Caminho do diretório objects
+     * @param md MessageDigest
+     * @return Hash SHA-1 do conteúdo do arquivo
+     * @throws IOException Se houver erro ao ler o arquivo ou gravar o object
+     */
+    private ObjectId storeFileObject(Path file, Path objectsPath, MessageDigest md) throws IOException {
+        md.reset();
+        Path tempFile = Files.createTempFile(objectsPath, "tmp_", null);
+        try {
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                // Com a compactação ativa, o conteúdo passa pelo deflate em blocos antes de chegar ao arquivo temporário
+                OutputStream compressed = ObjectStoreService.isCompression()
+                    ? ObjectStoreService.openObjectOutput(Channels.newOutputStream(out)) : null;
+                long size = in.size();
+                if (size >= MAPPED_THRESHOLD) {
+                    // Arquivos grandes: percorre o arquivo em regiões mapeadas
+                    long position = 0;
+                    while (position < size) {
+                        long length = Math.min(MAPPED_REGION_SIZE, size - position);
+                        MappedByteBuffer region = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+                        md.update(region);
+                        region.rewind();
+                        writeObjectContent(region, out, compressed);
+                        position += length;
+                    }
+                } else {
+                    // Demais arquivos: lê em blocos pelo buffer direto
+                    ByteBuffer buffer = getBuffer();
+                    buffer.clear();
+                    while (in.read(buffer) != -1) {
+                        buffer.flip();
+                        md.update(buffer);
+                        buffer.rewind();
+                        writeObjectContent(buffer, out, compressed);
+                        buffer.clear();
+                    }
+                }
+                if (compressed != null) {
+                    compressed.close();
+                }
+            }
+
+            ObjectId hash = ObjectId.fromBytes(md.digest());
+
+            // Pega os 2 primeiros caracteres da hash para o diretório e os 38 restantes para o arquivo
+            String dirName = hash.getDirName();        // 2 primeiros caracteres
+            String fileName = hash.getFileName();     // 38 caracteres restantes
+
+            // Confere se a pasta existe
+            // Se não existir, cria a pasta
+            Path objectDir = Paths.get(objectsPath.toString(), dirName);
+            TreeService objectTreeService = new TreeService();
+            objectTreeService.setIndex(index);
+            objectTreeService.createDirectory(objectDir);
+            // Confere se o blob existe
+            // Se não existir, move o arquivo temporário para o caminho do blob
+            Path objectFile = Paths.get(objectDir.toString(), fileName);
+            ObjectExistenceFilter objectFilter = ObjectExistenceFilter.forObjects(objectsPath);
+            if (!objectFilter.exists(objectFile) && ObjectWriter.forObjects(objectsPath).submit(tempFile, objectFile)) {
+                // O temporário agora pertence ao ObjectWriter
+                tempFile = null;
+                objectFilter.add(objectFile);
+            }
+            return hash;
+        } finally {
+            if (tempFile != null) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    /**
+     * Escreve um bloco do conteúdo no object temporário, compactado ou não
+     * @param content Bloco do conteúdo
+     * @param out Canal do arquivo temporário
+     * @param compressed Stream de compactação ou null se a compactação estiver desativada
+     * @throws IOException Se houver erro ao gravar
+     */
+    private void writeObjectContent(ByteBuffer content, FileChannel out, OutputStream compressed) throws IOException {
+        if (compressed == null) {
+            while (content.hasRemaining()) {
+                out.write(content);
+            }
+        } else {
+            ObjectStoreService.write(content, compressed, getChunk());
+        }
+    }
+
+    /**
+     * Retorna o array usado para passar o conteúdo ao deflate, alocando-o no primeiro uso
+     * @return Array de cópia
+     */
+    private byte[] getChunk() {
+        if (chunk == null) {
+            chunk = new byte[BUFFER_SIZE];
+        }
+        return chunk;
+    }
+
+    /**
+     * Retorna o buffer direto de leitura, alocando-o no primeiro uso
+     * @return Buffer direto
+     */
+    private ByteBuffer getBuffer() {
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        }
+        return buffer;
+    }
+
     /**
      * Cria um arquivo no diretório objects
      * @param objectFile
@@ -214,8 +593,11 @@ public class FileService {
     public void createFile(Path objectFile, Blob blob) throws IOException {
         // Confere se o blob do arquivo existe
         // Se não existir, cria o blob
-        if (!Files.exists(objectFile)) {
-            Files.write(objectFile, blob.getContent());
+        ObjectExistenceFilter objectFilter = ObjectExistenceFilter.forObjects(objectFile.getParent().getParent());
+        if (!objectFilter.exists(objectFile)) {
+            // Gravado em segundo plano pelo ObjectWriter e tornado durável no sync do commit
+            ObjectWriter.forObjects(objectFile.getParent().getParent()).write(objectFile, blob.getContent());
+            objectFilter.add(objectFile);
         }
     }
 }
@@ -0,0 +1,278 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Regras dos arquivos .criptogitignore, avaliadas diretório a diretório durante os percursos do repositório.
+ *
+ * Cada diretório pode ter o seu .criptogitignore, com padrões relativos a ele (no formato do .gitignore):
+ * - linhas vazias e iniciadas com # são ignoradas;
+ * - "!" no início inclui novamente o que um padrão anterior excluiu;
+ * - "/" no final faz o padrão valer apenas para diretórios;
+ * - um padrão com "/" no início ou no meio é comparado com o caminho a partir do diretório do arquivo,
+ *   os demais são comparados apenas com o nome, em qualquer nível;
+ * - "*" e "?" não passam de um nível para outro, "**" passa por qualquer quantidade de níveis.
+ *
+ * Os padrões são compilados uma única vez ao ler o arquivo. Um diretório ignorado não é listado,
+ * então nada dentro dele é percorrido nem pode ser incluído novamente. A pasta .criptogit é sempre ignorada.
+ */
+public class IgnoreRules {
+
+    public static final String IGNORE_FILE = ".criptogitignore";
+
+    private final IgnoreRules parent;
+    // Caminho (com "/") do diretório do arquivo .criptogitignore a partir da raiz do repositório
+    private final String basePath;
+    private final List<Rule> rules;
+
+    /**
+     * Padrão compilado de uma linha do .criptogitignore
+     */
+    private static class Rule {
+        Pattern pattern;
+        boolean negated;
+        boolean directoryOnly;
+        // Compara o caminho a partir do diretório do arquivo em vez de apenas o nome
+        boolean anchored;
+    }
+
+    private IgnoreRules(IgnoreRules parent, String basePath, List<Rule> rules) {
+        this.parent = parent;
+        this.basePath = basePath;
+        this.rules = rules;
+    }
+
+    /**
+     * Carrega as regras da raiz do repositório
+     * @param repositorioPath Caminho do repositório
+     * @return Regras da raiz (sem regras se não houver .criptogitignore)
+     * @throws IOException Se houver erro ao ler o arquivo
+     */
+    public static IgnoreRules load(Path repositorioPath) throws IOException {
+        return new IgnoreRules(null, "", readRules(repositorioPath.resolve(IGNORE_FILE)));
+    }
+
+    /**
+     * Retorna as regras válidas dentro de um subdiretório, acrescentando as do seu .criptogitignore
+     * @param directory Caminho do subdiretório
+     * @param relativePath Caminho do subdiretório a partir da raiz do repositório
+     * @return Regras do subdiretório (as próprias regras se ele não tiver .criptogitignore)
+     * @throws IOException Se houver erro ao ler o arquivo
+     */
+    public IgnoreRules forDirectory(Path directory, String relativePath) throws IOException {
+        Path ignoreFile = directory.resolve(IGNORE_FILE);
+        if (!Files.isRegularFile(ignoreFile)) {
+            return this;
+        }
+        return new IgnoreRules(this, normalize(relativePath), readRules(ignoreFile));
+    }
+
+    /**
+     * Confere se um item do repositório deve ser ignorado
+     * @param relativePath Caminho do item a partir da raiz do repositório
+     * @param directory true se o item for um diretório
+     * @return true se o item for ignorado
+     */
+    public boolean isIgnored(String relativePath, boolean directory) {
+        String path = normalize(relativePath);
+        String name = path.substring(path.lastIndexOf('/') + 1);
+        if (name.equals(".criptogit")) {
+            return true;
+        }
+        // As regras do diretório mais próximo têm prioridade e, dentro de um arquivo, vale o último padrão
+        for (IgnoreRules current = this; current != null; current = current.parent) {
+            if (!current.basePath.isEmpty() && !path.startsWith(current.basePath + "/")) {
+                continue;
+            }
+            String local = current.basePath.isEmpty() ? path : path.substring(current.basePath.length() + 1);
+            for (int i = current.rules.size() - 1; i >= 0; i--) {
+                Rule rule = current.rules.get(i);
+                if (rule.directoryOnly && !directory) {
+                    continue;
+                }
+                if (rule.pattern.matcher(rule.anchored ? local : name).matches()) {
+                    return !rule.negated;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Confere se um arquivo seria ignorado pelo percurso do repositório, avaliando cada diretório acima dele
+     * (os iniciados com "." também não são percorridos). Deve ser chamado nas regras da raiz
+     * @param repoRoot Caminho do repositório
+     * @param file Caminho do arquivo
+     * @return true se o arquivo ou algum diretório acima dele for ignorado
+     * @throws IOException Se houver erro ao ler algum .criptogitignore
+     */
+    public boolean isIgnoredFile(Path repoRoot, Path file) throws IOException {
+        String rootPath = repoRoot.toString();
+        IgnoreRules rules = this;
+        Path current = repoRoot;
+        for (Path segment : repoRoot.relativize(file)) {
+            current = current.resolve(segment);
+            String relativePath = current.toString().replace(rootPath, "");
+            boolean directory = !current.equals(file);
+            if (segment.toString().startsWith(".") || rules.isIgnored(relativePath, directory)) {
+                return true;
+            }
+            if (directory) {
+                rules = rules.forDirectory(current, relativePath);
+            }
+        }
+        return false;
+    }
+
+    private static List<Rule> readRules(Path ignoreFile) throws IOException {
+        List<Rule> rules = new ArrayList<>();
+        if (!Files.isRegularFile(ignoreFile)) {
+            return rules;
+        }
+        for (String line : Files.readAllLines(ignoreFile, StandardCharsets.UTF_8)) {
+            String pattern = line.strip();
+            if (pattern.isEmpty() || pattern.startsWith("#")) {
+                continue;
+            }
+            Rule rule = new Rule();
+            if (pattern.startsWith("!")) {
+                rule.negated = true;
+                pattern = pattern.substring(1);
+            }
+            if (pattern.endsWith("/")) {
+                rule.directoryOnly = true;
+                pattern = pattern.substring(0, pattern.length() - 1);
+            }
+            if (pattern.startsWith("/")) {
+                rule.anchored = true;
+                pattern = pattern.substring(1);
+            } else if (pattern.contains("/")) {
+                rule.anchored = true;
+            }
+            if (pattern.isEmpty()) {
+                continue;
+            }
+            try {
+                rule.pattern = Pattern.compile(globToRegex(pattern));
+            } catch (PatternSyntaxException e) {
+                // Um padrão inválido não pode interromper o add, o status ou o diff: só a linha é descartada
+                System.err.println("Aviso: padrão inválido ignorado em " + ignoreFile + ": " + line.strip());
+                continue;
+            }
+            rules.add(rule);
+        }
+        return rules;
+    }
+
+    /**
+     * Converte um padrão glob em expressão regular
+     */
+    private static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    i++;
+                    if (i + 1 < glob.length() && glob.charAt(i + 1) == '/') {
+                        // "**/": zero ou mais diretórios
+                        i++;
+                        regex.append("(?:.*/)?");
+                    } else {
+                        regex.append(".*");
+                    }
+                } else {
+                    regex.append("[^/]*");
+                }
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else if (c == '[') {
+                int end = classEnd(glob, i);
+                if (end < 0) {
+                    regex.append("\\[");
+                } else {
+                    appendClass(regex, glob, i + 1, end);
+                    i = end;
+                }
+            } else if (c == '\\' && i + 1 < glob.length()) {
+                regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return regex.toString();
+    }
+
+    /**
+     * Posição do "]" que fecha a classe iniciada em start, ou -1 se ela não for fechada.
+     * Um "]" logo no início da classe (depois do "!" opcional) é um caractere da classe, e "\\" escapa o seguinte
+     */
+    private static int classEnd(String glob, int start) {
+        int i = start + 1;
+        if (i < glob.length() && glob.charAt(i) == '!') {
+            i++;
+        }
+        if (i < glob.length() && glob.charAt(i) == ']') {
+            i++;
+        }
+        for (; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Acrescenta uma classe do glob ("[abc]", "[a-z]", "[!0-9]") à expressão regular. Apenas "!" no início e "-"
+     * entre dois caracteres têm significado; os demais caracteres que não são letras nem dígitos são escapados,
+     * para que "[", "&&", "\\d" e "^" não mudem de sentido na expressão regular
+     * @param from Primeiro caractere depois do "["
+     * @param end Posição do "]" que fecha a classe
+     */
+    private static void appendClass(StringBuilder regex, String glob, int from, int end) {
+        regex.append('[');
+        int i = from;
+        if (glob.charAt(i) == '!') {
+            // Como "*" e "?", uma classe negada não passa de um nível para outro
+            regex.append("^/");
+            i++;
+        }
+        int first = i;
+        for (; i < end; i++) {
+            char c = glob.charAt(i);
+            if (c == '\\' && i + 1 < end) {
+                c = glob.charAt(++i);
+            } else if (c == '-' && i > first && i + 1 < end) {
+                regex.append('-');
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                regex.append(c);
+            } else {
+                regex.append('\\').append(c);
+            }
+        }
+        regex.append(']');
+    }
+
+    // Usa "/" como separador e remove a barra inicial dos caminhos relativos do repositório
+    private static String normalize(String relativePath) {
+        String path = relativePath.replace(File.separatorChar, '/');
+        while (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        return path;
+    }
+}
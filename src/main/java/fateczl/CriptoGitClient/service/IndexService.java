@@ -0,0 +1,327 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fateczl.CriptoGitClient.model.Blob;
+import fateczl.CriptoGitClient.model.CacheTreeEntry;
+import fateczl.CriptoGitClient.model.FileStat;
+import fateczl.CriptoGitClient.model.Index;
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Lê e grava o arquivo .criptogit/index no formato binário:
+ *
+ * cabeçalho: "CGIX" | versão (int) | quantidade de entradas (int)
+ * entrada:   hash (20 bytes) | size | mtime | ctime | fileKey (long) | flags (byte) | tamanho do caminho (short) | caminho (UTF-8)
+ * cache-tree (versão 2): commit base (20 bytes, zeros se não houver) | quantidade de diretórios (int)
+ *            diretório: tamanho do caminho (short) | caminho (UTF-8, "" para a raiz) | quantidade de entradas (int) | hash da tree (20 bytes)
+ * final:     SHA-1 de todo o conteúdo anterior (20 bytes)
+ *
+ * As entradas são gravadas ordenadas pelo caminho e o arquivo é lido através de um MappedByteBuffer.
+ * O index da versão 1 (sem cache-tree) continua sendo lido; a próxima gravação já usa a versão 2.
+ */
+public class IndexService {
+
+    private static final int MAGIC = 0x43474958; // "CGIX"
+    private static final int VERSION = 2;
+    // Versão anterior, sem a extensão cache-tree
+    private static final int VERSION_NO_CACHE_TREE = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int HASH_SIZE = ObjectId.SIZE;
+    // Indica que a entrada possui os dados de stat do arquivo
+    private static final byte FLAG_STAT = 1;
+
+    /**
+     * Carrega o index do repositório. Se o arquivo estiver no formato texto antigo,
+     * converte-o para o formato binário
+     * @param repositorioPath Caminho do repositório
+     * @return Index carregado (vazio se o arquivo não existir)
+     * @throws IOException Se houver erro ao ler o index ou se ele estiver corrompido
+     */
+    public Index load(String repositorioPath) throws IOException {
+        Path indexPath = getIndexPath(repositorioPath);
+        Index index = new Index();
+        if (!Files.exists(indexPath) || Files.size(indexPath) == 0) {
+            return index;
+        }
+        if (!isBinaryIndex(indexPath)) {
+            return convertLegacyIndex(repositorioPath);
+        }
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Index muito grande: " + size + " bytes");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            verifyChecksum(buffer, (int) size);
+
+            int version = buffer.getInt(4);
+            if (version != VERSION && version != VERSION_NO_CACHE_TREE) {
+                throw new IOException("Versão do index não suportada: " + version);
+            }
+            int count = buffer.getInt(8);
+            buffer.position(HEADER_SIZE);
+            List<Blob> blobs = new ArrayList<>(count);
+            byte[] hash = new byte[HASH_SIZE];
+            byte[] pathBytes = new byte[256];
+            for (int i = 0; i < count; i++) {
+                Blob blob = new Blob();
+                buffer.get(hash);
+                blob.setHash(ObjectId.fromBytes(hash));
+                long statSize = buffer.getLong();
+                long mtime = buffer.getLong();
+                long ctime = buffer.getLong();
+                long fileKey = buffer.getLong();
+                if ((buffer.get() & FLAG_STAT) != 0) {
+                    FileStat stat = new FileStat();
+                    stat.setSize(statSize);
+                    stat.setMtime(mtime);
+                    stat.setCtime(ctime);
+                    stat.setFileKey(fileKey);
+                    blob.setStat(stat);
+                }
+                int pathLength = Short.toUnsignedInt(buffer.getShort());
+                if (pathLength > pathBytes.length) {
+                    pathBytes = new byte[pathLength];
+                }
+                buffer.get(pathBytes, 0, pathLength);
+                blob.setRelativePath(new String(pathBytes, 0, pathLength, StandardCharsets.UTF_8));
+                blobs.add(blob);
+            }
+            index.setBlobs(blobs);
+            if (version == VERSION) {
+                readCacheTree(buffer, index);
+            }
+        }
+        index.refreshTimestamp(repositorioPath);
+        return index;
+    }
+
+    /**
+     * Grava o index somente se houver entradas pendentes desde a última gravação
+     * @param index Index a ser gravado
+     * @param repositorioPath Caminho do repositório
+     * @throws IOException Se houver erro ao gravar o index
+     */
+    public void flush(Index index, String repositorioPath) throws IOException {
+        if (index.getPendingEntries() == 0) {
+            return;
+        }
+        write(index, repositorioPath);
+    }
+
+    /**
+     * Grava o index do repositório no formato binário, com as entradas ordenadas pelo caminho.
+     * O conteúdo é gravado em um arquivo temporário que depois substitui o index,
+     * assim uma falha durante a gravação nunca deixa o index pela metade
+     * @param index Index a ser gravado
+     * @param repositorioPath Caminho do repositório
+     * @throws IOException Se houver erro ao gravar o index
+     */
+    public void write(Index index, String repositorioPath) throws IOException {
+        Path indexPath = getIndexPath(repositorioPath);
+        Path tempPath = Files.createTempFile(indexPath.getParent(), "index", ".tmp");
+        try {
+            MessageDigest md = newDigest();
+            List<Blob> blobs = index.getBlobs();
+            byte[] hash = new byte[HASH_SIZE];
+            try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                OutputStream fileOut = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+                DataOutputStream out = new DataOutputStream(new DigestOutputStream(fileOut, md));
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(blobs.size());
+                for (Blob blob : blobs) {
+                    blob.getHash().copyTo(hash, 0);
+                    out.write(hash);
+                    FileStat stat = blob.getStat();
+                    out.writeLong(stat != null ? stat.getSize() : 0);
+                    out.writeLong(stat != null ? stat.getMtime() : 0);
+                    out.writeLong(stat != null ? stat.getCtime() : 0);
+                    out.writeLong(stat != null ? stat.getFileKey() : 0);
+                    out.writeByte(stat != null ? FLAG_STAT : 0);
+                    byte[] pathBytes = blob.getRelativePath().getBytes(StandardCharsets.UTF_8);
+                    if (pathBytes.length > 0xFFFF) {
+                        throw new IOException("Caminho muito longo para o index: " + blob.getRelativePath());
+                    }
+                    out.writeShort(pathBytes.length);
+                    out.write(pathBytes);
+                }
+                writeCacheTree(out, index);
+                out.flush();
+                // O checksum não passa pelo DigestOutputStream
+                fileOut.write(md.digest());
+                fileOut.flush();
+                // Garante que o conteúdo está no disco antes de substituir o index
+                channel.force(true);
+            }
+            try {
+                Files.move(tempPath, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+        index.clearPendingEntries();
+        index.refreshTimestamp(repositorioPath);
+    }
+
+    /**
+     * Lê a extensão cache-tree, logo após as entradas
+     */
+    private void readCacheTree(MappedByteBuffer buffer, Index index) {
+        byte[] hash = new byte[HASH_SIZE];
+        buffer.get(hash);
+        index.setBaseCommit(Arrays.equals(hash, new byte[HASH_SIZE]) ? null : ObjectId.fromBytes(hash));
+        int count = buffer.getInt();
+        Map<String, CacheTreeEntry> cacheTree = new HashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            byte[] pathBytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(pathBytes);
+            int entryCount = buffer.getInt();
+            buffer.get(hash);
+            cacheTree.put(new String(pathBytes, StandardCharsets.UTF_8), new CacheTreeEntry(ObjectId.fromBytes(hash), entryCount));
+        }
+        index.setCacheTree(cacheTree);
+    }
+
+    /**
+     * Grava a extensão cache-tree
+     */
+    private void writeCacheTree(DataOutputStream out, Index index) throws IOException {
+        byte[] hash = new byte[HASH_SIZE];
+        ObjectId baseCommit = index.getBaseCommit();
+        if (baseCommit != null) {
+            baseCommit.copyTo(hash, 0);
+        }
+        out.write(hash);
+        Map<String, CacheTreeEntry> cacheTree = index.getCacheTree();
+        out.writeInt(cacheTree.size());
+        for (Map.Entry<String, CacheTreeEntry> entry : cacheTree.entrySet()) {
+            byte[] pathBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (pathBytes.length > 0xFFFF) {
+                throw new IOException("Caminho muito longo para o index: " + entry.getKey());
+            }
+            out.writeShort(pathBytes.length);
+            out.write(pathBytes);
+            out.writeInt(entry.getValue().getEntryCount());
+            entry.getValue().getHash().copyTo(hash, 0);
+            out.write(hash);
+        }
+    }
+
+    /**
+     * Converte um index no formato texto antigo ("<hash> <caminho>" ou
+     * "<hash> <size>:<mtime>:<ctime>:<fileKey> <caminho>") para o formato binário
+     * @param repositorioPath Caminho do repositório
+     * @return Index convertido
+     * @throws IOException Se houver erro ao ler ou gravar o index
+     */
+    public Index convertLegacyIndex(String repositorioPath) throws IOException {
+        Path indexPath = getIndexPath(repositorioPath);
+        List<String> indexBlobs = Files.readAllLines(indexPath);
+        // Mantém apenas a linha mais recente de cada caminho
+        Map<String, Blob> blobs = new LinkedHashMap<>();
+        for (String indexBlob : indexBlobs) {
+            // Ignora linhas vazias
+            if (indexBlob.isEmpty()) {
+                continue;
+            }
+            Blob blob = parseLegacyLine(indexBlob);
+            blobs.put(blob.getRelativePath(), blob);
+        }
+        Index index = new Index();
+        index.setBlobs(new ArrayList<>(blobs.values()));
+        write(index, repositorioPath);
+        System.out.println("Index convertido para o formato binário: " + blobs.size() + " entradas.");
+        return index;
+    }
+
+    /**
+     * Lê uma linha do index no formato texto antigo
+     * @param line Linha do index
+     * @return Blob da linha
+     */
+    private Blob parseLegacyLine(String line) {
+        Blob blob = new Blob();
+        blob.setHash(ObjectId.fromHex(line, 0));
+        String rest = line.substring(41);
+        int separator = rest.indexOf(' ');
+        String[] statFields = separator > 0 ? rest.substring(0, separator).split(":") : new String[0];
+        if (statFields.length == 4 && rest.substring(0, separator).matches("[-0-9:]+")) {
+            FileStat stat = new FileStat();
+            stat.setSize(Long.parseLong(statFields[0]));
+            stat.setMtime(Long.parseLong(statFields[1]));
+            stat.setCtime(Long.parseLong(statFields[2]));
+            stat.setFileKey(Long.parseLong(statFields[3]));
+            blob.setStat(stat);
+            blob.setRelativePath(rest.substring(separator + 1));
+        } else {
+            blob.setRelativePath(rest);
+        }
+        return blob;
+    }
+
+    /**
+     * Confere se o arquivo index começa com o cabeçalho do formato binário
+     */
+    private boolean isBinaryIndex(Path indexPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE + HASH_SIZE) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            return header.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Confere o checksum gravado no final do index
+     */
+    private void verifyChecksum(MappedByteBuffer buffer, int size) throws IOException {
+        MessageDigest md = newDigest();
+        md.update(buffer.slice(0, size - HASH_SIZE));
+        byte[] expected = new byte[HASH_SIZE];
+        buffer.get(size - HASH_SIZE, expected);
+        if (!Arrays.equals(md.digest(), expected)) {
+            throw new IOException("Index corrompido: checksum inválido.");
+        }
+    }
+
+    private Path getIndexPath(String repositorioPath) {
+        return Paths.get(repositorioPath, ".criptogit", "index");
+    }
+
+    private MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 indisponível: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Pacote com as chaves simétricas de um commit criptografadas para um colaborador.
+ *
+ * Cada commit grava na pasta locked um pacote por chave pública, com o nome
+ * "<fingerprint>.<nome único>.keys", em que o fingerprint é o SHA-256 da chave pública (X.509).
+ * No unlock, o colaborador abre só os pacotes do seu fingerprint, e cada entrada já diz qual arquivo da
+ * pasta locked a chave abre: nenhuma descriptografia RSA é feita às cegas.
+ *
+ * Os pacotes não são um único "<fingerprint>.keys" acrescentado a cada commit porque a pasta locked não
+ * guarda o que já foi enviado: o push apaga os arquivos depois de enviá-los, e o pull não sobrescreve um
+ * arquivo que já existe (nem o unlock, que apaga o pacote lido). Um pacote acrescentado teria de ser reenviado
+ * com o mesmo nome e não chegaria a quem já o baixou. Por isso cada commit (e cada inclusão de colaboradores)
+ * grava um pacote novo, com o nome único depois do fingerprint: são commits × colaboradores pacotes no
+ * servidor, mas cada colaborador baixa e abre apenas os seus.
+ *
+ * cabeçalho: "CGKB" | versão (byte)
+ * entradas: tamanho do nome (short) | nome do arquivo na pasta locked | tamanho da chave (short) | chave criptografada
+ *
+ * Uma entrada com o nome vazio é a chave mestra do commit (veja MasterKey).
+ */
+public class KeyBundle implements Closeable {
+
+    static final byte[] MAGIC = { 'C', 'G', 'K', 'B' };
+    static final byte VERSION = 1;
+    static final String EXTENSION = ".keys";
+    static final String LOCKED_NAME_EXTENSION = ".locked";
+    public static final String MASTER_KEY_ENTRY = "";
+
+    /**
+     * Recebe as entradas de um pacote na leitura
+     */
+    public interface EntryListener {
+        void entry(String lockedName, byte[] wrappedKey) throws IOException;
+    }
+
+    private final DataOutputStream out;
+
+    private KeyBundle(DataOutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Cria o pacote de um colaborador para o commit sendo criptografado
+     * @param lockedPath Caminho da pasta locked
+     * @param recipient Chave pública do colaborador
+     * @param uniqueName Nome único do commit, para que os pacotes de commits diferentes não se sobrescrevam
+     */
+    public static KeyBundle create(Path lockedPath, PublicKey recipient, String uniqueName) throws IOException {
+        Path file = lockedPath.resolve(fingerprint(recipient) + "." + uniqueName + EXTENSION);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        out.write(MAGIC);
+        out.writeByte(VERSION);
+        return new KeyBundle(out);
+    }
+
+    /**
+     * Acrescenta a chave de um arquivo da pasta locked. Pode ser chamado por várias threads
+     * @param lockedName Nome do arquivo na pasta locked (ou MASTER_KEY_ENTRY)
+     * @param wrappedKey Chave criptografada com a chave pública do colaborador
+     */
+    public synchronized void add(String lockedName, byte[] wrappedKey) throws IOException {
+        byte[] name = lockedName.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(name.length);
+        out.write(name);
+        out.writeShort(wrappedKey.length);
+        out.write(wrappedKey);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Lê todas as entradas de um pacote
+     * @throws IOException Se o arquivo não for um pacote de chaves
+     */
+    public static void read(Path file, EntryListener listener) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            byte[] header = new byte[MAGIC.length + 1];
+            in.readFully(header);
+            if (!Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+                throw new IOException("Pacote de chaves inválido: " + file.getFileName());
+            }
+            if (header[MAGIC.length] != VERSION) {
+                throw new IOException("Versão de pacote de chaves não suportada: " + header[MAGIC.length]);
+            }
+            while (true) {
+                int nameLength;
+                try {
+                    nameLength = in.readUnsignedShort();
+                } catch (EOFException e) {
+                    return;
+                }
+                byte[] name = new byte[nameLength];
+                in.readFully(name);
+                byte[] wrappedKey = new byte[in.readUnsignedShort()];
+                in.readFully(wrappedKey);
+                listener.entry(new String(name, StandardCharsets.UTF_8), wrappedKey);
+            }
+        }
+    }
+
+    /**
+     * Lista os pacotes de um colaborador na pasta locked
+     * @param lockedPath Caminho da pasta locked
+     * @param fingerprint Fingerprint da chave pública do colaborador
+     */
+    public static List<Path> find(Path lockedPath, String fingerprint) throws IOException {
+        List<Path> bundles = new ArrayList<>();
+        try (var stream = Files.list(lockedPath)) {
+            for (Path file : stream.collect(java.util.stream.Collectors.toList())) {
+                String fileName = file.getFileName().toString();
+                if (fileName.startsWith(fingerprint + ".") && isBundle(fileName) && Files.isRegularFile(file)) {
+                    bundles.add(file);
+                }
+            }
+        }
+        return bundles;
+    }
+
+    /**
+     * Confere pelo nome se um arquivo da pasta locked é um pacote de chaves (de qualquer colaborador)
+     */
+    public static boolean isBundle(String fileName) {
+        return fileName.endsWith(EXTENSION);
+    }
+
+    /**
+     * Arquivo que guarda, ao lado da chave de um object (objects/xx/<hash>.key), o nome do object na pasta
+     * locked. É com esse nome que a chave entra nos pacotes dos colaboradores adicionados depois do commit
+     * @param keyFile Arquivo da chave do object
+     */
+    public static Path lockedNameFile(Path keyFile) {
+        String keyName = keyFile.getFileName().toString();
+        return keyFile.resolveSibling(keyName.substring(0, keyName.lastIndexOf('.')) + LOCKED_NAME_EXTENSION);
+    }
+
+    /**
+     * Fingerprint de uma chave pública: SHA-256 da codificação X.509, em hexadecimal
+     */
+    public static String fingerprint(PublicKey publicKey) throws IOException {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(publicKey.getEncoded()));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Erro ao calcular o fingerprint da chave pública: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Fingerprint da chave pública correspondente a uma chave privada RSA
+     * @throws IOException Se a chave privada não tiver os dados da chave pública (formato sem CRT)
+     */
+    public static String fingerprint(PrivateKey privateKey) throws IOException {
+        if (!(privateKey instanceof RSAPrivateCrtKey crtKey)) {
+            throw new IOException("A chave privada não contém o expoente público.");
+        }
+        try {
+            PublicKey publicKey = KeyFactory.getInstance("RSA")
+                .generatePublic(new RSAPublicKeySpec(crtKey.getModulus(), crtKey.getPublicExponent()));
+            return fingerprint(publicKey);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Erro ao obter a chave pública: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.PriorityQueue;
+
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Histórico de commits a partir do commit-graph: log, ancestralidade e merge-base.
+ *
+ * O percurso usa apenas os registros do CommitGraph (pais pela posição, geração e data). Os objects dos
+ * commits só são lidos quando o commit-graph precisa incluir commits novos e, no log, para mostrar a
+ * mensagem dos commits exibidos.
+ */
+public class LogService {
+
+    private String repositorioPath;
+    private Path objectsPath;
+
+    public void setRepositorioPath(String repositorioPath) {
+        this.repositorioPath = repositorioPath;
+        this.objectsPath = Paths.get(repositorioPath, ".criptogit", "objects");
+    }
+
+    /**
+     * Mostra o histórico a partir do HEAD, do commit mais recente para o mais antigo
+     * @param limit Quantidade máxima de commits exibidos (0 para todos)
+     * @throws Exception Se houver erro ao ler o commit-graph
+     */
+    public void log(int limit) throws Exception {
+        ObjectId head = readHead();
+        if (head == null) {
+            System.out.println("Nenhum commit ainda.");
+            return;
+        }
+        try {
+            CommitGraph graph = loadGraph(head);
+            // Os commits com geração maior saem primeiro: um commit só aparece depois de todos os seus descendentes
+            PriorityQueue<Integer> queue = new PriorityQueue<>((a, b) -> {
+                int cmp = Integer.compare(graph.getGeneration(b), graph.getGeneration(a));
+                return cmp != 0 ? cmp : Long.compare(graph.getTimestamp(b), graph.getTimestamp(a));
+            });
+            BitSet seen = new BitSet(graph.getCount());
+            int start = graph.find(head);
+            queue.add(start);
+            seen.set(start);
+            int shown = 0;
+            while (!queue.isEmpty() && (limit <= 0 || shown < limit)) {
+                int position = queue.poll();
+                printCommit(graph, position);
+                shown++;
+                for (int n = 0; n < 2; n++) {
+                    int parent = graph.getParent(position, n);
+                    if (parent != CommitGraph.NO_PARENT && !seen.get(parent)) {
+                        seen.set(parent);
+                        queue.add(parent);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new Exception("Erro ao ler o histórico: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Confere se um commit é ancestral de outro (um commit é considerado ancestral de si mesmo)
+     * @param ancestor Possível ancestral
+     * @param commit Commit de partida
+     * @return true se ancestor for alcançável a partir de commit pelos pais
+     * @throws IOException Se houver erro ao ler o commit-graph
+     */
+    public boolean isAncestor(ObjectId ancestor, ObjectId commit) throws IOException {
+        CommitGraph graph = loadGraph(commit);
+        int target = graph.find(ancestor);
+        if (target < 0) {
+            return false;
+        }
+        int minGeneration = graph.getGeneration(target);
+        BitSet seen = new BitSet(graph.getCount());
+        ArrayDeque<Integer> pending = new ArrayDeque<>();
+        pending.push(graph.find(commit));
+        while (!pending.isEmpty()) {
+            int position = pending.pop();
+            if (position == target) {
+                return true;
+            }
+            if (seen.get(position) || graph.getGeneration(position) <= minGeneration) {
+                // Commits com geração menor ou igual à do alvo não podem tê-lo como ancestral
+                continue;
+            }
+            seen.set(position);
+            for (int n = 0; n < 2; n++) {
+                int parent = graph.getParent(position, n);
+                if (parent != CommitGraph.NO_PARENT) {
+                    pending.push(parent);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Procura o ancestral comum mais recente de dois commits
+     * @return Hash do merge-base ou null se os commits não tiverem ancestral comum
+     * @throws IOException Se houver erro ao ler o commit-graph
+     */
+    public ObjectId mergeBase(ObjectId first, ObjectId second) throws IOException {
+        CommitGraph graph = loadGraph(first);
+        if (graph.find(second) < 0) {
+            graph = loadGraph(second);
+        }
+        final CommitGraph commits = graph;
+        // Marca cada commit com os lados (1 = first, 2 = second) que o alcançam, descendo por geração
+        byte[] flags = new byte[commits.getCount()];
+        PriorityQueue<Integer> queue = new PriorityQueue<>(
+            (a, b) -> Integer.compare(commits.getGeneration(b), commits.getGeneration(a)));
+        int a = commits.find(first);
+        int b = commits.find(second);
+        flags[a] |= 1;
+        flags[b] |= 2;
+        queue.add(a);
+        if (b != a) {
+            queue.add(b);
+        }
+        while (!queue.isEmpty()) {
+            int position = queue.poll();
+            if (flags[position] == 3) {
+                // O primeiro commit alcançado pelos dois lados tem a maior geração entre os comuns
+                return commits.getId(position);
+            }
+            for (int n = 0; n < 2; n++) {
+                int parent = commits.getParent(position, n);
+                if (parent == CommitGraph.NO_PARENT) {
+                    continue;
+                }
+                if (flags[parent] == 0) {
+                    queue.add(parent);
+                }
+                flags[parent] |= flags[position];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Mostra o merge-base de dois commits e se um é ancestral do outro
+     * @param first Hash do primeiro commit ou "HEAD"
+     * @param second Hash do segundo commit ou "HEAD"
+     * @throws Exception Se houver erro ao ler o commit-graph
+     */
+    public void showMergeBase(String first, String second) throws Exception {
+        try {
+            ObjectId a = resolveCommit(first);
+            ObjectId b = resolveCommit(second);
+            ObjectId base = mergeBase(a, b);
+            System.out.println(base != null ? "Merge-base: " + base : "Os commits não têm ancestral comum.");
+            if (isAncestor(a, b)) {
+                System.out.println(a + " é ancestral de " + b);
+            } else if (isAncestor(b, a)) {
+                System.out.println(b + " é ancestral de " + a);
+            }
+        } catch (IOException e) {
+            throw new Exception("Erro ao calcular o merge-base: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Carrega o commit-graph, incluindo o commit e os seus ancestrais se eles ainda não estiverem nele
+     */
+    private CommitGraph loadGraph(ObjectId commit) throws IOException {
+        CommitGraph graph = CommitGraph.update(objectsPath, commit);
+        if (graph == null || graph.find(commit) < 0) {
+            throw new IOException("Commit não encontrado no commit-graph: " + commit);
+        }
+        return graph;
+    }
+
+    private void printCommit(CommitGraph graph, int position) throws IOException {
+        ObjectId id = graph.getId(position);
+        System.out.println("commit " + id);
+        System.out.println("Data: " + new Date(graph.getTimestamp(position) * 1000));
+        byte[] commitData = ObjectStoreService.readObject(objectsPath, id);
+        if (commitData != null) {
+            for (String line : new String(commitData).split("\n")) {
+                if (line.startsWith("author ")) {
+                    System.out.println("Autor: " + line.substring(7));
+                } else if (line.startsWith("message ")) {
+                    System.out.println("\n    " + line.substring(8));
+                }
+            }
+        }
+        System.out.println();
+    }
+
+    private ObjectId resolveCommit(String reference) throws IOException {
+        String value = reference.trim();
+        if (value.isEmpty() || value.equalsIgnoreCase("HEAD")) {
+            ObjectId head = readHead();
+            if (head == null) {
+                throw new IOException("Nenhum commit ainda.");
+            }
+            return head;
+        }
+        if (!ObjectId.isValid(value)) {
+            throw new IOException("Hash de commit inválida: " + value);
+        }
+        return ObjectId.fromHex(value);
+    }
+
+    private ObjectId readHead() throws IOException {
+        Path headPath = Paths.get(repositorioPath, ".criptogit", "HEAD");
+        if (!Files.exists(headPath)) {
+            return null;
+        }
+        String head = Files.readString(headPath).trim();
+        return head.isEmpty() ? null : ObjectId.fromHex(head);
+    }
+}
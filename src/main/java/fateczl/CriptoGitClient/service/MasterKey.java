@@ -0,0 +1,137 @@
+package fateczl.CriptoGitClient.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.PublicKey;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Chave mestra de um commit (opção --master-key).
+ *
+ * Em vez de uma chave AES aleatória por object, cada um criptografado com RSA para cada colaborador,
+ * o commit tem uma única chave aleatória, criptografada uma vez por colaborador. As chaves dos objects
+ * são derivadas dela com HKDF-SHA256 a partir da hash do object, e o nome do arquivo na pasta locked
+ * é a hash criptografada com uma chave de nomes, também derivada. No unlock, a chave de nomes revela
+ * a hash e, com ela, a chave do object, sem tentativas de descriptografia do conteúdo.
+ *
+ * Chave criptografada com RSA: "CGMK" | chave mestra (32 bytes)
+ */
+public class MasterKey {
+
+    static final byte[] MAGIC = { 'C', 'G', 'M', 'K' };
+    private static final int KEY_SIZE = 32;
+    private static final byte[] SALT = "CriptoGit master key".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NAME_INFO = "criptogit name".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] OBJECT_INFO = "criptogit object ".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEAD_INFO = "criptogit head ".getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] secret;
+    private final byte[] prk;
+    private final SecretKey nameKey;
+
+    private MasterKey(byte[] secret) throws GeneralSecurityException {
+        this.secret = secret;
+        this.prk = CryptoEngine.hkdfExtract(SALT, secret);
+        this.nameKey = derive(NAME_INFO, new byte[0]);
+    }
+
+    /**
+     * Gera uma chave mestra aleatória para um novo commit
+     */
+    public static MasterKey generate() throws GeneralSecurityException {
+        return new MasterKey(CryptoEngine.generateAesKey().getEncoded());
+    }
+
+    /**
+     * Reconhece uma chave mestra já descriptografada com a chave privada
+     * @param data Conteúdo do bloco RSA
+     * @return Chave mestra ou null se o bloco não for uma chave mestra
+     */
+    public static MasterKey fromDecrypted(byte[] data) throws GeneralSecurityException {
+        if (data.length != MAGIC.length + KEY_SIZE || !Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            return null;
+        }
+        return new MasterKey(Arrays.copyOfRange(data, MAGIC.length, data.length));
+    }
+
+    /**
+     * Recupera uma chave mestra guardada localmente (versions/<versão>.master)
+     * @param secret Chave mestra, como devolvida por getEncoded
+     * @throws GeneralSecurityException Se o conteúdo não tiver o tamanho de uma chave mestra
+     */
+    public static MasterKey fromEncoded(byte[] secret) throws GeneralSecurityException {
+        if (secret.length != KEY_SIZE) {
+            throw new GeneralSecurityException("Chave mestra inválida: " + secret.length + " bytes");
+        }
+        return new MasterKey(secret.clone());
+    }
+
+    /**
+     * Chave mestra sem criptografia, para ser guardada localmente e criptografada depois para
+     * os colaboradores adicionados ao repositório
+     */
+    public byte[] getEncoded() {
+        return secret.clone();
+    }
+
+    /**
+     * Criptografa a chave mestra para um colaborador
+     * @param publicKey Chave pública do colaborador
+     */
+    public byte[] wrap(PublicKey publicKey) throws GeneralSecurityException {
+        byte[] payload = new byte[MAGIC.length + KEY_SIZE];
+        System.arraycopy(MAGIC, 0, payload, 0, MAGIC.length);
+        System.arraycopy(secret, 0, payload, MAGIC.length, KEY_SIZE);
+        try {
+            return CryptoEngine.encryptRsa(payload, publicKey);
+        } finally {
+            Arrays.fill(payload, (byte) 0);
+        }
+    }
+
+    /**
+     * Chave AES do conteúdo de um blob, tree ou commit
+     */
+    public SecretKey objectKey(ObjectId id) throws GeneralSecurityException {
+        return derive(OBJECT_INFO, id.getBytes());
+    }
+
+    /**
+     * Chave AES do HEAD de uma versão
+     */
+    public SecretKey headKey(int version) throws GeneralSecurityException {
+        return derive(HEAD_INFO, String.valueOf(version).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Nome do object na pasta locked: a hash criptografada com a chave de nomes
+     */
+    public byte[] encryptName(ObjectId id) throws GeneralSecurityException {
+        return CryptoEngine.aes(Cipher.ENCRYPT_MODE, id.toHex().getBytes(StandardCharsets.US_ASCII), nameKey);
+    }
+
+    /**
+     * Recupera a hash de um object a partir do nome do arquivo na pasta locked
+     * @param encryptedName Nome criptografado (bytes do nome em hexadecimal)
+     * @return Hash do object ou null se o nome não tiver sido gerado com esta chave mestra
+     */
+    public ObjectId decryptName(byte[] encryptedName) {
+        try {
+            String hex = new String(CryptoEngine.aes(Cipher.DECRYPT_MODE, encryptedName, nameKey), StandardCharsets.US_ASCII);
+            return ObjectId.isValid(hex) ? ObjectId.fromHex(hex) : null;
+        } catch (GeneralSecurityException e) {
+            return null;
+        }
+    }
+
+    private SecretKey derive(byte[] prefix, byte[] context) throws GeneralSecurityException {
+        byte[] info = Arrays.copyOf(prefix, prefix.length + context.length);
+        System.arraycopy(context, 0, info, prefix.length, context.length);
+        return new SecretKeySpec(CryptoEngine.hkdfExpand(prk, info, KEY_SIZE), "AES");
+    }
+}
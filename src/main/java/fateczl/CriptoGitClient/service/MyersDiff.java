@@ -0,0 +1,152 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Algoritmo de diff de Myers em espaço linear (divisão pela "middle snake").
+ *
+ * As sequências são comparadas como vetores de inteiros (cada linha distinta recebe um número),
+ * os trechos iniciais e finais iguais são descartados antes de cada divisão e as edições são
+ * entregues ao listener em ordem crescente de posição, à medida que são encontradas. Assim quem
+ * monta os hunks pode escrevê-los sem esperar o fim da comparação.
+ *
+ * Memória: dois vetores de 2 * min(N, M) + 2 posições, reaproveitados em todas as divisões.
+ */
+public class MyersDiff {
+
+    /**
+     * Recebe as edições do diff: a[beginA, endA) foi substituído por b[beginB, endB).
+     * Um dos intervalos pode estar vazio (inserção ou remoção)
+     */
+    public interface EditListener {
+        void edit(int beginA, int endA, int beginB, int endB) throws IOException;
+    }
+
+    private final int[] a;
+    private final int[] b;
+    private final EditListener listener;
+    // Posições mais distantes alcançadas em cada diagonal, nos sentidos direto e reverso
+    private final int[] forward;
+    private final int[] backward;
+    // Resultado da última middle snake, relativo ao início dos intervalos comparados
+    private int snakeX;
+    private int snakeY;
+    private int snakeU;
+    private int snakeV;
+
+    private MyersDiff(int[] a, int[] b, EditListener listener) {
+        this.a = a;
+        this.b = b;
+        this.listener = listener;
+        int size = 2 * Math.min(a.length, b.length) + 2;
+        this.forward = new int[size];
+        this.backward = new int[size];
+    }
+
+    /**
+     * Compara duas sequências e entrega as edições ao listener, em ordem
+     * @param a Sequência original
+     * @param b Sequência nova
+     * @param listener Receptor das edições
+     * @throws IOException Se o listener falhar
+     */
+    public static void diff(int[] a, int[] b, EditListener listener) throws IOException {
+        new MyersDiff(a, b, listener).compare(0, a.length, 0, b.length);
+    }
+
+    private void compare(int aStart, int aEnd, int bStart, int bEnd) throws IOException {
+        // Descarta o início e o fim em comum
+        while (aStart < aEnd && bStart < bEnd && a[aStart] == b[bStart]) {
+            aStart++;
+            bStart++;
+        }
+        while (aStart < aEnd && bStart < bEnd && a[aEnd - 1] == b[bEnd - 1]) {
+            aEnd--;
+            bEnd--;
+        }
+        if (aStart == aEnd || bStart == bEnd) {
+            if (aStart < aEnd || bStart < bEnd) {
+                listener.edit(aStart, aEnd, bStart, bEnd);
+            }
+            return;
+        }
+        int distance = middleSnake(aStart, aEnd, bStart, bEnd);
+        int x = snakeX;
+        int y = snakeY;
+        int u = snakeU;
+        int v = snakeV;
+        if (distance > 1 || (x != u && y != v)) {
+            compare(aStart, aStart + x, bStart, bStart + y);
+            compare(aStart + u, aEnd, bStart + v, bEnd);
+        } else {
+            // Sem trechos em comum nas pontas, uma distância 0 ou 1 não ocorre; mantido por segurança
+            listener.edit(aStart, aEnd, bStart, bEnd);
+        }
+    }
+
+    /**
+     * Procura a middle snake dos intervalos, avançando ao mesmo tempo do início (direto) e do fim (reverso)
+     * até os caminhos se encontrarem
+     * @return Quantidade de edições do caminho mínimo entre os intervalos
+     */
+    private int middleSnake(int aStart, int aEnd, int bStart, int bEnd) {
+        int n = aEnd - aStart;
+        int m = bEnd - bStart;
+        int total = n + m;
+        int size = 2 * Math.min(n, m) + 2;
+        int delta = n - m;
+        Arrays.fill(forward, 0, size, 0);
+        Arrays.fill(backward, 0, size, 0);
+        for (int h = 0; h <= total / 2 + total % 2; h++) {
+            for (int pass = 0; pass < 2; pass++) {
+                boolean direct = pass == 0;
+                int[] current = direct ? forward : backward;
+                int[] other = direct ? backward : forward;
+                int odd = direct ? 1 : 0;
+                int lowK = -(h - 2 * Math.max(0, h - m));
+                int highK = h - 2 * Math.max(0, h - n);
+                for (int k = lowK; k <= highK; k += 2) {
+                    int x;
+                    if (k == -h || (k != h && current[Math.floorMod(k - 1, size)] < current[Math.floorMod(k + 1, size)])) {
+                        x = current[Math.floorMod(k + 1, size)];
+                    } else {
+                        x = current[Math.floorMod(k - 1, size)] + 1;
+                    }
+                    int y = x - k;
+                    int startX = x;
+                    int startY = y;
+                    if (direct) {
+                        while (x < n && y < m && a[aStart + x] == b[bStart + y]) {
+                            x++;
+                            y++;
+                        }
+                    } else {
+                        while (x < n && y < m && a[aEnd - 1 - x] == b[bEnd - 1 - y]) {
+                            x++;
+                            y++;
+                        }
+                    }
+                    current[Math.floorMod(k, size)] = x;
+                    int z = delta - k;
+                    if (total % 2 == odd && z >= -(h - odd) && z <= h - odd
+                        && x + other[Math.floorMod(z, size)] >= n) {
+                        if (direct) {
+                            snakeX = startX;
+                            snakeY = startY;
+                            snakeU = x;
+                            snakeV = y;
+                            return 2 * h - 1;
+                        }
+                        snakeX = n - x;
+                        snakeY = m - y;
+                        snakeU = n - startX;
+                        snakeV = m - startY;
+                        return 2 * h;
+                    }
+                }
+            }
+        }
+        throw new IllegalStateException("Middle snake não encontrada.");
+    }
+}
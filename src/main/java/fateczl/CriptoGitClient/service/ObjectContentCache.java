@@ -0,0 +1,49 @@
+package fateczl.CriptoGitClient.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Cache LRU do conteúdo original de objects, limitado pela soma dos tamanhos.
+ * Usado para as bases dos deltas dos packs: as versões de um mesmo arquivo costumam
+ * usar a mesma base, que assim é lida e reconstruída uma única vez.
+ */
+public class ObjectContentCache {
+
+    private final long maxBytes;
+    private long bytes;
+    private final LinkedHashMap<ObjectId, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    public ObjectContentCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized byte[] get(ObjectId id) {
+        return entries.get(id);
+    }
+
+    /**
+     * Guarda o conteúdo de um object, removendo os menos usados recentemente se o limite for ultrapassado.
+     * Conteúdos maiores que um quarto do limite não são guardados
+     */
+    public synchronized void put(ObjectId id, byte[] content) {
+        if (content.length > maxBytes / 4) {
+            return;
+        }
+        byte[] previous = entries.put(id, content);
+        bytes += content.length - (previous != null ? previous.length : 0);
+        Iterator<Map.Entry<ObjectId, byte[]>> iterator = entries.entrySet().iterator();
+        while (bytes > maxBytes && iterator.hasNext()) {
+            bytes -= iterator.next().getValue().length;
+            iterator.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+}
@@ -0,0 +1,215 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Responde em memória se um arquivo existe na pasta .criptogit/objects (objects e arquivos .key).
+ *
+ * Usa um filtro de Bloom montado a partir do conteúdo da pasta objects e um conjunto com as pastas já conhecidas.
+ * Uma resposta negativa do filtro é definitiva e dispensa a consulta ao sistema de arquivos;
+ * uma resposta positiva pode ser falsa e é confirmada com Files.exists ou, para objects empacotados, no idx dos packs.
+ * Todo arquivo criado em objects por este processo deve ser registrado com add().
+ */
+public class ObjectExistenceFilter {
+
+    // Quantidade mínima de entradas para o dimensionamento do filtro
+    private static final int MIN_ENTRIES = 1 << 18;
+    // Bits por entrada e quantidade de funções de hash (~1% de falsos positivos)
+    private static final int BITS_PER_ENTRY = 10;
+    private static final int HASH_FUNCTIONS = 7;
+
+    // Um filtro por pasta objects aberta neste processo
+    private static final Map<Path, ObjectExistenceFilter> filters = new ConcurrentHashMap<>();
+
+    private final Path objectsPath;
+    private final AtomicLongArray bits;
+    private final long mask;
+    // Pastas de objects (2 primeiros caracteres da hash) que já existem
+    private final Set<String> knownDirs = ConcurrentHashMap.newKeySet();
+
+    private ObjectExistenceFilter(Path objectsPath, int expectedEntries) {
+        this.objectsPath = objectsPath;
+        long bitCount = Long.highestOneBit((long) Math.max(expectedEntries, MIN_ENTRIES) * BITS_PER_ENTRY - 1) << 1;
+        this.bits = new AtomicLongArray((int) (bitCount >>> 6));
+        this.mask = bitCount - 1;
+    }
+
+    /**
+     * Retorna o filtro da pasta objects, montando-o na primeira chamada
+     * @param objectsPath Caminho da pasta .criptogit/objects
+     * @return Filtro da pasta objects
+     * @throws IOException Se houver erro ao listar a pasta objects
+     */
+    public static ObjectExistenceFilter forObjects(Path objectsPath) throws IOException {
+        Path key = objectsPath.toAbsolutePath().normalize();
+        ObjectExistenceFilter filter = filters.get(key);
+        if (filter == null) {
+            filter = load(key);
+        }
+        return filter;
+    }
+
+    /**
+     * Remonta o filtro a partir do conteúdo atual da pasta objects
+     * @param objectsPath Caminho da pasta .criptogit/objects
+     * @return Filtro montado
+     * @throws IOException Se houver erro ao listar a pasta objects
+     */
+    public static ObjectExistenceFilter load(Path objectsPath) throws IOException {
+        Path key = objectsPath.toAbsolutePath().normalize();
+        // Conta as entradas para dimensionar o filtro com folga para os novos objects
+        int entries = 0;
+        if (Files.isDirectory(key)) {
+            try (var dirs = Files.newDirectoryStream(key)) {
+                for (Path dir : dirs) {
+                    if (Files.isDirectory(dir)) {
+                        try (var files = Files.newDirectoryStream(dir)) {
+                            for (Path ignored : files) {
+                                entries++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        List<PackFile> packs = PackFile.forObjects(key);
+        for (PackFile packFile : packs) {
+            entries += packFile.getCount();
+        }
+        ObjectExistenceFilter filter = new ObjectExistenceFilter(key, entries * 4);
+        if (Files.isDirectory(key)) {
+            try (var dirs = Files.newDirectoryStream(key)) {
+                for (Path dir : dirs) {
+                    if (!Files.isDirectory(dir)) {
+                        continue;
+                    }
+                    String dirName = dir.getFileName().toString();
+                    filter.knownDirs.add(dirName);
+                    try (var files = Files.newDirectoryStream(dir)) {
+                        for (Path file : files) {
+                            filter.put(dirName, file.getFileName().toString());
+                        }
+                    }
+                }
+            }
+        }
+        // Os objects empacotados entram no filtro com o mesmo nome do object solto
+        for (PackFile packFile : packs) {
+            for (int i = 0; i < packFile.getCount(); i++) {
+                ObjectId id = packFile.getId(i);
+                filter.put(id.getDirName(), id.getFileName());
+            }
+        }
+        filters.put(key, filter);
+        return filter;
+    }
+
+    /**
+     * Confere se um arquivo existe dentro de uma pasta de objects
+     * @param file Caminho do arquivo (objects/xx/nome)
+     * @return true se o arquivo existir (solto ou, no caso de um object, empacotado)
+     * @throws IOException Se houver erro ao ler os packs
+     */
+    public boolean exists(Path file) throws IOException {
+        String dirName = file.getParent().getFileName().toString();
+        String fileName = file.getFileName().toString();
+        if (!mightContain(dirName, fileName)) {
+            return false;
+        }
+        // Possível falso positivo: confirma no sistema de arquivos, no ObjectWriter e nos packs
+        if (Files.exists(file) || ObjectWriter.isPending(file)) {
+            return true;
+        }
+        return fileName.length() == ObjectId.HEX_SIZE - 2
+            && ObjectId.isValid(dirName + fileName)
+            && PackFile.contains(objectsPath, ObjectId.fromHex(dirName + fileName));
+    }
+
+    /**
+     * Registra um arquivo criado dentro de uma pasta de objects
+     * @param file Caminho do arquivo (objects/xx/nome)
+     */
+    public void add(Path file) {
+        String dirName = file.getParent().getFileName().toString();
+        knownDirs.add(dirName);
+        put(dirName, file.getFileName().toString());
+    }
+
+    /**
+     * Cria a pasta de objects se ela ainda não existir, consultando o sistema de arquivos apenas
+     * para pastas que ainda não são conhecidas
+     * @param dir Caminho da pasta (objects/xx)
+     * @throws IOException Se houver erro ao criar a pasta
+     */
+    public void createDirectory(Path dir) throws IOException {
+        String dirName = dir.getFileName().toString();
+        if (knownDirs.contains(dirName)) {
+            return;
+        }
+        // createDirectories não falha se outra thread criar a pasta ao mesmo tempo
+        Files.createDirectories(dir);
+        knownDirs.add(dirName);
+    }
+
+    public Path getObjectsPath() {
+        return objectsPath;
+    }
+
+    private void put(String dirName, String fileName) {
+        long h1 = hash(dirName, fileName);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            long bit = (h1 + i * h2) & mask;
+            int word = (int) (bit >>> 6);
+            long value = 1L << bit;
+            long current = bits.get(word);
+            while ((current & value) == 0 && !bits.compareAndSet(word, current, current | value)) {
+                current = bits.get(word);
+            }
+        }
+    }
+
+    private boolean mightContain(String dirName, String fileName) {
+        long h1 = hash(dirName, fileName);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < HASH_FUNCTIONS; i++) {
+            long bit = (h1 + i * h2) & mask;
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // FNV-1a de 64 bits sobre "<pasta>/<arquivo>"
+    private static long hash(String dirName, String fileName) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < dirName.length(); i++) {
+            h = (h ^ dirName.charAt(i)) * 0x100000001b3L;
+        }
+        h = (h ^ '/') * 0x100000001b3L;
+        for (int i = 0; i < fileName.length(); i++) {
+            h = (h ^ fileName.charAt(i)) * 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    // Finalizador do MurmurHash3 para espalhar os bits da hash
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
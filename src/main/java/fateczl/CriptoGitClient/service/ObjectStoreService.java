@@ -0,0 +1,206 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Leitura e gravação do conteúdo dos objects da pasta .criptogit/objects.
+ *
+ * Um object pode estar gravado em dois formatos:
+ * - bruto: o conteúdo original, como nas versões anteriores;
+ * - compactado: o cabeçalho MAGIC seguido do conteúdo compactado com deflate.
+ *
+ * A hash do object é sempre a do conteúdo original, então os dois formatos convivem no mesmo repositório
+ * e todo leitor deve passar por openObject/readObject. Os objects também podem estar em um pack (PackFile),
+ * onde são guardados com os mesmos bytes do object solto ou como delta de outro object.
+ */
+public class ObjectStoreService {
+
+    // Cabeçalho dos objects compactados: começa com um byte nulo, raro no início de arquivos de texto
+    private static final byte[] MAGIC = { 0, 'C', 'G', 'O', 'B', 'J', 'Z', 1 };
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    // Define se os novos objects são gravados compactados (opção --compress)
+    private static volatile boolean compression = false;
+
+    public static void setCompression(boolean compression) {
+        ObjectStoreService.compression = compression;
+    }
+
+    public static boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Abre o conteúdo original de um object, procurando primeiro o object solto em objects/xx/
+     * e depois nos packs da pasta objects/pack
+     * @param objectsPath Caminho da pasta objects
+     * @param id Hash do object
+     * @return InputStream com o conteúdo original ou null se o object não existir
+     * @throws IOException Se houver erro ao abrir o object
+     */
+    public static InputStream openObject(Path objectsPath, ObjectId id) throws IOException {
+        Path objectFile = objectsPath.resolve(id.getDirName()).resolve(id.getFileName());
+        try {
+            return openObject(objectFile);
+        } catch (NoSuchFileException e) {
+            return PackFile.openObject(objectsPath, id);
+        }
+    }
+
+    /**
+     * Lê todo o conteúdo original de um object solto ou empacotado
+     * @param objectsPath Caminho da pasta objects
+     * @param id Hash do object
+     * @return Conteúdo original ou null se o object não existir
+     * @throws IOException Se houver erro ao ler o object
+     */
+    public static byte[] readObject(Path objectsPath, ObjectId id) throws IOException {
+        InputStream in = openObject(objectsPath, id);
+        if (in == null) {
+            return null;
+        }
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Confere se o object existe solto (gravado ou pendente no ObjectWriter) ou em um pack
+     * @param objectsPath Caminho da pasta objects
+     * @param id Hash do object
+     * @return true se o object existir
+     * @throws IOException Se houver erro ao ler os packs
+     */
+    public static boolean hasObject(Path objectsPath, ObjectId id) throws IOException {
+        Path objectFile = objectsPath.resolve(id.getDirName()).resolve(id.getFileName());
+        return Files.exists(objectFile) || ObjectWriter.isPending(objectFile) || PackFile.contains(objectsPath, id);
+    }
+
+    /**
+     * Abre o conteúdo original de um object solto, descompactando-o em blocos se necessário
+     * @param objectFile Caminho do object
+     * @return InputStream com o conteúdo original
+     * @throws IOException Se houver erro ao abrir o object
+     */
+    public static InputStream openObject(Path objectFile) throws IOException {
+        try {
+            return decode(Files.newInputStream(objectFile));
+        } catch (NoSuchFileException e) {
+            // O object pode estar no ObjectWriter, aguardando o sync
+            InputStream pending = ObjectWriter.openPending(objectFile);
+            if (pending == null) {
+                throw e;
+            }
+            return pending;
+        }
+    }
+
+    /**
+     * Identifica o formato do object pelo cabeçalho e retorna o stream do conteúdo original
+     * @param raw Stream com os bytes gravados do object (arquivo solto ou entrada de um pack)
+     * @return InputStream com o conteúdo original
+     * @throws IOException Se houver erro ao ler o cabeçalho
+     */
+    static InputStream decode(InputStream raw) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(raw, STREAM_BUFFER_SIZE);
+        try {
+            in.mark(MAGIC.length);
+            byte[] header = in.readNBytes(MAGIC.length);
+            if (Arrays.equals(header, MAGIC)) {
+                return new InflaterInputStream(in, new Inflater(), STREAM_BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        // O Inflater informado no construtor não é liberado pelo InflaterInputStream
+                        super.close();
+                        inf.end();
+                    }
+                };
+            }
+            // Object no formato bruto: volta para o início
+            in.reset();
+            return in;
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lê todo o conteúdo original de um object
+     * @param objectFile Caminho do object
+     * @return Conteúdo original
+     * @throws IOException Se houver erro ao ler o object
+     */
+    public static byte[] readObject(Path objectFile) throws IOException {
+        try (InputStream in = openObject(objectFile)) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Prepara a gravação de um object: se a compactação estiver ativa, escreve o cabeçalho
+     * e retorna um stream que compacta o conteúdo em blocos; caso contrário, retorna o próprio stream
+     * @param out Stream do arquivo do object
+     * @return Stream onde o conteúdo original deve ser escrito
+     * @throws IOException Se houver erro ao escrever o cabeçalho
+     */
+    public static OutputStream openObjectOutput(OutputStream out) throws IOException {
+        if (!compression) {
+            return out;
+        }
+        out.write(MAGIC);
+        // Assim como nos objects soltos do git, prioriza a velocidade da compactação
+        return new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED), STREAM_BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                // O Deflater informado no construtor não é liberado pelo DeflaterOutputStream
+                try {
+                    super.close();
+                } finally {
+                    def.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Grava um object pequeno (tree ou commit) a partir do seu conteúdo em memória
+     * @param objectFile Caminho do object
+     * @param content Conteúdo original
+     * @throws IOException Se houver erro ao gravar o object
+     */
+    public static void writeObject(Path objectFile, byte[] content) throws IOException {
+        try (OutputStream out = openObjectOutput(Files.newOutputStream(objectFile))) {
+            out.write(content);
+        }
+    }
+
+    /**
+     * Escreve o conteúdo restante de um ByteBuffer em um stream, copiando-o em blocos
+     * @param buffer Buffer com o conteúdo (pode ser direto ou mapeado)
+     * @param out Stream de destino
+     * @param chunk Array usado na cópia
+     * @throws IOException Se houver erro ao escrever
+     */
+    public static void write(ByteBuffer buffer, OutputStream out, byte[] chunk) throws IOException {
+        while (buffer.hasRemaining()) {
+            int length = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, length);
+            out.write(chunk, 0, length);
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Grava os objects soltos em segundo plano e os torna duráveis em grupo.
+ *
+ * Os pedidos de gravação entram em uma fila limitada e uma thread os grava em arquivos temporários
+ * na pasta objects, enquanto quem pediu continua trabalhando (se a fila encher, o pedido espera).
+ * O object só aparece no seu caminho definitivo em sync(): os temporários do grupo recebem fsync,
+ * são renomeados e as pastas alteradas recebem fsync, uma vez por pasta. Assim uma queda no meio
+ * do add ou do commit deixa no máximo arquivos tmp_, nunca um object truncado.
+ *
+ * Até o sync, os objects pendentes continuam visíveis para a leitura (ObjectStoreService)
+ * e para a verificação de existência (ObjectExistenceFilter).
+ */
+public class ObjectWriter {
+
+    // Quantidade máxima de objects aguardando a thread de gravação
+    private static final int QUEUE_CAPACITY = 256;
+
+    // Um writer por pasta objects aberta neste processo
+    private static final Map<Path, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private final Path objectsPath;
+    private final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    // Objects ainda não renomeados para o caminho definitivo
+    private final Map<Path, Pending> pending = new ConcurrentHashMap<>();
+    // Objects com o temporário gravado, aguardando o próximo sync
+    private final List<Pending> written = new ArrayList<>();
+    // Pedidos na fila ou em gravação
+    private int inFlight;
+    private IOException failure;
+    private Thread thread;
+
+    /**
+     * Object pendente: o conteúdo original (até ser gravado) e o arquivo temporário
+     */
+    private static class Pending {
+        final Path objectFile;
+        volatile byte[] content;
+        volatile Path tempFile;
+
+        Pending(Path objectFile, byte[] content, Path tempFile) {
+            this.objectFile = objectFile;
+            this.content = content;
+            this.tempFile = tempFile;
+        }
+    }
+
+    private ObjectWriter(Path objectsPath) {
+        this.objectsPath = objectsPath;
+    }
+
+    /**
+     * Retorna o writer da pasta objects, criando-o na primeira chamada
+     * @param objectsPath Caminho da pasta .criptogit/objects
+     * @return Writer da pasta objects
+     */
+    public static ObjectWriter forObjects(Path objectsPath) {
+        return writers.computeIfAbsent(objectsPath.toAbsolutePath().normalize(), ObjectWriter::new);
+    }
+
+    /**
+     * Coloca um object na fila de gravação. Se o mesmo object já estiver pendente, nada é feito
+     * @param objectFile Caminho definitivo do object (objects/xx/nome)
+     * @param content Conteúdo original
+     * @throws IOException Se uma gravação anterior tiver falhado ou a espera for interrompida
+     */
+    public void write(Path objectFile, byte[] content) throws IOException {
+        Path key = objectFile.toAbsolutePath().normalize();
+        Pending item = new Pending(key, content, null);
+        if (pending.putIfAbsent(key, item) != null) {
+            return;
+        }
+        synchronized (this) {
+            checkFailure();
+            inFlight++;
+            if (thread == null) {
+                thread = new Thread(this::processQueue, "criptogit-object-writer");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.remove(key);
+            finished(item, null);
+            throw new IOException("Gravação do object interrompida: " + objectFile.getFileName());
+        }
+    }
+
+    /**
+     * Inclui no próximo grupo um object já gravado em um arquivo temporário da pasta objects.
+     * O temporário passa a pertencer ao writer, que o renomeia no sync
+     * @param tempFile Arquivo temporário com os bytes do object
+     * @param objectFile Caminho definitivo do object
+     * @return false se o object já estiver pendente (o temporário não é usado)
+     */
+    public boolean submit(Path tempFile, Path objectFile) {
+        Path key = objectFile.toAbsolutePath().normalize();
+        Pending item = new Pending(key, null, tempFile);
+        if (pending.putIfAbsent(key, item) != null) {
+            return false;
+        }
+        synchronized (this) {
+            written.add(item);
+        }
+        return true;
+    }
+
+    /**
+     * Espera a fila esvaziar e torna duráveis todos os objects pendentes:
+     * fsync dos temporários, renomeação para o caminho definitivo e fsync das pastas
+     * @throws IOException Se alguma gravação tiver falhado
+     */
+    public void sync() throws IOException {
+        List<Pending> group;
+        synchronized (this) {
+            while (inFlight > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Sincronização dos objects interrompida.");
+                }
+            }
+            group = new ArrayList<>(written);
+            written.clear();
+            IOException error = failure;
+            failure = null;
+            if (error != null) {
+                discard(group);
+                throw error;
+            }
+        }
+        if (group.isEmpty()) {
+            return;
+        }
+        try {
+            for (Pending item : group) {
+                force(item.tempFile, StandardOpenOption.WRITE);
+            }
+            // Pastas alteradas pelas renomeações, incluindo a própria pasta objects (pastas xx novas)
+            Set<Path> directories = new LinkedHashSet<>();
+            directories.add(objectsPath);
+            for (Pending item : group) {
+                rename(item.tempFile, item.objectFile);
+                pending.remove(item.objectFile);
+                directories.add(item.objectFile.getParent());
+            }
+            for (Path directory : directories) {
+                forceDirectory(directory);
+            }
+        } catch (IOException e) {
+            discard(group);
+            throw new IOException("Erro ao sincronizar os objects: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sincroniza todos os writers abertos neste processo
+     * @throws IOException Se alguma gravação tiver falhado
+     */
+    public static void syncAll() throws IOException {
+        for (ObjectWriter writer : writers.values()) {
+            writer.sync();
+        }
+    }
+
+    /**
+     * Confere se um object está pendente neste processo
+     * @param objectFile Caminho definitivo do object
+     * @return true se o object estiver na fila ou aguardando o sync
+     */
+    public static boolean isPending(Path objectFile) {
+        ObjectWriter writer = writerOf(objectFile);
+        return writer != null && writer.pending.containsKey(objectFile.toAbsolutePath().normalize());
+    }
+
+    /**
+     * Abre os bytes gravados de um object pendente
+     * @param objectFile Caminho definitivo do object
+     * @return Stream com o conteúdo original ou null se o object não estiver pendente
+     * @throws IOException Se houver erro ao abrir o temporário
+     */
+    static InputStream openPending(Path objectFile) throws IOException {
+        ObjectWriter writer = writerOf(objectFile);
+        Pending item = writer == null ? null : writer.pending.get(objectFile.toAbsolutePath().normalize());
+        if (item == null) {
+            return null;
+        }
+        byte[] content = item.content;
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
+        try {
+            return ObjectStoreService.decode(Files.newInputStream(item.tempFile));
+        } catch (NoSuchFileException e) {
+            // O sync renomeou o temporário depois da primeira tentativa de leitura
+            return ObjectStoreService.decode(Files.newInputStream(objectFile));
+        }
+    }
+
+    private static ObjectWriter writerOf(Path objectFile) {
+        if (writers.isEmpty()) {
+            return null;
+        }
+        Path objectsPath = objectFile.toAbsolutePath().normalize().getParent().getParent();
+        return objectsPath == null ? null : writers.get(objectsPath);
+    }
+
+    private void processQueue() {
+        while (true) {
+            Pending item;
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            Path tempFile = null;
+            IOException error = null;
+            try {
+                tempFile = Files.createTempFile(objectsPath, "tmp_", null);
+                try (OutputStream out = ObjectStoreService.openObjectOutput(Files.newOutputStream(tempFile))) {
+                    out.write(item.content);
+                }
+                item.tempFile = tempFile;
+            } catch (IOException e) {
+                error = new IOException("Erro ao gravar o object " + item.objectFile.getFileName() + ": " + e.getMessage());
+                pending.remove(item.objectFile);
+                deleteQuietly(tempFile);
+            }
+            finished(item, error);
+        }
+    }
+
+    private synchronized void finished(Pending item, IOException error) {
+        if (error != null) {
+            if (failure == null) {
+                failure = error;
+            }
+        } else if (item.tempFile != null) {
+            written.add(item);
+        }
+        inFlight--;
+        notifyAll();
+    }
+
+    // Remove os temporários de um grupo que não pôde ser sincronizado
+    private void discard(List<Pending> group) {
+        for (Pending item : group) {
+            pending.remove(item.objectFile);
+            deleteQuietly(item.tempFile);
+        }
+    }
+
+    private synchronized void checkFailure() throws IOException {
+        if (failure != null) {
+            IOException error = failure;
+            failure = null;
+            throw error;
+        }
+    }
+
+    private static void rename(Path tempFile, Path objectFile) throws IOException {
+        try {
+            Files.move(tempFile, objectFile, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, objectFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (FileAlreadyExistsException e) {
+            // O object já existia com o mesmo conteúdo
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static void force(Path file, StandardOpenOption mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, mode)) {
+            channel.force(true);
+        }
+    }
+
+    private static void forceDirectory(Path directory) {
+        try {
+            force(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Alguns sistemas (como o Windows) não permitem abrir pastas: a renomeação já foi feita
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Erro ao remover o arquivo temporário " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Leitura de um arquivo pack da pasta .criptogit/objects/pack, gerado pelo PackService.
+ *
+ * pack: "CGPK" | versão (int) | quantidade de objects (int)
+ *       entrada completa: 0 (byte) | tamanho (long) | bytes do object, iguais aos do object solto (bruto ou compactado)
+ *       entrada delta:    1 (byte) | tamanho (long) | hash da base (20 bytes) | instruções do Delta sobre o conteúdo original
+ *       final: SHA-1 de todo o conteúdo anterior (20 bytes)
+ *
+ * idx:  "CGPI" | versão (int) | quantidade de objects (int)
+ *       fan-out: 256 ints com a quantidade acumulada de hashes cujo primeiro byte é menor ou igual ao índice
+ *       hashes ordenadas (20 bytes cada) | posição de cada entrada no pack (long)
+ *       final: SHA-1 do pack (20 bytes)
+ *
+ * Os dois arquivos são mapeados em memória: a busca de uma hash usa o fan-out para limitar
+ * a busca binária às hashes com o mesmo primeiro byte e lê apenas as páginas necessárias.
+ * As bases dos deltas são resolvidas pela hash (soltas ou empacotadas) e mantidas em um cache LRU.
+ */
+public class PackFile {
+
+    static final int PACK_MAGIC = 0x4347504B; // "CGPK"
+    static final int IDX_MAGIC = 0x43475049; // "CGPI"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    static final int FANOUT_SIZE = 256;
+    // Tipos de entrada: object completo ou delta sobre outro object
+    static final byte TYPE_FULL = 0;
+    static final byte TYPE_DELTA = 1;
+    // Tipo (byte) + tamanho (long) de cada entrada
+    static final int ENTRY_HEADER_SIZE = 9;
+
+    // Packs carregados por pasta objects aberta neste processo
+    private static final Map<Path, List<PackFile>> packs = new ConcurrentHashMap<>();
+    // Conteúdo original das bases de deltas lidas recentemente
+    private static final ObjectContentCache baseCache = new ObjectContentCache(32L * 1024 * 1024);
+
+    private final Path packPath;
+    private final MappedByteBuffer idx;
+    private final MappedByteBuffer pack;
+    private final int count;
+    private final int idsOffset;
+    private final int offsetsOffset;
+
+    private PackFile(Path packPath, MappedByteBuffer idx, MappedByteBuffer pack) throws IOException {
+        this.packPath = packPath;
+        this.idx = idx;
+        this.pack = pack;
+        if (idx.capacity() < HEADER_SIZE || idx.getInt(0) != IDX_MAGIC || idx.getInt(4) != VERSION) {
+            throw new IOException("Idx inválido: " + packPath.getFileName());
+        }
+        if (pack.capacity() < HEADER_SIZE + ObjectId.SIZE || pack.getInt(0) != PACK_MAGIC || pack.getInt(4) != VERSION) {
+            throw new IOException("Pack inválido: " + packPath.getFileName());
+        }
+        this.count = idx.getInt(8);
+        this.idsOffset = HEADER_SIZE + FANOUT_SIZE * 4;
+        this.offsetsOffset = idsOffset + count * ObjectId.SIZE;
+        if (pack.getInt(8) != count || idx.capacity() != offsetsOffset + count * 8L + ObjectId.SIZE) {
+            throw new IOException("Idx não corresponde ao pack: " + packPath.getFileName());
+        }
+    }
+
+    /**
+     * Retorna os packs da pasta objects, carregando-os na primeira chamada
+     * @param objectsPath Caminho da pasta .criptogit/objects
+     * @return Packs da pasta objects
+     * @throws IOException Se houver erro ao abrir os packs
+     */
+    public static List<PackFile> forObjects(Path objectsPath) throws IOException {
+        Path key = objectsPath.toAbsolutePath().normalize();
+        List<PackFile> loaded = packs.get(key);
+        if (loaded == null) {
+            loaded = reload(key);
+        }
+        return loaded;
+    }
+
+    /**
+     * Recarrega os packs a partir do conteúdo atual da pasta objects/pack.
+     * Um pack só é considerado depois que o seu idx existe, pois o idx é gravado por último
+     * @param objectsPath Caminho da pasta .criptogit/objects
+     * @return Packs da pasta objects
+     * @throws IOException Se houver erro ao abrir os packs
+     */
+    public static List<PackFile> reload(Path objectsPath) throws IOException {
+        Path key = objectsPath.toAbsolutePath().normalize();
+        Path packDir = key.resolve("pack");
+        List<PackFile> loaded = new ArrayList<>();
+        if (Files.isDirectory(packDir)) {
+            try (var files = Files.newDirectoryStream(packDir, "pack-*.idx")) {
+                for (Path idxPath : files) {
+                    String name = idxPath.getFileName().toString();
+                    Path packPath = packDir.resolve(name.substring(0, name.length() - 4) + ".pack");
+                    if (Files.exists(packPath)) {
+                        loaded.add(open(packPath, idxPath));
+                    }
+                }
+            }
+        }
+        loaded = Collections.unmodifiableList(loaded);
+        packs.put(key, loaded);
+        return loaded;
+    }
+
+    /**
+     * Abre o conteúdo original de um object empacotado, aplicando o delta se necessário
+     * @param objectsPath Caminho da pasta .criptogit/objects
+     * @param id Hash do object
+     * @return Stream com o conteúdo original ou null se nenhum pack o contiver
+     * @throws IOException Se houver erro ao ler o pack
+     */
+    public static InputStream openObject(Path objectsPath, ObjectId id) throws IOException {
+        for (PackFile packFile : forObjects(objectsPath)) {
+            int position = packFile.find(id);
+            if (position < 0) {
+                continue;
+            }
+            ByteBuffer entry = packFile.getEntry(position);
+            if (packFile.getType(position) == TYPE_FULL) {
+                return ObjectStoreService.decode(new ByteBufferInputStream(entry));
+            }
+            return new ByteArrayInputStream(resolveDelta(objectsPath, entry));
+        }
+        return null;
+    }
+
+    /**
+     * Reconstrói o conteúdo de uma entrada delta a partir da sua base
+     */
+    private static byte[] resolveDelta(Path objectsPath, ByteBuffer entry) throws IOException {
+        byte[] payload = new byte[entry.remaining()];
+        entry.get(payload);
+        ObjectId baseId = ObjectId.fromBytes(payload, 0);
+        byte[] base = baseCache.get(baseId);
+        if (base == null) {
+            // A base pode ser outro delta: a profundidade das cadeias é limitada pelo PackService
+            base = ObjectStoreService.readObject(objectsPath, baseId);
+            if (base == null) {
+                throw new IOException("Base do delta não encontrada: " + baseId);
+            }
+            baseCache.put(baseId, base);
+        }
+        return Delta.apply(base, payload, ObjectId.SIZE);
+    }
+
+    /**
+     * Confere se algum pack da pasta objects contém o object
+     */
+    public static boolean contains(Path objectsPath, ObjectId id) throws IOException {
+        for (PackFile packFile : forObjects(objectsPath)) {
+            if (packFile.find(id) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static PackFile open(Path packPath, Path idxPath) throws IOException {
+        MappedByteBuffer idx;
+        MappedByteBuffer pack;
+        try (FileChannel channel = FileChannel.open(idxPath, StandardOpenOption.READ)) {
+            idx = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try (FileChannel channel = FileChannel.open(packPath, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Pack muito grande: " + packPath.getFileName());
+            }
+            pack = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return new PackFile(packPath, idx, pack);
+    }
+
+    /**
+     * Procura a posição de uma hash no idx
+     * @param id Hash procurada
+     * @return Posição da hash no idx ou -1 se o pack não contiver o object
+     */
+    public int find(ObjectId id) {
+        byte[] target = new byte[ObjectId.SIZE];
+        id.copyTo(target, 0);
+        int first = target[0] & 0xFF;
+        // O fan-out limita a busca às hashes que começam com o mesmo byte
+        int low = first == 0 ? 0 : idx.getInt(HEADER_SIZE + (first - 1) * 4);
+        int high = idx.getInt(HEADER_SIZE + first * 4) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int cmp = compare(middle, target);
+            if (cmp < 0) {
+                low = middle + 1;
+            } else if (cmp > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retorna os bytes gravados de uma entrada do pack
+     * @param position Posição da hash no idx
+     * @return Buffer somente com os bytes do object
+     * @throws IOException Se a entrada estiver corrompida
+     */
+    public ByteBuffer getEntry(int position) throws IOException {
+        long offset = getOffset(position);
+        if (offset < HEADER_SIZE || offset + ENTRY_HEADER_SIZE > pack.capacity() - ObjectId.SIZE) {
+            throw new IOException("Pack corrompido: posição inválida em " + packPath.getFileName());
+        }
+        byte type = pack.get((int) offset);
+        long length = pack.getLong((int) offset + 1);
+        if (type != TYPE_FULL && type != TYPE_DELTA) {
+            throw new IOException("Tipo de entrada não suportado no pack " + packPath.getFileName() + ": " + type);
+        }
+        if (length < 0 || offset + ENTRY_HEADER_SIZE + length > pack.capacity() - ObjectId.SIZE) {
+            throw new IOException("Pack corrompido: tamanho inválido em " + packPath.getFileName());
+        }
+        return pack.slice((int) offset + ENTRY_HEADER_SIZE, (int) length);
+    }
+
+    /**
+     * Tipo da entrada do pack (TYPE_FULL ou TYPE_DELTA)
+     */
+    public byte getType(int position) {
+        return pack.get((int) getOffset(position));
+    }
+
+    public ObjectId getId(int position) {
+        byte[] bytes = new byte[ObjectId.SIZE];
+        idx.get(idsOffset + position * ObjectId.SIZE, bytes);
+        return ObjectId.fromBytes(bytes);
+    }
+
+    public long getOffset(int position) {
+        return idx.getLong(offsetsOffset + position * 8);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public Path getPackPath() {
+        return packPath;
+    }
+
+    public Path getIdxPath() {
+        String name = packPath.getFileName().toString();
+        return packPath.resolveSibling(name.substring(0, name.length() - 5) + ".idx");
+    }
+
+    // Compara a hash da posição do idx com a hash procurada, byte a byte e sem sinal
+    private int compare(int position, byte[] target) {
+        int base = idsOffset + position * ObjectId.SIZE;
+        for (int i = 0; i < ObjectId.SIZE; i++) {
+            int cmp = Integer.compare(idx.get(base + i) & 0xFF, target[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * InputStream sobre um ByteBuffer, usado para ler as entradas mapeadas sem copiá-las
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int length = Math.min(len, buffer.remaining());
+            buffer.get(b, off, length);
+            return length;
+        }
+
+        @Override
+        public long skip(long n) {
+            int length = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + length);
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
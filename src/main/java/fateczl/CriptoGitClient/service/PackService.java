@@ -0,0 +1,437 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Agrupa os objects soltos da pasta .criptogit/objects em arquivos pack (formato descrito em PackFile).
+ *
+ * Os objects são gravados na ordem em que são percorridos a partir do HEAD: cada commit, a sua tree,
+ * os blobs da tree e depois as subtrees. Assim os objects lidos juntos pelo commit e pelo unlock
+ * ficam próximos no pack.
+ *
+ * Cada blob é gravado como delta da versão mais recente do mesmo caminho quando o delta tem menos
+ * da metade do tamanho do blob. Como o percurso vai do HEAD para os commits anteriores, a versão
+ * atual fica completa e as anteriores são deltas dela, em cadeias de no máximo MAX_DELTA_DEPTH deltas.
+ * Os chunks dos arquivos divididos pelo ChunkService são gravados logo após a sua lista de chunks.
+ */
+public class PackService {
+
+    // Tamanho máximo de um pack: o pack inteiro é mapeado em memória
+    private static final long MAX_PACK_SIZE = 1L << 30;
+    // Profundidade máxima de uma cadeia de deltas: limita as leituras para reconstruir um object
+    private static final int MAX_DELTA_DEPTH = 10;
+    // Objects maiores que este tamanho não são comparados para gerar deltas
+    private static final int MAX_DELTA_SOURCE = 16 * 1024 * 1024;
+
+    /**
+     * Object a ser gravado no pack: vem de um arquivo solto ou de um pack anterior
+     */
+    private static class PackEntry {
+        ObjectId id;
+        Path looseFile;
+        PackFile sourcePack;
+        int sourcePosition;
+        // Tipo da entrada e, para deltas ou entradas recodificadas, os bytes a serem gravados
+        byte type = PackFile.TYPE_FULL;
+        byte[] data;
+        int depth;
+        long size;
+        long offset;
+    }
+
+    /**
+     * Agrupa em packs os objects alcançáveis a partir do HEAD e os objects dos packs anteriores.
+     * Os objects soltos empacotados e os packs anteriores são removidos;
+     * os arquivos .key e os objects soltos não alcançáveis continuam na pasta objects
+     * @param repositorioPath Caminho do repositório
+     * @throws Exception Se houver erro ao ler ou gravar os objects
+     */
+    public void repack(String repositorioPath) throws Exception {
+        Path objectsPath = Paths.get(repositorioPath, ".criptogit", "objects");
+        Path headPath = Paths.get(repositorioPath, ".criptogit", "HEAD");
+        if (!Files.exists(headPath) || Files.readString(headPath).trim().isEmpty()) {
+            System.out.println("Nenhum commit encontrado para empacotar.");
+            return;
+        }
+
+        // Os objects pendentes precisam estar no caminho definitivo para serem empacotados e removidos
+        ObjectWriter.forObjects(objectsPath).sync();
+        List<PackFile> oldPacks = PackFile.forObjects(objectsPath);
+
+        // Ordena os objects pela ordem de leitura a partir do HEAD
+        Set<ObjectId> ordered = new LinkedHashSet<>();
+        // Base candidata de cada blob: a versão do mesmo caminho encontrada antes no percurso
+        Map<String, ObjectId> latestByPath = new HashMap<>();
+        Map<ObjectId, ObjectId> deltaBases = new HashMap<>();
+        ObjectId commitHash = ObjectId.fromHex(Files.readString(headPath).trim());
+        while (commitHash != null && ordered.add(commitHash)) {
+            byte[] content = ObjectStoreService.readObject(objectsPath, commitHash);
+            if (content == null) {
+                throw new Exception("Erro ao empacotar objects: commit não encontrado: " + commitHash);
+            }
+            ObjectId treeHash = null;
+            ObjectId parentHash = null;
+            for (String line : new String(content).split("\n")) {
+                if (line.startsWith("tree ")) {
+                    treeHash = ObjectId.fromHex(line, 5);
+                } else if (line.startsWith("parent ")) {
+                    parentHash = ObjectId.fromHex(line, 7);
+                }
+            }
+            if (treeHash != null) {
+                collectTree(objectsPath, treeHash, "", ordered, latestByPath, deltaBases);
+            }
+            commitHash = parentHash;
+        }
+        // Os objects dos packs anteriores não alcançáveis pelo HEAD são mantidos no final
+        for (PackFile packFile : oldPacks) {
+            for (int i = 0; i < packFile.getCount(); i++) {
+                ordered.add(packFile.getId(i));
+            }
+        }
+
+        List<PackEntry> entries = new ArrayList<>(ordered.size());
+        Map<ObjectId, PackEntry> packed = new HashMap<>();
+        ObjectContentCache contentCache = new ObjectContentCache(64L * 1024 * 1024);
+        int deltas = 0;
+        for (ObjectId id : ordered) {
+            PackEntry entry = resolveEntry(objectsPath, oldPacks, id);
+            if (deltifyEntry(objectsPath, entry, packed.get(deltaBases.get(id)), contentCache)) {
+                deltas++;
+            } else if (entry.sourcePack != null && entry.sourcePack.getType(entry.sourcePosition) != PackFile.TYPE_FULL) {
+                // Delta de um pack anterior sem base no novo pack: grava o object completo
+                entry.data = encodeObject(ObjectStoreService.readObject(objectsPath, id));
+                entry.size = entry.data.length;
+            }
+            // Objects maiores que o pack continuam soltos
+            if (entry.size + PackFile.ENTRY_HEADER_SIZE + PackFile.HEADER_SIZE + ObjectId.SIZE > MAX_PACK_SIZE) {
+                continue;
+            }
+            entries.add(entry);
+            packed.put(id, entry);
+        }
+
+        // Grava os novos packs, iniciando outro pack quando o atual atinge o tamanho máximo
+        Path packDir = objectsPath.resolve("pack");
+        Files.createDirectories(packDir);
+        Set<Path> newPacks = new HashSet<>();
+        int start = 0;
+        while (start < entries.size()) {
+            long packSize = PackFile.HEADER_SIZE + ObjectId.SIZE;
+            int end = start;
+            while (end < entries.size()
+                    && packSize + PackFile.ENTRY_HEADER_SIZE + entries.get(end).size <= MAX_PACK_SIZE) {
+                packSize += PackFile.ENTRY_HEADER_SIZE + entries.get(end).size;
+                end++;
+            }
+            newPacks.add(writePack(packDir, entries.subList(start, end)));
+            start = end;
+        }
+
+        // A partir daqui os leitores passam a usar os novos packs
+        PackFile.reload(objectsPath);
+        for (PackFile packFile : oldPacks) {
+            if (!newPacks.contains(packFile.getPackPath())) {
+                // O idx é removido primeiro: um pack sem idx é ignorado
+                deleteQuietly(packFile.getIdxPath());
+                deleteQuietly(packFile.getPackPath());
+            }
+        }
+        for (PackEntry entry : entries) {
+            if (entry.looseFile != null) {
+                deleteQuietly(entry.looseFile);
+            }
+        }
+        ObjectExistenceFilter.load(objectsPath);
+
+        System.out.println("Repack concluído: " + entries.size() + " objects (" + deltas + " deltas) em "
+            + newPacks.size() + " pack(s).");
+    }
+
+    /**
+     * Adiciona uma tree, os seus blobs e depois as suas subtrees à lista de objects,
+     * registrando a versão mais recente de cada caminho como base candidata dos blobs novos
+     */
+    private void collectTree(Path objectsPath, ObjectId treeHash, String currentPath, Set<ObjectId> ordered,
+            Map<String, ObjectId> latestByPath, Map<ObjectId, ObjectId> deltaBases) throws Exception {
+        if (!ordered.add(treeHash)) {
+            return;
+        }
+        byte[] content = ObjectStoreService.readObject(objectsPath, treeHash);
+        if (content == null) {
+            throw new Exception("Erro ao empacotar objects: tree não encontrada: " + treeHash);
+        }
+        List<String[]> subtrees = new ArrayList<>();
+        for (String line : new String(content).split("\n")) {
+            String[] parts = TreeService.splitTreeLine(line);
+            if (parts == null) {
+                continue;
+            }
+            if (parts[0].equals("tree")) {
+                subtrees.add(parts);
+                continue;
+            }
+            ObjectId hash = ObjectId.fromHex(parts[2]);
+            String path = currentPath + "/" + parts[1];
+            if (ordered.add(hash)) {
+                ObjectId base = latestByPath.get(path);
+                if (base != null) {
+                    deltaBases.put(hash, base);
+                }
+                // Os chunks de um arquivo dividido ficam logo após a sua lista de chunks
+                ordered.addAll(readChunkList(objectsPath, hash));
+            }
+            latestByPath.put(path, hash);
+        }
+        for (String[] subtree : subtrees) {
+            collectTree(objectsPath, ObjectId.fromHex(subtree[2]), currentPath + "/" + subtree[1],
+                ordered, latestByPath, deltaBases);
+        }
+    }
+
+    /**
+     * Lê os chunks de um blob que seja uma lista de chunks, conferindo apenas o cabeçalho dos demais blobs
+     * @return Hashes dos chunks ou lista vazia se o blob não for uma lista de chunks
+     */
+    private List<ObjectId> readChunkList(Path objectsPath, ObjectId blobHash) throws IOException {
+        try (InputStream in = ObjectStoreService.openObject(objectsPath, blobHash)) {
+            if (in == null) {
+                throw new IOException("Blob não encontrado: " + blobHash);
+            }
+            byte[] header = in.readNBytes(ChunkService.MAGIC.length);
+            if (!ChunkService.isChunkList(header)) {
+                return List.of();
+            }
+            byte[] rest = in.readAllBytes();
+            byte[] content = Arrays.copyOf(header, header.length + rest.length);
+            System.arraycopy(rest, 0, content, header.length, rest.length);
+            return ChunkService.parseChunkList(content);
+        }
+    }
+
+    /**
+     * Localiza os bytes gravados de um object, dando preferência ao object solto
+     */
+    private PackEntry resolveEntry(Path objectsPath, List<PackFile> oldPacks, ObjectId id) throws Exception {
+        PackEntry entry = new PackEntry();
+        entry.id = id;
+        Path looseFile = objectsPath.resolve(id.getDirName()).resolve(id.getFileName());
+        if (Files.exists(looseFile)) {
+            entry.looseFile = looseFile;
+            entry.size = Files.size(looseFile);
+            return entry;
+        }
+        for (PackFile packFile : oldPacks) {
+            int position = packFile.find(id);
+            if (position >= 0) {
+                entry.sourcePack = packFile;
+                entry.sourcePosition = position;
+                entry.size = packFile.getEntry(position).remaining();
+                return entry;
+            }
+        }
+        throw new Exception("Erro ao empacotar objects: object não encontrado: " + id);
+    }
+
+    /**
+     * Tenta gravar a entrada como delta da base, respeitando a profundidade máxima das cadeias
+     * @param base Entrada da base no novo pack ou null se o blob não tiver base
+     * @return true se a entrada passou a ser um delta
+     */
+    private boolean deltifyEntry(Path objectsPath, PackEntry entry, PackEntry base, ObjectContentCache contentCache)
+            throws Exception {
+        if (base == null || base.depth >= MAX_DELTA_DEPTH) {
+            return false;
+        }
+        byte[] baseContent = readContent(objectsPath, base.id, contentCache);
+        byte[] content = readContent(objectsPath, entry.id, contentCache);
+        if (baseContent == null || content == null) {
+            return false;
+        }
+        // Só compensa se o delta tiver menos da metade do tamanho do object
+        int maxDeltaSize = content.length / 2 - ObjectId.SIZE;
+        if (maxDeltaSize <= 0) {
+            return false;
+        }
+        byte[] delta = Delta.create(baseContent, content, maxDeltaSize);
+        if (delta == null) {
+            return false;
+        }
+        entry.type = PackFile.TYPE_DELTA;
+        entry.data = new byte[ObjectId.SIZE + delta.length];
+        base.id.copyTo(entry.data, 0);
+        System.arraycopy(delta, 0, entry.data, ObjectId.SIZE, delta.length);
+        entry.size = entry.data.length;
+        entry.depth = base.depth + 1;
+        return true;
+    }
+
+    /**
+     * Lê o conteúdo original de um object para o cálculo de deltas
+     * @return Conteúdo ou null se o object for grande demais para ser comparado
+     */
+    private byte[] readContent(Path objectsPath, ObjectId id, ObjectContentCache contentCache) throws IOException {
+        byte[] content = contentCache.get(id);
+        if (content != null) {
+            return content;
+        }
+        try (InputStream in = ObjectStoreService.openObject(objectsPath, id)) {
+            if (in == null) {
+                return null;
+            }
+            content = in.readNBytes(MAX_DELTA_SOURCE + 1);
+        }
+        if (content.length > MAX_DELTA_SOURCE) {
+            return null;
+        }
+        contentCache.put(id, content);
+        return content;
+    }
+
+    /**
+     * Gera os bytes de uma entrada completa no mesmo formato do object solto
+     */
+    private byte[] encodeObject(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length);
+        try (OutputStream out = ObjectStoreService.openObjectOutput(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Grava um pack e o seu idx em arquivos temporários e os renomeia para pack-<sha1>.pack/.idx
+     * @return Caminho do pack gravado
+     */
+    private Path writePack(Path packDir, List<PackEntry> entries) throws IOException {
+        Path tempPack = Files.createTempFile(packDir, "pack", ".tmp");
+        Path tempIdx = Files.createTempFile(packDir, "idx", ".tmp");
+        try {
+            byte[] checksum;
+            try (FileChannel channel = FileChannel.open(tempPack, StandardOpenOption.WRITE)) {
+                MessageDigest md = newDigest();
+                OutputStream fileOut = new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024);
+                DataOutputStream out = new DataOutputStream(new DigestOutputStream(fileOut, md));
+                out.writeInt(PackFile.PACK_MAGIC);
+                out.writeInt(PackFile.VERSION);
+                out.writeInt(entries.size());
+                long offset = PackFile.HEADER_SIZE;
+                byte[] chunk = new byte[64 * 1024];
+                for (PackEntry entry : entries) {
+                    entry.offset = offset;
+                    out.writeByte(entry.type);
+                    out.writeLong(entry.size);
+                    if (entry.data != null) {
+                        out.write(entry.data);
+                    } else if (entry.looseFile != null) {
+                        Files.copy(entry.looseFile, out);
+                    } else {
+                        ByteBuffer data = entry.sourcePack.getEntry(entry.sourcePosition);
+                        ObjectStoreService.write(data, out, chunk);
+                    }
+                    offset += PackFile.ENTRY_HEADER_SIZE + entry.size;
+                }
+                out.flush();
+                checksum = md.digest();
+                // O checksum não passa pelo DigestOutputStream
+                fileOut.write(checksum);
+                fileOut.flush();
+                channel.force(true);
+            }
+
+            // idx: hashes ordenadas com o fan-out pelo primeiro byte
+            List<PackEntry> sorted = new ArrayList<>(entries);
+            sorted.sort((a, b) -> a.id.compareTo(b.id));
+            int[] fanout = new int[PackFile.FANOUT_SIZE];
+            byte[] hash = new byte[ObjectId.SIZE];
+            for (PackEntry entry : sorted) {
+                entry.id.copyTo(hash, 0);
+                fanout[hash[0] & 0xFF]++;
+            }
+            for (int i = 1; i < fanout.length; i++) {
+                fanout[i] += fanout[i - 1];
+            }
+            try (FileChannel channel = FileChannel.open(tempIdx, StandardOpenOption.WRITE)) {
+                DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024));
+                out.writeInt(PackFile.IDX_MAGIC);
+                out.writeInt(PackFile.VERSION);
+                out.writeInt(sorted.size());
+                for (int count : fanout) {
+                    out.writeInt(count);
+                }
+                for (PackEntry entry : sorted) {
+                    entry.id.copyTo(hash, 0);
+                    out.write(hash);
+                }
+                for (PackEntry entry : sorted) {
+                    out.writeLong(entry.offset);
+                }
+                out.write(checksum);
+                out.flush();
+                channel.force(true);
+            }
+
+            // O pack é renomeado antes do idx: um pack só é lido depois que o seu idx existe
+            String name = "pack-" + ObjectId.fromBytes(checksum).toHex();
+            Path packPath = packDir.resolve(name + ".pack");
+            move(tempPack, packPath);
+            move(tempIdx, packDir.resolve(name + ".idx"));
+            return packPath;
+        } finally {
+            Files.deleteIfExists(tempPack);
+            Files.deleteIfExists(tempIdx);
+        }
+    }
+
+    private void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Em alguns sistemas um arquivo ainda mapeado não pode ser removido: fica para o próximo repack
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Não foi possível remover " + file.getFileName() + ": " + e.getMessage());
+        }
+    }
+
+    private MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (Exception e) {
+            throw new IOException("SHA-1 indisponível: " + e.getMessage());
+        }
+    }
+}
@@ -103,10 +103,11 @@ public class PushService {
             .forEach(file -> {
                 try {
                     byte[] content = Files.readAllBytes(file);
-                    String hash = file.getFileName().toString();
+                    // Os arquivos da pasta locked têm nomes criptografados, que não são hashes SHA-1
+                    String name = file.getFileName().toString();
                     
                     Blob blob = new Blob();
-                    blob.setHash(hash);
+                    blob.setRelativePath(name);
                     blob.setContent(content);
                     
                     blobs.add(blob);
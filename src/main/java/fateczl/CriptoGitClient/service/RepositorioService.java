@@ -1,7 +1,6 @@
 package fateczl.CriptoGitClient.service;
 
 import fateczl.CriptoGitClient.model.Repositorio;
-import fateczl.CriptoGitClient.model.Blob;
 import fateczl.CriptoGitClient.model.Index;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -11,8 +10,6 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
-import java.util.List;
-import java.util.ArrayList;
 import java.util.Map;
 import java.util.HashMap;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -91,6 +88,8 @@ public class RepositorioService {
                 throw new IOException("Erro ao criar o diretório objects.");
             }
         }
+        // Monta o filtro de existência dos objects a partir da pasta objects
+        ObjectExistenceFilter.load(objectsPath);
         // Cria o diretório keys dentro do .criptogit se não existir
         Path keysPath = Paths.get(path, ".criptogit", "keys");
         if (!Files.exists(keysPath)) {
@@ -102,25 +101,14 @@ public class RepositorioService {
         }
 
         // Cria o arquivo index se não existir
+        // Se existir, carrega as entradas para usar em memória (convertendo o formato texto antigo, se necessário)
         Path indexPath = Paths.get(path, ".criptogit", "index");
-        index = new Index();
+        IndexService indexService = new IndexService();
         if (!Files.exists(indexPath)) {
-            Files.write(indexPath, new byte[0]);
+            index = new Index();
+            indexService.write(index, path);
         } else {
-            // Se o arquivo index existir, lê todas as linhas e cria uma lista de blobs para usar em memória
-            List<String> indexBlobs = Files.readAllLines(indexPath);
-            List<Blob> blobs = new ArrayList<>();
-            for (String indexBlob : indexBlobs) {
-                // Ignora linhas vazias
-                if (indexBlob.isEmpty()) {
-                    continue;
-                }
-                Blob blob = new Blob();
-                blob.setHash(indexBlob.split(" ")[0]);
-                blob.setRelativePath(indexBlob.split(" ")[1]);
-                blobs.add(blob);                
-            }
-            index.setBlobs(blobs);
+            index = indexService.load(path);
         }
         
         System.out.println("Repositório inicializado com sucesso: " + repositorio.getName());       
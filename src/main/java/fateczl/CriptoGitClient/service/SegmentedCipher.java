@@ -0,0 +1,214 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Formato criptografado dos objects na pasta locked: AES-GCM em segmentos autenticados de tamanho fixo.
+ *
+ * cabeçalho: "CGAE" | versão (byte) | tamanho do segmento (int) | prefixo do nonce (7 bytes aleatórios)
+ * segmentos: AES-GCM de até "tamanho do segmento" bytes do conteúdo original, seguido da tag (16 bytes)
+ *
+ * O nonce de cada segmento é o prefixo, o número do segmento (int) e um byte que indica o último segmento,
+ * e o cabeçalho entra como dado autenticado em todos eles. Assim um segmento não pode ser trocado de posição,
+ * removido do final ou ter o cabeçalho alterado sem que a tag falhe.
+ *
+ * A criptografia e a descriptografia leem e gravam um segmento por vez em buffers diretos reaproveitados
+ * pela thread, então a memória usada por object é constante, qualquer que seja o tamanho do arquivo.
+ * Os arquivos sem o cabeçalho são do formato antigo (AES do provider padrão sobre o conteúdo inteiro).
+ */
+public class SegmentedCipher {
+
+    static final byte[] MAGIC = { 'C', 'G', 'A', 'E' };
+    static final byte VERSION = 1;
+    static final int NONCE_PREFIX_SIZE = 7;
+    static final int HEADER_SIZE = MAGIC.length + 1 + 4 + NONCE_PREFIX_SIZE;
+    static final int TAG_SIZE = 16;
+    static final int SEGMENT_SIZE = 64 * 1024;
+    // Maior segmento aceito na leitura (o tamanho vem do cabeçalho do arquivo)
+    private static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    // Buffers diretos de cada thread: conteúdo original e segmento criptografado
+    private static final ThreadLocal<ByteBuffer[]> buffers = ThreadLocal.withInitial(() -> new ByteBuffer[] {
+        ByteBuffer.allocateDirect(SEGMENT_SIZE), ByteBuffer.allocateDirect(SEGMENT_SIZE + TAG_SIZE)
+    });
+
+    private SegmentedCipher() {
+    }
+
+    /**
+     * Criptografa o conteúdo do canal de entrada, gravando o cabeçalho e os segmentos no canal de saída
+     * @param in Conteúdo original
+     * @param out Destino do conteúdo criptografado
+     * @param key Chave AES
+     * @throws IOException Se houver erro de leitura, gravação ou criptografia
+     */
+    public static void encrypt(ReadableByteChannel in, WritableByteChannel out, SecretKey key) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        header[MAGIC.length] = VERSION;
+        ByteBuffer.wrap(header, MAGIC.length + 1, 4).putInt(SEGMENT_SIZE);
+        byte[] prefix = new byte[NONCE_PREFIX_SIZE];
+        random.nextBytes(prefix);
+        System.arraycopy(prefix, 0, header, HEADER_SIZE - NONCE_PREFIX_SIZE, NONCE_PREFIX_SIZE);
+        writeFully(out, ByteBuffer.wrap(header));
+
+        ByteBuffer plain = buffers.get()[0];
+        ByteBuffer encrypted = buffers.get()[1];
+        ByteBuffer lookahead = ByteBuffer.allocate(1);
+        Cipher cipher = newCipher();
+        int segment = 0;
+        boolean last = false;
+        while (!last) {
+            plain.clear();
+            if (lookahead.position() > 0) {
+                lookahead.flip();
+                plain.put(lookahead);
+                lookahead.clear();
+            }
+            last = fill(in, plain, lookahead);
+            plain.flip();
+            encrypted.clear();
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE * 8, nonce(prefix, segment, last)));
+                cipher.updateAAD(header);
+                cipher.doFinal(plain, encrypted);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Erro ao criptografar o segmento " + segment + ": " + e.getMessage());
+            }
+            encrypted.flip();
+            writeFully(out, encrypted);
+            segment++;
+        }
+    }
+
+    /**
+     * Descriptografa um conteúdo no formato segmentado, conferindo a tag de cada segmento antes de gravá-lo
+     * @param in Conteúdo criptografado, a partir do cabeçalho
+     * @param out Destino do conteúdo original
+     * @param key Chave AES
+     * @throws IOException Se o cabeçalho for inválido, a chave estiver errada ou o conteúdo tiver sido alterado
+     */
+    public static void decrypt(ReadableByteChannel in, WritableByteChannel out, SecretKey key) throws IOException {
+        ByteBuffer headerBuffer = ByteBuffer.allocate(HEADER_SIZE);
+        fill(in, headerBuffer, null);
+        byte[] header = headerBuffer.array();
+        if (headerBuffer.position() < HEADER_SIZE || !isSegmented(header)) {
+            throw new IOException("Cabeçalho de object criptografado inválido.");
+        }
+        if (header[MAGIC.length] != VERSION) {
+            throw new IOException("Versão de object criptografado não suportada: " + header[MAGIC.length]);
+        }
+        int segmentSize = ByteBuffer.wrap(header, MAGIC.length + 1, 4).getInt();
+        if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+            throw new IOException("Tamanho de segmento inválido: " + segmentSize);
+        }
+        byte[] prefix = Arrays.copyOfRange(header, HEADER_SIZE - NONCE_PREFIX_SIZE, HEADER_SIZE);
+
+        ByteBuffer plain = buffers.get()[0];
+        ByteBuffer encrypted = buffers.get()[1];
+        if (encrypted.capacity() < segmentSize + TAG_SIZE) {
+            plain = ByteBuffer.allocateDirect(segmentSize);
+            encrypted = ByteBuffer.allocateDirect(segmentSize + TAG_SIZE);
+        }
+        ByteBuffer lookahead = ByteBuffer.allocate(1);
+        Cipher cipher = newCipher();
+        int segment = 0;
+        boolean last = false;
+        while (!last) {
+            encrypted.clear().limit(segmentSize + TAG_SIZE);
+            if (lookahead.position() > 0) {
+                lookahead.flip();
+                encrypted.put(lookahead);
+                lookahead.clear();
+            }
+            last = fill(in, encrypted, lookahead);
+            if (encrypted.position() < TAG_SIZE) {
+                throw new IOException("Object criptografado truncado no segmento " + segment + ".");
+            }
+            encrypted.flip();
+            plain.clear();
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_SIZE * 8, nonce(prefix, segment, last)));
+                cipher.updateAAD(header);
+                cipher.doFinal(encrypted, plain);
+            } catch (AEADBadTagException e) {
+                throw new IOException("Falha na autenticação do segmento " + segment + " (chave errada ou conteúdo alterado).");
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Erro ao descriptografar o segmento " + segment + ": " + e.getMessage());
+            }
+            plain.flip();
+            writeFully(out, plain);
+            segment++;
+        }
+    }
+
+    /**
+     * Confere se um conteúdo criptografado começa com o cabeçalho do formato segmentado
+     * @param header Primeiros bytes do arquivo
+     */
+    public static boolean isSegmented(byte[] header) {
+        return header.length > MAGIC.length && Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * Confere se um arquivo da pasta locked está no formato segmentado
+     */
+    public static boolean isSegmented(Path file) throws IOException {
+        try (var in = Files.newInputStream(file)) {
+            return isSegmented(in.readNBytes(MAGIC.length + 1));
+        }
+    }
+
+    private static Cipher newCipher() throws IOException {
+        try {
+            return CryptoEngine.cipher(CryptoEngine.AES_GCM);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("AES/GCM indisponível: " + e.getMessage());
+        }
+    }
+
+    private static byte[] nonce(byte[] prefix, int segment, boolean last) {
+        byte[] nonce = new byte[NONCE_PREFIX_SIZE + 5];
+        System.arraycopy(prefix, 0, nonce, 0, NONCE_PREFIX_SIZE);
+        ByteBuffer.wrap(nonce, NONCE_PREFIX_SIZE, 4).putInt(segment);
+        nonce[nonce.length - 1] = (byte) (last ? 1 : 0);
+        return nonce;
+    }
+
+    /**
+     * Lê até encher o buffer ou o canal acabar. Com o buffer cheio, lê um byte a mais (lookahead)
+     * para saber se este é o último segmento
+     * @return true se o canal acabou (o conteúdo lido é o último segmento)
+     */
+    private static boolean fill(ReadableByteChannel in, ByteBuffer buffer, ByteBuffer lookahead) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                return true;
+            }
+        }
+        if (lookahead == null) {
+            return false;
+        }
+        return in.read(lookahead) < 0;
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+}
@@ -1,10 +1,61 @@
 package fateczl.CriptoGitClient.service;
 
 public class Settings {
+    private static final long DEFAULT_CHUNK_THRESHOLD = 16L * 1024 * 1024;
+
     private String serverUrl;
+    private int jobs;
+    private boolean compressObjects;
+    // Tamanho (em bytes) a partir do qual os arquivos são divididos em chunks; 0 desativa
+    private long chunkThreshold;
+    // Monitora o repositório com o ChangeTracker para que o 'add .' processe apenas os arquivos alterados
+    private boolean watch;
+    // Provider JCA usado pelo CryptoEngine; null usa o provider padrão da JVM
+    private String cryptoProvider;
+    // Uma chave mestra por commit, com as chaves dos objects derivadas dela
+    private boolean masterKey;
 
     public Settings() {
         this.serverUrl = "http://localhost:5000";
+        this.jobs = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Aplica as opções informadas na linha de comando
+     * --jobs N (ou --jobs=N): quantidade de threads usadas pelo 'add .'
+     * --compress: grava os novos objects compactados com deflate
+     * --chunk: divide os arquivos a partir de 16 MB em chunks definidos pelo conteúdo
+     * --chunk-threshold N (ou --chunk-threshold=N): divide em chunks os arquivos a partir de N MB
+     * --watch: monitora o repositório após o init e faz o 'add .' apenas dos arquivos alterados
+     * --crypto-provider NOME (ou --crypto-provider=NOME): provider JCA usado na criptografia (ex.: SunJCE)
+     * --master-key: criptografa cada commit com uma chave mestra e chaves derivadas por object
+     * @param args Argumentos da linha de comando
+     */
+    public void applyArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--jobs") && i + 1 < args.length) {
+                setJobs(Integer.parseInt(args[++i]));
+            } else if (arg.startsWith("--jobs=")) {
+                setJobs(Integer.parseInt(arg.substring("--jobs=".length())));
+            } else if (arg.equals("--compress")) {
+                setCompressObjects(true);
+            } else if (arg.equals("--chunk")) {
+                setChunkThreshold(DEFAULT_CHUNK_THRESHOLD);
+            } else if (arg.equals("--chunk-threshold") && i + 1 < args.length) {
+                setChunkThreshold(Long.parseLong(args[++i]) * 1024 * 1024);
+            } else if (arg.startsWith("--chunk-threshold=")) {
+                setChunkThreshold(Long.parseLong(arg.substring("--chunk-threshold=".length())) * 1024 * 1024);
+            } else if (arg.equals("--watch")) {
+                setWatch(true);
+            } else if (arg.equals("--crypto-provider") && i + 1 < args.length) {
+                setCryptoProvider(args[++i]);
+            } else if (arg.startsWith("--crypto-provider=")) {
+                setCryptoProvider(arg.substring("--crypto-provider=".length()));
+            } else if (arg.equals("--master-key")) {
+                setMasterKey(true);
+            }
+        }
     }
 
     public void setServerUrl(String serverUrl) {
@@ -14,4 +65,52 @@ public class Settings {
     public String getServerUrl() {
         return this.serverUrl;
     }
+
+    public void setJobs(int jobs) {
+        this.jobs = Math.max(1, jobs);
+    }
+
+    public int getJobs() {
+        return this.jobs;
+    }
+
+    public void setCompressObjects(boolean compressObjects) {
+        this.compressObjects = compressObjects;
+    }
+
+    public boolean isCompressObjects() {
+        return this.compressObjects;
+    }
+
+    public void setChunkThreshold(long chunkThreshold) {
+        this.chunkThreshold = Math.max(0, chunkThreshold);
+    }
+
+    public long getChunkThreshold() {
+        return this.chunkThreshold;
+    }
+
+    public void setWatch(boolean watch) {
+        this.watch = watch;
+    }
+
+    public boolean isWatch() {
+        return this.watch;
+    }
+
+    public void setCryptoProvider(String cryptoProvider) {
+        this.cryptoProvider = cryptoProvider;
+    }
+
+    public String getCryptoProvider() {
+        return this.cryptoProvider;
+    }
+
+    public void setMasterKey(boolean masterKey) {
+        this.masterKey = masterKey;
+    }
+
+    public boolean isMasterKey() {
+        return this.masterKey;
+    }
 }
@@ -0,0 +1,407 @@
+package fateczl.CriptoGitClient.service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import fateczl.CriptoGitClient.model.Blob;
+import fateczl.CriptoGitClient.model.CacheTreeEntry;
+import fateczl.CriptoGitClient.model.FileStat;
+import fateczl.CriptoGitClient.model.Index;
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Mostra as diferenças entre o diretório de trabalho, o index e o commit do HEAD, sem gravar nada em disco.
+ *
+ * - index x HEAD: as trees do HEAD são comparadas com as entradas do index, pulando os diretórios
+ *   cuja tree no cache-tree do index é igual à do HEAD;
+ * - diretório de trabalho x index: o stat de cada arquivo é comparado com o stat cache do index e apenas
+ *   os arquivos com stat diferente têm a hash calculada, em paralelo. Com o monitor ativo (--watch),
+ *   apenas os caminhos alterados desde o último add são conferidos.
+ */
+public class StatusService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private String repositorioPath;
+    private Index index;
+    private int jobs = 1;
+    private Path objectsPath;
+
+    // index x HEAD
+    private final Set<String> stagedNew = new TreeSet<>();
+    private final Set<String> stagedModified = new TreeSet<>();
+    private final Set<String> stagedDeleted = new TreeSet<>();
+    // diretório de trabalho x index (preenchidos pelas threads da varredura)
+    private final Set<String> modified = new ConcurrentSkipListSet<>();
+    private final Set<String> deleted = new ConcurrentSkipListSet<>();
+    private final Set<String> untracked = new ConcurrentSkipListSet<>();
+    private final Set<String> seenPaths = ConcurrentHashMap.newKeySet();
+    private final LongAdder scannedFiles = new LongAdder();
+    private final LongAdder hashedFiles = new LongAdder();
+    // Arquivos encontrados que têm entrada no index
+    private final LongAdder trackedFiles = new LongAdder();
+
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+    private final ThreadLocal<ChunkService> chunkServices = ThreadLocal.withInitial(ChunkService::new);
+
+    public void setRepositorioPath(String repositorioPath) {
+        this.repositorioPath = repositorioPath;
+    }
+
+    public void setIndex(Index index) {
+        this.index = index;
+    }
+
+    /**
+     * Define a quantidade de threads usadas na varredura do diretório de trabalho
+     * @param jobs Quantidade de threads
+     */
+    public void setJobs(int jobs) {
+        this.jobs = Math.max(1, jobs);
+    }
+
+    /**
+     * Calcula e exibe o status do repositório
+     * @throws Exception Se houver erro ao ler o repositório
+     */
+    public void status() throws Exception {
+        if (!Files.exists(Paths.get(repositorioPath, ".criptogit"))) {
+            System.err.println("\nErro: Diretório .criptogit não existe. Execute o comando init para criar um repositório CriptoGit.");
+            return;
+        }
+        long start = System.nanoTime();
+        objectsPath = Paths.get(repositorioPath, ".criptogit", "objects");
+
+        ObjectId headCommit = readHead();
+        try {
+            compareIndexWithHead("", headCommit != null ? readRootTree(headCommit) : null);
+            compareWorkingTreeWithIndex();
+        } catch (IOException e) {
+            throw new Exception("Erro ao calcular o status: " + e.getMessage());
+        }
+
+        System.out.println(headCommit != null ? "HEAD: " + headCommit : "Nenhum commit ainda.");
+        boolean clean = true;
+        if (!stagedNew.isEmpty() || !stagedModified.isEmpty() || !stagedDeleted.isEmpty()) {
+            System.out.println("\nAlterações prontas para o commit:");
+            printPaths("novo:       ", stagedNew);
+            printPaths("modificado: ", stagedModified);
+            printPaths("removido:   ", stagedDeleted);
+            clean = false;
+        }
+        if (!modified.isEmpty() || !deleted.isEmpty()) {
+            System.out.println("\nAlterações não adicionadas (use 'add'):");
+            printPaths("modificado: ", modified);
+            printPaths("removido:   ", deleted);
+            clean = false;
+        }
+        if (!untracked.isEmpty()) {
+            System.out.println("\nArquivos não rastreados:");
+            printPaths("", untracked);
+            clean = false;
+        }
+        if (clean) {
+            System.out.println("Nada para adicionar ou commitar: o diretório de trabalho está igual ao HEAD.");
+        }
+        double milliseconds = (System.nanoTime() - start) / 1_000_000.0;
+        System.out.printf("%nStatus calculado em %.0f ms (%d arquivos verificados, %d com hash recalculada).%n",
+            milliseconds, scannedFiles.sum(), hashedFiles.sum());
+    }
+
+    /**
+     * Compara as entradas do index dentro de um diretório com a tree do HEAD correspondente
+     * @param directory Caminho relativo do diretório ("" para a raiz)
+     * @param treeHash Hash da tree do diretório no HEAD ou null se ele não existir no HEAD
+     */
+    private void compareIndexWithHead(String directory, ObjectId treeHash) throws IOException {
+        CacheTreeEntry cached = index.getCacheTree(directory);
+        if (treeHash != null && cached != null && cached.getHash().equals(treeHash)) {
+            // Nenhuma entrada do diretório mudou desde o commit
+            return;
+        }
+        String prefix = directory + File.separator;
+        Map<String, String[]> headEntries = treeHash != null ? readTree(treeHash) : new HashMap<>();
+        String path = index.ceilingPath(prefix);
+        while (path != null && path.startsWith(prefix)) {
+            String rest = path.substring(prefix.length());
+            int separator = rest.indexOf(File.separatorChar);
+            if (separator < 0) {
+                String[] head = headEntries.get(rest);
+                if (head == null || !head[0].equals("blob")) {
+                    stagedNew.add(path);
+                } else {
+                    headEntries.remove(rest);
+                    if (!index.findByPath(path).getHash().equals(ObjectId.fromHex(head[1]))) {
+                        stagedModified.add(path);
+                    }
+                }
+                path = index.higherPath(path);
+            } else {
+                String name = rest.substring(0, separator);
+                String[] head = headEntries.get(name);
+                ObjectId subtree = null;
+                if (head != null && head[0].equals("tree")) {
+                    headEntries.remove(name);
+                    subtree = ObjectId.fromHex(head[1]);
+                }
+                compareIndexWithHead(prefix + name, subtree);
+                path = index.ceilingPath(prefix + name + (char) (File.separatorChar + 1));
+            }
+        }
+        // O que sobrou no HEAD não está mais no index
+        for (Map.Entry<String, String[]> entry : headEntries.entrySet()) {
+            if (entry.getValue()[0].equals("tree")) {
+                addDeletedTree(prefix + entry.getKey(), ObjectId.fromHex(entry.getValue()[1]));
+            } else {
+                stagedDeleted.add(prefix + entry.getKey());
+            }
+        }
+    }
+
+    private void addDeletedTree(String directory, ObjectId treeHash) throws IOException {
+        for (Map.Entry<String, String[]> entry : readTree(treeHash).entrySet()) {
+            String path = directory + File.separator + entry.getKey();
+            if (entry.getValue()[0].equals("tree")) {
+                addDeletedTree(path, ObjectId.fromHex(entry.getValue()[1]));
+            } else {
+                stagedDeleted.add(path);
+            }
+        }
+    }
+
+    /**
+     * Compara o diretório de trabalho com o index: pelos caminhos alterados do monitor, se ele estiver ativo,
+     * ou percorrendo o repositório em paralelo
+     */
+    private void compareWorkingTreeWithIndex() throws IOException {
+        Path repoRoot = Paths.get(repositorioPath);
+        ChangeTracker tracker = ChangeTracker.get(repositorioPath);
+        Set<String> dirtyPaths = tracker != null ? tracker.peekDirtyPaths() : null;
+        ForkJoinPool pool = new ForkJoinPool(jobs);
+        try {
+            if (dirtyPaths != null) {
+                IgnoreRules rootRules = IgnoreRules.load(repoRoot);
+                pool.submit(() -> dirtyPaths.parallelStream().forEach(relativePath -> {
+                    try {
+                        checkDirtyPath(repoRoot, rootRules, relativePath);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })).get();
+            } else {
+                pool.invoke(new ScanTask(repoRoot, IgnoreRules.load(repoRoot)));
+                // Entradas do index que a varredura não encontrou (se todas foram encontradas, não há o que procurar)
+                for (Blob blob : trackedFiles.sum() == index.size() ? List.<Blob>of() : index.getBlobs()) {
+                    if (!seenPaths.contains(blob.getRelativePath())
+                        && !Files.isRegularFile(Paths.get(repositorioPath + blob.getRelativePath()))) {
+                        deleted.add(blob.getRelativePath());
+                    }
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (Exception e) {
+            Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e;
+            throw new IOException(cause.getMessage(), cause);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Confere um caminho informado pelo monitor de alterações
+     */
+    private void checkDirtyPath(Path repoRoot, IgnoreRules rootRules, String relativePath) throws IOException {
+        Path file = Paths.get(repositorioPath + relativePath);
+        if (!Files.exists(file)) {
+            if (index.findByPath(relativePath) != null) {
+                deleted.add(relativePath);
+            } else {
+                // Diretório removido: todas as entradas dentro dele
+                String prefix = relativePath + File.separator;
+                for (String path = index.ceilingPath(prefix); path != null && path.startsWith(prefix); path = index.higherPath(path)) {
+                    deleted.add(path);
+                }
+            }
+            return;
+        }
+        if (Files.isRegularFile(file) && !rootRules.isIgnoredFile(repoRoot, file)) {
+            checkFile(file, relativePath, FileService.readFileStat(file));
+        }
+    }
+
+    /**
+     * Compara um arquivo do diretório de trabalho com a sua entrada no index.
+     * A hash só é calculada quando o stat não permite concluir que o arquivo não mudou
+     */
+    private void checkFile(Path file, String relativePath, FileStat stat) throws IOException {
+        scannedFiles.increment();
+        Blob entry = index.findByPath(relativePath);
+        if (entry == null) {
+            untracked.add(relativePath);
+            return;
+        }
+        trackedFiles.increment();
+        if (index.isUpToDate(entry, stat)) {
+            return;
+        }
+        hashedFiles.increment();
+        if (!hashFile(file, entry.getHash()).equals(entry.getHash())) {
+            modified.add(relativePath);
+        }
+    }
+
+    /**
+     * Calcula a hash do arquivo como o add faria, sem gravar o object. Se a entrada do index
+     * for uma lista de chunks, calcula a hash da lista de chunks do conteúdo atual
+     */
+    private ObjectId hashFile(Path file, ObjectId indexedHash) throws IOException {
+        MessageDigest md = digests.get();
+        if (isChunkList(indexedHash)) {
+            return chunkServices.get().hashChunkedFile(file, md);
+        }
+        md.reset();
+        ByteBuffer buffer = buffers.get();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer.clear();
+            while (in.read(buffer) != -1) {
+                buffer.flip();
+                md.update(buffer);
+                buffer.clear();
+            }
+        }
+        return ObjectId.fromBytes(md.digest());
+    }
+
+    private boolean isChunkList(ObjectId id) throws IOException {
+        InputStream in = ObjectStoreService.openObject(objectsPath, id);
+        if (in == null) {
+            return false;
+        }
+        try (in) {
+            return ChunkService.isChunkList(in.readNBytes(ChunkService.MAGIC.length));
+        }
+    }
+
+    /**
+     * Varre um diretório do repositório, criando uma tarefa para cada subdiretório
+     */
+    private class ScanTask extends RecursiveAction {
+        private final Path directory;
+        private final IgnoreRules ignoreRules;
+
+        ScanTask(Path directory, IgnoreRules ignoreRules) {
+            this.directory = directory;
+            this.ignoreRules = ignoreRules;
+        }
+
+        @Override
+        protected void compute() {
+            List<ScanTask> subtasks = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path item : stream) {
+                    // Ignora diretórios que começam com .
+                    if (item.getFileName().toString().startsWith(".")) {
+                        continue;
+                    }
+                    FileStat stat;
+                    try {
+                        stat = FileService.readFileStat(item);
+                    } catch (NoSuchFileException e) {
+                        // Removido durante a varredura
+                        continue;
+                    }
+                    String relativePath = item.toString().replace(repositorioPath, "");
+                    if (ignoreRules.isIgnored(relativePath, stat.isDirectory())) {
+                        continue;
+                    }
+                    if (stat.isDirectory()) {
+                        subtasks.add(new ScanTask(item, ignoreRules.forDirectory(item, relativePath)));
+                    } else if (stat.isRegularFile()) {
+                        seenPaths.add(relativePath);
+                        checkFile(item, relativePath, stat);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    private ObjectId readHead() throws IOException {
+        Path headPath = Paths.get(repositorioPath, ".criptogit", "HEAD");
+        if (!Files.exists(headPath)) {
+            return null;
+        }
+        String head = Files.readString(headPath).trim();
+        return head.isEmpty() ? null : ObjectId.fromHex(head);
+    }
+
+    private ObjectId readRootTree(ObjectId commitHash) throws IOException {
+        byte[] commitData = ObjectStoreService.readObject(objectsPath, commitHash);
+        if (commitData == null) {
+            throw new IOException("Commit não encontrado: " + commitHash);
+        }
+        String commitContent = new String(commitData);
+        if (!commitContent.startsWith("tree ")) {
+            throw new IOException("Formato de commit inválido: " + commitHash);
+        }
+        return ObjectId.fromHex(commitContent, 5);
+    }
+
+    /**
+     * Lê as linhas de uma tree
+     * @return Tipo e hash de cada entrada, indexados pelo nome
+     */
+    private Map<String, String[]> readTree(ObjectId treeHash) throws IOException {
+        byte[] treeData = ObjectStoreService.readObject(objectsPath, treeHash);
+        if (treeData == null) {
+            throw new IOException("Tree não encontrada: " + treeHash);
+        }
+        Map<String, String[]> entries = new HashMap<>();
+        for (String line : new String(treeData).split("\n")) {
+            String[] parts = TreeService.splitTreeLine(line);
+            if (parts != null) {
+                entries.put(parts[1], new String[] { parts[0], parts[2] });
+            }
+        }
+        return entries;
+    }
+
+    private void printPaths(String label, Set<String> paths) {
+        for (String path : paths) {
+            System.out.println("    " + label + path.substring(1));
+        }
+    }
+}
@@ -1,24 +1,64 @@
 package fateczl.CriptoGitClient.service;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
 
 import fateczl.CriptoGitClient.model.Arquivo;
 import fateczl.CriptoGitClient.model.Blob;
+import fateczl.CriptoGitClient.model.CacheTreeEntry;
+import fateczl.CriptoGitClient.model.FileStat;
 import fateczl.CriptoGitClient.model.Index;
+import fateczl.CriptoGitClient.model.ObjectId;
 import fateczl.CriptoGitClient.model.Tree;
 
 public class TreeService {
 
+    // Quantidade máxima de arquivos processados por uma mesma tarefa do add paralelo
+    private static final int FILES_PER_TASK = 16;
+
     private FileService fileService;
     private Index index;
+    private String repositorioPath;
+    private final LongAdder processedFiles = new LongAdder();
+    private final LongAdder processedBytes = new LongAdder();
+    // Quantidade de trees recalculadas e gravadas pelo último commit
+    private int rebuiltTrees;
    
     public void setIndex(Index index) {
         this.index = index;
     }
+
+    public void setFileService(FileService fileService) {
+        this.fileService = fileService;
+    }
+
+    public void setRepositorioPath(String repositorioPath) {
+        this.repositorioPath = repositorioPath;
+    }
+
+    public int getRebuiltTrees() {
+        return rebuiltTrees;
+    }
+
+    public long getProcessedFiles() {
+        return processedFiles.sum();
+    }
+
+    public long getProcessedBytes() {
+        return processedBytes.sum();
+    }
     
     /**
      * Processa um diretório e persiste sua tree no diretório objects
@@ -31,29 +71,27 @@ public class TreeService {
     private void processDirectory(Path directory, Path objectsPath, MessageDigest md, Tree currentTree) throws IOException {
         StringBuilder blobContent = new StringBuilder();
             for (Arquivo arquivo : currentTree.getArquivos()) {
-                blobContent.append("blob ").append(arquivo.getName()).append(" ").append(arquivo.getBlob().getHash()).append("\n");
+                blobContent.append("blob ").append(arquivo.getName()).append(" ");
+                arquivo.getBlob().getHash().appendHex(blobContent).append("\n");
             }
             for (Tree tree : currentTree.getTrees()) {
-                blobContent.append("tree ").append(tree.getName()).append(" ").append(tree.getHash()).append("\n");
+                blobContent.append("tree ").append(tree.getName()).append(" ");
+                tree.getHash().appendHex(blobContent).append("\n");
             }
             
             // Faz a hash SHA-1 do conteúdo do blob da tree
-            byte[] sha1bytes = md.digest(blobContent.toString().getBytes());
-            StringBuilder sb = new StringBuilder();
-            for (byte b : sha1bytes) {
-                sb.append(String.format("%02x", b));
-            }
-            currentTree.setHash(sb.toString());
+            byte[] content = blobContent.toString().getBytes();
+            currentTree.setHash(ObjectId.fromBytes(md.digest(content)));
             
             // Define o conteúdo e a hash do blob da tree
             Blob treeBlob = new Blob();
-            treeBlob.setContent(blobContent.toString().getBytes());
+            treeBlob.setContent(content);
             treeBlob.setHash(currentTree.getHash());
             
             // Pega os 2 primeiros caracteres da hash para o diretório e os 38 restantes para o arquivo
-            String hash = currentTree.getHash();
-            String dirName = hash.substring(0, 2);        // 2 primeiros caracteres
-            String fileName = hash.substring(2);         // 38 caracteres restantes
+            ObjectId hash = currentTree.getHash();
+            String dirName = hash.getDirName();        // 2 primeiros caracteres
+            String fileName = hash.getFileName();     // 38 caracteres restantes
 
             // Confere se a pasta existe
             // Se não existir, cria a pasta
@@ -62,80 +100,94 @@ public class TreeService {
             // Confere se o blob existe
             // Se não existir, cria o blob
             Path objectFile = Paths.get(objectDir.toString(), fileName);
-            fileService = new FileService();
-            fileService.setIndex(index);
-            fileService.createFile(objectFile, treeBlob);        
+            FileService treeFileService = new FileService();
+            treeFileService.setIndex(index);
+            treeFileService.createFile(objectFile, treeBlob);        
             //this.index.addBlob(treeBlob, repositorio.getPath());
     }
     
-    // Sobrecarga do método - versão sem Tree (para uso externo)
-    public Tree processTreesRecursively(Path currentPath, Path objectsPath, MessageDigest md) throws IOException {
-        return processTreesRecursively(currentPath, objectsPath, md, null);        
+    /**
+     * Divide uma linha do blob de uma tree ("blob <nome> <hash>" ou "tree <nome> <hash>") em tipo, nome e hash.
+     * O nome pode conter espaços, então a hash é sempre o último campo da linha
+     * @param line Linha do blob da tree
+     * @return Array com tipo, nome e hash, ou null se a linha não estiver nesse formato
+     */
+    public static String[] splitTreeLine(String line) {
+        int firstSpace = line.indexOf(' ');
+        int lastSpace = line.lastIndexOf(' ');
+        if (firstSpace <= 0 || lastSpace <= firstSpace + 1) {
+            return null;
+        }
+        return new String[] { line.substring(0, firstSpace), line.substring(firstSpace + 1, lastSpace), line.substring(lastSpace + 1) };
     }
 
     /**
-     * Processa as Trees recursivamente
-     * @param currentPath
-     * @param objectsPath
-     * @param md
-     * @param parentTree
-     * @throws IOException
+     * Monta as trees do commit a partir das entradas do index, sem percorrer o diretório de trabalho.
+     * As trees guardadas no cache-tree do index são reaproveitadas sem ler nem gravar nada:
+     * apenas os diretórios com entradas alteradas desde o último commit têm a tree recalculada
+     * @param objectsPath Caminho do diretório objects
+     * @param md MessageDigest
+     * @return Tree raiz
+     * @throws IOException Se houver erro ao gravar as trees
      */
-    private Tree processTreesRecursively(Path currentPath, Path objectsPath, MessageDigest md, Tree parentTree) throws IOException {
-        // Lista todos os os itens do diretório atual
-        try (var stream = Files.list(currentPath)) {
-            // Cria uma nova Tree para o diretório atual
-            Tree currentTree = new Tree();
-            currentTree.setName(currentPath.getFileName().toString());
-            for (Path item : stream.collect(java.util.stream.Collectors.toList())) {
-                // Se o index estiver vazio, termina o processamento
-                if (index.getBlobs().isEmpty()) {
-                    break;
-                }
-                // Ignora diretórios que começam com .
-                if (item.toString().contains("\\.")) {
-                    continue;
-                }
-                if (Files.isDirectory(item)) {
-                    // Se é um diretório, processa recursivamente
-                    processTreesRecursively(item, objectsPath, md, currentTree);
-                } else if (Files.isRegularFile(item)) {
-                    // Confere se é um dos arquivos inclusos no index
-                    for (Blob blob : index.getBlobs()) {
-                        if (item.toString().contains(blob.getRelativePath())) {
-                            // Se é um arquivo listado no index, cria o objeto Arquivo e adiciona à Tree atual
-                            Arquivo arquivo = new Arquivo();
-                            arquivo.setName(item.getFileName().toString());
-                            arquivo.setBlob(blob);
-                            currentTree.addArquivo(arquivo);
-                            // Remove o arquivo do index em memória, pois ele já foi processado
-                            index.removeBlob(blob);
-                            break;
-                        }
-                    }
-                }
-            }
-            // Depois de montada uma Tree, monta um blob e salva no diretório objects
-            // Para cada arquivo e tree da Tree atual, escreve seu nome e sua hash no blob
-            if (currentTree.getArquivos().size() > 0 || currentTree.getTrees().size() > 0) {
-                processDirectory(currentPath, objectsPath, md, currentTree);
-                // Se há um parentTree, adiciona a currentTree como filha
-                if (parentTree != null) {
-                    parentTree.addTree(currentTree);
-                    return null;
-                }
-            }
+    public Tree buildTreesFromIndex(Path objectsPath, MessageDigest md) throws IOException {
+        rebuiltTrees = 0;
+        return buildTree("", objectsPath, md);
+    }
+
+    /**
+     * Monta a tree de um diretório do index. As entradas são ordenadas pelo caminho, então as entradas
+     * de um subdiretório são consecutivas e podem ser puladas de uma vez quando a tree dele já é conhecida
+     * @param directory Caminho relativo do diretório ("" para a raiz)
+     * @param objectsPath Caminho do diretório objects
+     * @param md MessageDigest
+     * @return Tree do diretório, com a hash preenchida
+     * @throws IOException Se houver erro ao gravar as trees
+     */
+    private Tree buildTree(String directory, Path objectsPath, MessageDigest md) throws IOException {
+        Tree currentTree = new Tree();
+        currentTree.setName(directory.substring(directory.lastIndexOf(File.separatorChar) + 1));
+        CacheTreeEntry cached = index.getCacheTree(directory);
+        if (cached != null) {
+            // Nenhuma entrada do diretório mudou desde o último commit
+            currentTree.setHash(cached.getHash());
             return currentTree;
         }
+        String prefix = directory + File.separator;
+        int entryCount = 0;
+        String path = index.ceilingPath(prefix);
+        while (path != null && path.startsWith(prefix)) {
+            String rest = path.substring(prefix.length());
+            int separator = rest.indexOf(File.separatorChar);
+            if (separator < 0) {
+                // Arquivo diretamente dentro do diretório
+                Arquivo arquivo = new Arquivo();
+                arquivo.setName(rest);
+                arquivo.setBlob(index.findByPath(path));
+                currentTree.addArquivo(arquivo);
+                entryCount++;
+                path = index.higherPath(path);
+            } else {
+                // Subdiretório: monta (ou reaproveita) a tree dele e pula as suas entradas
+                String subdirectory = prefix + rest.substring(0, separator);
+                currentTree.addTree(buildTree(subdirectory, objectsPath, md));
+                entryCount += index.getCacheTree(subdirectory).getEntryCount();
+                path = index.ceilingPath(subdirectory + (char) (File.separatorChar + 1));
+            }
+        }
+        processDirectory(Paths.get(repositorioPath + directory), objectsPath, md, currentTree);
+        index.putCacheTree(directory, new CacheTreeEntry(currentTree.getHash(), entryCount));
+        rebuiltTrees++;
+        return currentTree;
     }
 
     // Sobrecarga do método - versão sem Tree (para uso externo)
     public void processDirectoryRecursively(Path currentPath, Path objectsPath, MessageDigest md) throws IOException {
-        processDirectoryRecursively(currentPath, objectsPath, md, null);
+        processDirectoryRecursively(currentPath, objectsPath, md, null, IgnoreRules.load(currentPath));
     }
     
     // Método principal com Tree
-    private void processDirectoryRecursively(Path currentPath, Path objectsPath, MessageDigest md, Tree parentTree) throws IOException {
+    private void processDirectoryRecursively(Path currentPath, Path objectsPath, MessageDigest md, Tree parentTree, IgnoreRules ignoreRules) throws IOException {
         // Lista todos os itens do diretório atual
         try (var stream = Files.list(currentPath)) {
             // Cria uma nova Tree para o diretório atual
@@ -145,17 +197,26 @@ public class TreeService {
             // Processa cada arquivo e diretório do diretório atual
             for (Path item : stream.collect(java.util.stream.Collectors.toList())) {
                 // Ignora diretórios que começam com .
-                if (item.toString().contains("\\.")) {
+                if (item.getFileName().toString().startsWith(".")) {
                     continue;
                 }
                 
-                if (Files.isDirectory(item)) {
+                // Lê o stat uma única vez: ele define o tipo do item e alimenta o stat cache do index
+                FileStat stat = FileService.readFileStat(item);
+                // Ignora os itens do .criptogitignore: um diretório ignorado nem chega a ser listado
+                String relativePath = item.toString().replace(repositorioPath, "");
+                if (ignoreRules.isIgnored(relativePath, stat.isDirectory())) {
+                    continue;
+                }
+                if (stat.isDirectory()) {
                     // Se é um diretório, processa recursivamente
-                    processDirectoryRecursively(item, objectsPath, md, currentTree);
-                } else if (Files.isRegularFile(item)) {
+                    processDirectoryRecursively(item, objectsPath, md, currentTree, ignoreRules.forDirectory(item, relativePath));
+                } else if (stat.isRegularFile()) {
                     // Se é um arquivo, cria o blob
-                    Arquivo file = fileService.processFile(item, objectsPath, md);
+                    Arquivo file = fileService.processFile(item, stat, objectsPath, md);
                     currentTree.addArquivo(file);
+                    processedFiles.increment();
+                    processedBytes.add(stat.getSize());
                 }
             }
             // Depois de montada uma Tree, monta um blob e salva no diretório objects
@@ -168,6 +229,152 @@ public class TreeService {
             }
         }
     }
+
+    /**
+     * Processa um diretório em paralelo, dividindo os diretórios e grupos de arquivos em tarefas fork-join.
+     * Cada thread usa o seu próprio MessageDigest e FileService, e a Tree de cada diretório é montada
+     * na mesma ordem de listagem usada pelo processamento sequencial, então as hashes geradas são as mesmas.
+     * @param currentPath Caminho do diretório raiz
+     * @param objectsPath Caminho do diretório objects
+     * @param jobs Quantidade de threads de processamento
+     * @return Tree do diretório raiz
+     * @throws IOException Se houver erro ao processar os arquivos
+     */
+    public Tree processDirectoryInParallel(Path currentPath, Path objectsPath, int jobs) throws IOException {
+        ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(() -> {
+            try {
+                return MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        ThreadLocal<FileService> fileServices = ThreadLocal.withInitial(() -> {
+            FileService workerFileService = new FileService();
+            workerFileService.setRepositorioPath(repositorioPath);
+            workerFileService.setIndex(index);
+            if (fileService != null) {
+                workerFileService.setChunkThreshold(fileService.getChunkThreshold());
+                workerFileService.setSeenPaths(fileService.getSeenPaths());
+            }
+            return workerFileService;
+        });
+        ForkJoinPool pool = new ForkJoinPool(jobs);
+        try {
+            return pool.invoke(new DirectoryTask(currentPath, objectsPath, IgnoreRules.load(currentPath), digests, fileServices));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tarefa do add paralelo que processa um diretório: os subdiretórios e os grupos de arquivos
+     * são processados em tarefas separadas, e a Tree do diretório é gravada depois que todas terminam
+     */
+    private class DirectoryTask extends RecursiveTask<Tree> {
+        private final Path directory;
+        private final Path objectsPath;
+        private final IgnoreRules ignoreRules;
+        private final ThreadLocal<MessageDigest> digests;
+        private final ThreadLocal<FileService> fileServices;
+
+        DirectoryTask(Path directory, Path objectsPath, IgnoreRules ignoreRules, ThreadLocal<MessageDigest> digests, ThreadLocal<FileService> fileServices) {
+            this.directory = directory;
+            this.objectsPath = objectsPath;
+            this.ignoreRules = ignoreRules;
+            this.digests = digests;
+            this.fileServices = fileServices;
+        }
+
+        @Override
+        protected Tree compute() {
+            try {
+                List<Path> files = new ArrayList<>();
+                List<FileStat> stats = new ArrayList<>();
+                List<DirectoryTask> directoryTasks = new ArrayList<>();
+                try (var stream = Files.list(directory)) {
+                    for (Path item : stream.collect(java.util.stream.Collectors.toList())) {
+                        // Ignora diretórios que começam com .
+                        if (item.getFileName().toString().startsWith(".")) {
+                            continue;
+                        }
+                        FileStat stat = FileService.readFileStat(item);
+                        // Ignora os itens do .criptogitignore
+                        String relativePath = item.toString().replace(repositorioPath, "");
+                        if (ignoreRules.isIgnored(relativePath, stat.isDirectory())) {
+                            continue;
+                        }
+                        if (stat.isDirectory()) {
+                            directoryTasks.add(new DirectoryTask(item, objectsPath, ignoreRules.forDirectory(item, relativePath), digests, fileServices));
+                        } else if (stat.isRegularFile()) {
+                            files.add(item);
+                            stats.add(stat);
+                            processedBytes.add(stat.getSize());
+                        }
+                    }
+                }
+
+                // Divide os arquivos em grupos, mantendo a ordem de listagem
+                List<FileBatchTask> fileTasks = new ArrayList<>();
+                for (int start = 0; start < files.size(); start += FILES_PER_TASK) {
+                    int end = Math.min(start + FILES_PER_TASK, files.size());
+                    fileTasks.add(new FileBatchTask(files.subList(start, end), stats.subList(start, end), objectsPath, fileServices, digests));
+                }
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(fileTasks);
+                tasks.addAll(directoryTasks);
+                ForkJoinTask.invokeAll(tasks);
+
+                Tree currentTree = new Tree();
+                currentTree.setName(directory.getFileName().toString());
+                for (FileBatchTask fileTask : fileTasks) {
+                    for (Arquivo arquivo : fileTask.join()) {
+                        currentTree.addArquivo(arquivo);
+                    }
+                }
+                for (DirectoryTask directoryTask : directoryTasks) {
+                    currentTree.addTree(directoryTask.join());
+                }
+                processDirectory(directory, objectsPath, digests.get(), currentTree);
+                return currentTree;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Tarefa do add paralelo que cria os blobs de um grupo de arquivos de um mesmo diretório
+     */
+    private class FileBatchTask extends RecursiveTask<List<Arquivo>> {
+        private final List<Path> files;
+        private final List<FileStat> stats;
+        private final Path objectsPath;
+        private final ThreadLocal<FileService> fileServices;
+        private final ThreadLocal<MessageDigest> digests;
+
+        FileBatchTask(List<Path> files, List<FileStat> stats, Path objectsPath, ThreadLocal<FileService> fileServices, ThreadLocal<MessageDigest> digests) {
+            this.files = files;
+            this.stats = stats;
+            this.objectsPath = objectsPath;
+            this.fileServices = fileServices;
+            this.digests = digests;
+        }
+
+        @Override
+        protected List<Arquivo> compute() {
+            try {
+                List<Arquivo> arquivos = new ArrayList<>(files.size());
+                for (int i = 0; i < files.size(); i++) {
+                    arquivos.add(fileServices.get().processFile(files.get(i), stats.get(i), objectsPath, digests.get()));
+                    processedFiles.increment();
+                }
+                return arquivos;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
     
     /**
      * Cria uma pasta no diretório objects
@@ -177,9 +384,7 @@ public class TreeService {
     public void createDirectory(Path objectDir) throws IOException {
         // Confere se a pasta da tree existe
         // Se não existir, cria a pasta
-        if (!Files.exists(objectDir)) {
-            Files.createDirectory(objectDir);
-        }
+        ObjectExistenceFilter.forObjects(objectDir.getParent()).createDirectory(objectDir);
     }
     
 }
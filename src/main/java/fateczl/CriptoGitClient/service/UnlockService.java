@@ -1,13 +1,26 @@
 package fateczl.CriptoGitClient.service;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
 import java.security.PrivateKey;
 import java.security.KeyFactory;
 import java.security.spec.PKCS8EncodedKeySpec;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 import javax.crypto.Cipher;
@@ -17,10 +30,24 @@ import fateczl.CriptoGitClient.model.Commit;
 import fateczl.CriptoGitClient.model.Tree;
 import fateczl.CriptoGitClient.model.Blob;
 import fateczl.CriptoGitClient.model.Arquivo;
+import fateczl.CriptoGitClient.model.ObjectId;
 
 public class UnlockService {
     
+    // Tamanho máximo da primeira linha procurada ao remover o prefixo "blob " de um blob
+    private static final int BLOB_PREFIX_LIMIT = 8192;
+    // Maior chave simétrica criptografada com RSA (chaves de até 8192 bits): arquivos maiores não são chaves
+    private static final int MAX_RSA_BLOCK_SIZE = 1024;
+
     private List<SecretKey> decryptedSymmetricKeys = new ArrayList<>();
+    // Chaves mestras dos commits criptografados com a opção --master-key
+    private List<MasterKey> masterKeys = new ArrayList<>();
+    // Chaves lidas dos pacotes do usuário, pelo nome do arquivo da pasta locked que cada uma abre
+    private Map<String, SecretKey> bundleKeys = new LinkedHashMap<>();
+    // Pacotes lidos e as entradas de cada um: só são apagados depois que todas as entradas foram usadas
+    private Map<Path, List<String>> bundleEntries = new LinkedHashMap<>();
+    // Pacotes lidos que trazem a chave mestra de um commit
+    private Set<Path> bundlesWithMasterKey = new HashSet<>();
     private Set<String> processedFiles = new HashSet<>();
     private int keyCounter = 1; // Contador para nomear as chaves salvas
     private KeyService keyService;
@@ -62,9 +89,15 @@ public class UnlockService {
         System.out.println("\n=== FASE 1: Descriptografando com chave privada ===");
         decryptWithPrivateKey(lockedPath, privateKey);
         
-        // Segunda fase: tenta descriptografar com as chaves simétricas obtidas
+        // Segunda fase: descriptografa os objects dos pacotes de chaves e das chaves mestras e tenta os restantes com as chaves simétricas obtidas
         System.out.println("\n=== FASE 2: Descriptografando com chaves simétricas ===");
+        decryptWithBundleKeys(lockedPath);
+        decryptWithMasterKeys(lockedPath);
         decryptWithSymmetricKeys(lockedPath, unlockedPath);
+        // Torna duráveis os objects descriptografados antes de atualizar o HEAD
+        ObjectWriter.forObjects(Paths.get(repositorioPath, ".criptogit", "objects")).sync();
+        // Só agora os pacotes de chaves podem ser apagados: antes disso uma falha perderia as chaves lidas
+        deleteUsedKeyBundles(lockedPath);
         
         // Terceira fase: limpa os arquivos temporários da pasta keys
         System.out.println("\n=== FASE 3: Limpando arquivos temporários ===");
@@ -90,16 +123,107 @@ public class UnlockService {
      * @throws Exception Se houver erro na descriptografia
      */
     private void decryptWithPrivateKey(Path lockedPath, PrivateKey privateKey) throws Exception {
+        readKeyBundles(lockedPath, privateKey);
+        
+        // Formato antigo: chaves em arquivos avulsos, reconhecidas tentando a chave privada em cada arquivo
         // Lista apenas os arquivos diretamente dentro da pasta locked (não recursivo)
         try (var stream = Files.list(lockedPath)) {
             for (Path file : stream.collect(java.util.stream.Collectors.toList())) {
-                if (Files.isRegularFile(file)) {
+                if (Files.isRegularFile(file) && !KeyBundle.isBundle(file.getFileName().toString())) {
                     tryDecryptWithPrivateKey(file, privateKey);
                 }
             }
         }
     }
     
+    /**
+     * Lê os pacotes de chaves do usuário (identificados pelo fingerprint da sua chave pública). Os pacotes
+     * dos outros colaboradores não são abertos
+     * @param lockedPath Caminho da pasta locked
+     * @param privateKey Chave privada do usuário
+     */
+    private void readKeyBundles(Path lockedPath, PrivateKey privateKey) throws Exception {
+        String fingerprint;
+        try {
+            fingerprint = KeyBundle.fingerprint(privateKey);
+        } catch (IOException e) {
+            System.out.println("  Pacotes de chaves ignorados: " + e.getMessage());
+            return;
+        }
+        int bundleCount = 0;
+        for (Path bundle : KeyBundle.find(lockedPath, fingerprint)) {
+            List<String> lockedNames = new ArrayList<>();
+            List<MasterKey> bundleMasters = new ArrayList<>();
+            try {
+                KeyBundle.read(bundle, (lockedName, wrappedKey) -> {
+                    try {
+                        byte[] key = CryptoEngine.decryptRsa(wrappedKey, privateKey);
+                        if (KeyBundle.MASTER_KEY_ENTRY.equals(lockedName)) {
+                            MasterKey masterKey = MasterKey.fromDecrypted(key);
+                            if (masterKey != null) {
+                                bundleMasters.add(masterKey);
+                            }
+                        } else {
+                            lockedNames.add(lockedName);
+                            bundleKeys.put(lockedName, new SecretKeySpec(key, "AES"));
+                        }
+                    } catch (GeneralSecurityException e) {
+                        throw new IOException("chave de " + lockedName + " inválida (" + e.getMessage() + ")");
+                    }
+                });
+                masterKeys.addAll(bundleMasters);
+                bundleEntries.put(bundle, lockedNames);
+                if (!bundleMasters.isEmpty()) {
+                    bundlesWithMasterKey.add(bundle);
+                }
+                bundleCount++;
+            } catch (IOException e) {
+                System.err.println(" X Erro ao ler o pacote de chaves " + bundle.getFileName() + ": " + e.getMessage());
+            }
+        }
+        if (bundleCount > 0) {
+            System.out.println("  Lidos " + bundleCount + " pacotes de chaves (" + bundleKeys.size() + " chaves)");
+        }
+    }
+    
+    /**
+     * Apaga os pacotes de chaves cujas entradas já foram todas usadas: os arquivos da pasta locked que elas
+     * abrem não existem mais. Não se sabe quais arquivos uma chave mestra abre, então um pacote com chave mestra
+     * só é apagado quando não resta nenhum arquivo no formato segmentado. Os demais continuam na pasta locked
+     * para o próximo unlock
+     * @param lockedPath Caminho da pasta locked
+     */
+    private void deleteUsedKeyBundles(Path lockedPath) throws IOException {
+        boolean segmentedFilesLeft = false;
+        try (var stream = Files.list(lockedPath)) {
+            for (Path file : stream.collect(java.util.stream.Collectors.toList())) {
+                if (Files.isRegularFile(file) && SegmentedCipher.isSegmented(file)) {
+                    segmentedFilesLeft = true;
+                    break;
+                }
+            }
+        }
+        for (Map.Entry<Path, List<String>> entry : bundleEntries.entrySet()) {
+            boolean used = true;
+            for (String lockedName : entry.getValue()) {
+                Path file = lockedPath.resolve(lockedName).normalize();
+                // Nomes fora da pasta locked são ignorados, como em decryptWithBundleKeys
+                if (lockedPath.normalize().equals(file.getParent()) && Files.exists(file)) {
+                    used = false;
+                    break;
+                }
+            }
+            if (segmentedFilesLeft && bundlesWithMasterKey.contains(entry.getKey())) {
+                used = false;
+            }
+            if (used) {
+                Files.delete(entry.getKey());
+            } else {
+                System.out.println("  Pacote de chaves mantido para o próximo unlock: " + entry.getKey().getFileName());
+            }
+        }
+    }
+    
     /**
      * Tenta descriptografar um arquivo específico com a chave privada
      * @param file Arquivo a ser descriptografado
@@ -107,16 +231,23 @@ public class UnlockService {
      */
     private void tryDecryptWithPrivateKey(Path file, PrivateKey privateKey) {
         try {
+            // Objects criptografados não precisam ser lidos para saber que não são chaves
+            if (Files.size(file) > MAX_RSA_BLOCK_SIZE || SegmentedCipher.isSegmented(file)) {
+                return;
+            }
             byte[] encryptedData = Files.readAllBytes(file);
             
             // Tenta descriptografar com RSA
-            Cipher cipher = Cipher.getInstance("RSA");
-            cipher.init(Cipher.DECRYPT_MODE, privateKey);
-            byte[] decryptedData = cipher.doFinal(encryptedData);
+            byte[] decryptedData = CryptoEngine.decryptRsa(encryptedData, privateKey);
             
             // Se chegou até aqui, a descriptografia foi bem-sucedida
-            // Verifica se o resultado parece ser uma chave simétrica (32 bytes para AES-256)
-            if (decryptedData.length == 32) {
+            MasterKey masterKey = MasterKey.fromDecrypted(decryptedData);
+            if (masterKey != null) {
+                // Chave mestra de um commit: as chaves dos objects são derivadas dela na segunda fase
+                masterKeys.add(masterKey);
+                Files.delete(file);
+            } else if (decryptedData.length == 32) {
+                // O resultado parece ser uma chave simétrica (32 bytes para AES-256)
                 // Salva a chave simétrica descriptografada na pasta .criptogit/locked/keys
                 saveDecryptedSymmetricKey(decryptedData, file);
                 
@@ -151,6 +282,71 @@ public class UnlockService {
         keyCounter++;
     }
     
+    /**
+     * Descriptografa os arquivos indicados nos pacotes de chaves, cada um com a sua chave
+     * @param lockedPath Caminho da pasta locked
+     */
+    private void decryptWithBundleKeys(Path lockedPath) {
+        for (Map.Entry<String, SecretKey> entry : bundleKeys.entrySet()) {
+            Path file = lockedPath.resolve(entry.getKey()).normalize();
+            // O nome vem do pacote: só aceita arquivos diretamente dentro da pasta locked
+            if (!lockedPath.normalize().equals(file.getParent()) || !Files.isRegularFile(file)) {
+                continue;
+            }
+            if (!tryDecryptWithSingleKey(file, entry.getValue())) {
+                System.err.println(" X Não foi possível descriptografar " + entry.getKey() + " com a chave do pacote");
+            }
+        }
+    }
+    
+    /**
+     * Descriptografa os arquivos dos commits com chave mestra. O nome de cada arquivo, descriptografado com
+     * a chave de nomes, revela a hash do object, e dela é derivada a chave do conteúdo
+     * @param lockedPath Caminho da pasta locked
+     * @throws Exception Se houver erro ao gravar os objects
+     */
+    private void decryptWithMasterKeys(Path lockedPath) throws Exception {
+        if (masterKeys.isEmpty()) {
+            return;
+        }
+        System.out.println("  Carregadas " + masterKeys.size() + " chaves mestras de commits");
+        
+        List<Path> files = new ArrayList<>();
+        try (var stream = Files.list(lockedPath)) {
+            for (Path file : stream.collect(java.util.stream.Collectors.toList())) {
+                if (Files.isRegularFile(file) && SegmentedCipher.isSegmented(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            if (fileName.matches("^\\d+\\.head$")) {
+                int version = Integer.parseInt(fileName.substring(0, fileName.indexOf('.')));
+                for (MasterKey masterKey : masterKeys) {
+                    if (tryDecryptSegmented(file, fileName, masterKey.headKey(version))) {
+                        // Guarda a chave mestra do commit, para criptografá-la se este usuário adicionar um colaborador
+                        Path masterKeyFile = lockedPath.getParent().resolve("versions").resolve(version + ".master");
+                        if (!Files.exists(masterKeyFile)) {
+                            Files.write(masterKeyFile, masterKey.getEncoded());
+                        }
+                        break;
+                    }
+                }
+            } else if (fileName.length() % 32 == 0 && fileName.matches("^[a-f0-9]+$")) {
+                // Nomes criptografados têm blocos AES inteiros (32 caracteres hexadecimais cada)
+                byte[] encryptedName = hexStringToByteArray(fileName);
+                for (MasterKey masterKey : masterKeys) {
+                    ObjectId hash = masterKey.decryptName(encryptedName);
+                    if (hash != null && tryDecryptSegmented(file, hash.toHex(), masterKey.objectKey(hash))) {
+                        break;
+                    }
+                }
+            }
+        }
+    }
+    
     /**
      * Tenta descriptografar todos os arquivos na pasta locked usando as chaves simétricas obtidas
      * @param lockedPath Caminho da pasta locked
@@ -172,7 +368,7 @@ public class UnlockService {
         List<Path> unprocessedFiles = new ArrayList<>();
         try (var stream = Files.list(lockedPath)) {
             for (Path file : stream.collect(java.util.stream.Collectors.toList())) {
-                if (Files.isRegularFile(file)) {
+                if (Files.isRegularFile(file) && !KeyBundle.isBundle(file.getFileName().toString())) {
                     unprocessedFiles.add(file);
                 }
             }
@@ -213,17 +409,24 @@ public class UnlockService {
      */
     private boolean tryDecryptWithSingleKey(Path file, SecretKey symmetricKey) {
         try {
+            if (SegmentedCipher.isSegmented(file)) {
+                return tryDecryptSegmented(file, tryDecryptFileName(file.getFileName().toString(), symmetricKey), symmetricKey);
+            }
+            // Formato antigo: AES sobre o arquivo inteiro
             byte[] encryptedData = Files.readAllBytes(file);
             
             // Tenta descriptografar com AES
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.DECRYPT_MODE, symmetricKey);
-            byte[] decryptedData = cipher.doFinal(encryptedData);
+            byte[] decryptedData = CryptoEngine.aes(Cipher.DECRYPT_MODE, encryptedData, symmetricKey);
             
             // Se chegou até aqui, a descriptografia foi bem-sucedida
             // Agora tenta descriptografar o nome do arquivo com a mesma chave
             String decryptedFileName = tryDecryptFileName(file.getFileName().toString(), symmetricKey);
-            
+            // Um conteúdo aleatório (como a chave criptografada de outro colaborador) pode passar pelo padding
+            // com a chave errada. Os objects sempre têm o nome criptografado, então o nome também precisa abrir
+            if (decryptedFileName.equals(file.getFileName().toString()) && !decryptedFileName.matches("^\\d+\\.head$")) {
+                return false;
+            }
+
             // Verifica se é o HEAD (nome é apenas um número e conteúdo é hash SHA-1)
             if (isHeadFile(decryptedFileName, decryptedData)) {
                 // Salva o HEAD na pasta versions
@@ -246,6 +449,56 @@ public class UnlockService {
         }
     }
     
+    /**
+     * Tenta descriptografar um arquivo no formato segmentado (AES-GCM). Uma chave errada é recusada
+     * já na tag do primeiro segmento, e os blobs são descriptografados direto para um arquivo temporário
+     * da pasta objects, sem carregar o conteúdo inteiro na memória
+     * @param file Arquivo a ser descriptografado
+     * @param decryptedFileName Nome descriptografado do arquivo (hash do object ou versão do HEAD)
+     * @param symmetricKey Chave simétrica para tentar
+     * @return true se a descriptografia foi bem-sucedida, false caso contrário
+     */
+    private boolean tryDecryptSegmented(Path file, String decryptedFileName, SecretKey symmetricKey) throws Exception {
+        if (decryptedFileName.matches("^\\d+\\.head$")) {
+            // HEAD: conteúdo pequeno, lido na memória
+            ByteArrayOutputStream headContent = new ByteArrayOutputStream();
+            try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+                SegmentedCipher.decrypt(in, Channels.newChannel(headContent), symmetricKey);
+            } catch (IOException e) {
+                return false;
+            }
+            if (!isHeadFile(decryptedFileName, headContent.toByteArray())) {
+                return false;
+            }
+            saveDecryptedHead(headContent.toByteArray(), decryptedFileName, file, symmetricKey);
+        } else {
+            if (!ObjectId.isValid(decryptedFileName)) {
+                return false;
+            }
+            Path objectsPath = file.getParent().getParent().resolve("objects");
+            Files.createDirectories(objectsPath);
+            Path tempFile = Files.createTempFile(objectsPath, "tmp_", null);
+            try {
+                try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ);
+                     OutputStream out = ObjectStoreService.openObjectOutput(Files.newOutputStream(tempFile))) {
+                    SegmentedCipher.decrypt(in, Channels.newChannel(out), symmetricKey);
+                } catch (IOException e) {
+                    return false;
+                }
+                if (saveDecryptedBlobFile(tempFile, decryptedFileName, file, symmetricKey)) {
+                    tempFile = null;
+                }
+            } finally {
+                if (tempFile != null) {
+                    Files.deleteIfExists(tempFile);
+                }
+            }
+        }
+        Files.delete(file);
+        processedFiles.add(file.toString());
+        return true;
+    }
+
     /**
      * Tenta descriptografar o nome do arquivo usando a chave simétrica
      * @param encryptedFileName Nome do arquivo criptografado
@@ -258,9 +511,7 @@ public class UnlockService {
             byte[] encryptedFileNameBytes = hexStringToByteArray(encryptedFileName);
             
             // Tenta descriptografar o nome com AES
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.DECRYPT_MODE, symmetricKey);
-            byte[] decryptedFileNameBytes = cipher.doFinal(encryptedFileNameBytes);
+            byte[] decryptedFileNameBytes = CryptoEngine.aes(Cipher.DECRYPT_MODE, encryptedFileNameBytes, symmetricKey);
             
             // Converte os bytes descriptografados para string
             String decryptedFileName = new String(decryptedFileNameBytes);
@@ -362,29 +613,66 @@ public class UnlockService {
         Path objectsPath = Paths.get(repositorioPath.toString(), ".criptogit", "objects");
         
         // A hash completa é o decryptedFileName
-        String hash = decryptedFileName;
+        ObjectId hash = ObjectId.fromHex(decryptedFileName);
         
         // Pega os 2 primeiros caracteres da hash para o diretório e os 38 restantes para o arquivo
-        String dirName = hash.substring(0, 2);        // 2 primeiros caracteres
-        String fileName = hash.substring(2);         // 38 caracteres restantes
+        String dirName = hash.getDirName();        // 2 primeiros caracteres
+        String fileName = hash.getFileName();     // 38 caracteres restantes
         
         // Cria a pasta se não existir
+        ObjectExistenceFilter objectFilter = ObjectExistenceFilter.forObjects(objectsPath);
         Path objectDir = Paths.get(objectsPath.toString(), dirName);
-        if (!Files.exists(objectDir)) {
-            Files.createDirectories(objectDir);
-        }
+        objectFilter.createDirectory(objectDir);
         
         // Cria o arquivo do blob se não existir
         Path objectFile = Paths.get(objectDir.toString(), fileName);
-        if (!Files.exists(objectFile)) {
-            Files.write(objectFile, decryptedData);
+        if (!objectFilter.exists(objectFile)) {
+            ObjectWriter.forObjects(objectsPath).write(objectFile, decryptedData);
+            objectFilter.add(objectFile);
         }
         
-        // Salva a chave simétrica na mesma pasta do blob com o nome {hash_completa}.key
-        String keyFileName = hash + ".key";
+        saveBlobSymmetricKey(hash, objectDir, objectFilter, symmetricKey, originalFile.getFileName().toString());
+    }
+
+    /**
+     * Salva na pasta .criptogit/objects um blob já descriptografado em um arquivo temporário da pasta objects
+     * @param tempFile Arquivo temporário com o conteúdo do blob (no formato do object solto)
+     * @param decryptedFileName Nome do arquivo descriptografado (que é a hash completa)
+     * @param originalFile Arquivo original para obter o caminho do repositório
+     * @param symmetricKey Chave simétrica usada para descriptografar o blob
+     * @return true se o temporário passou para o ObjectWriter (false se o object já existia)
+     * @throws Exception Se houver erro ao salvar
+     */
+    private boolean saveDecryptedBlobFile(Path tempFile, String decryptedFileName, Path originalFile, SecretKey symmetricKey) throws Exception {
+        Path objectsPath = originalFile.getParent().getParent().resolve("objects");
+        ObjectId hash = ObjectId.fromHex(decryptedFileName);
+        ObjectExistenceFilter objectFilter = ObjectExistenceFilter.forObjects(objectsPath);
+        Path objectDir = Paths.get(objectsPath.toString(), hash.getDirName());
+        objectFilter.createDirectory(objectDir);
+
+        // O temporário é renomeado para o object no sync do ObjectWriter
+        Path objectFile = Paths.get(objectDir.toString(), hash.getFileName());
+        boolean submitted = false;
+        if (!objectFilter.exists(objectFile)) {
+            submitted = ObjectWriter.forObjects(objectsPath).submit(tempFile, objectFile);
+            objectFilter.add(objectFile);
+        }
+        saveBlobSymmetricKey(hash, objectDir, objectFilter, symmetricKey, originalFile.getFileName().toString());
+        return submitted;
+    }
+
+    /**
+     * Salva a chave simétrica na mesma pasta do blob com o nome {hash_completa}.key, junto com o nome
+     * do arquivo da pasta locked (usado se este usuário adicionar um colaborador)
+     */
+    private void saveBlobSymmetricKey(ObjectId hash, Path objectDir, ObjectExistenceFilter objectFilter, SecretKey symmetricKey,
+                                      String lockedName) throws IOException {
+        String keyFileName = hash.toHex() + ".key";
         Path keyFile = Paths.get(objectDir.toString(), keyFileName);
-        if (!Files.exists(keyFile)) {
+        if (!objectFilter.exists(keyFile)) {
             Files.write(keyFile, symmetricKey.getEncoded());
+            objectFilter.add(keyFile);
+            Files.writeString(KeyBundle.lockedNameFile(keyFile), lockedName, StandardCharsets.US_ASCII);
         }
     }
 
@@ -402,11 +690,12 @@ public class UnlockService {
         }
         
         // Lê o arquivo de maior número na pasta versions (HEAD mais recente)
-        String commitHash = readLatestHeadFromVersions(repositorioPath);
-        if (commitHash == null) {
+        String latestHeadContent = readLatestHeadFromVersions(repositorioPath);
+        if (latestHeadContent == null) {
             System.err.println(" X Nenhum HEAD encontrado na pasta versions");
             return;
         }
+        ObjectId commitHash = ObjectId.fromHex(latestHeadContent);
         
         // Carrega e processa o commit (agora busca na pasta objects)
         Commit commit = loadCommit(repositorioPath, commitHash);
@@ -490,17 +779,14 @@ public class UnlockService {
      * @param commitHash Hash do commit
      * @return Commit carregado ou null se erro
      */
-    private Commit loadCommit(String repositorioPath, String commitHash) {
+    private Commit loadCommit(String repositorioPath, ObjectId commitHash) {
         try {
-            // Procura pelo arquivo do commit na pasta objects
-            Path commitFile = findObjectFile(repositorioPath, commitHash);
-            if (commitFile == null) {
+            // Lê o commit da pasta objects (solto ou empacotado)
+            byte[] commitData = ObjectStoreService.readObject(getObjectsPath(repositorioPath), commitHash);
+            if (commitData == null) {
                 System.out.println("X Arquivo do commit não encontrado: " + commitHash);
                 return null;
             }
-            
-            // Lê o conteúdo do arquivo
-            byte[] commitData = Files.readAllBytes(commitFile);
             String commitContent = new String(commitData);
             
             // Parse do commit
@@ -513,20 +799,12 @@ public class UnlockService {
     }
     
     /**
-     * Encontra o arquivo de um objeto pelo seu hash na pasta objects
+     * Caminho da pasta objects do repositório
      * @param repositorioPath Caminho do repositório
-     * @param objectHash Hash do objeto
-     * @return Path do arquivo ou null se não encontrado
+     * @return Path da pasta .criptogit/objects
      */
-    private Path findObjectFile(String repositorioPath, String objectHash) {
-        // Pega os 2 primeiros caracteres da hash para o diretório e os 38 restantes para o arquivo
-        String dirName = objectHash.substring(0, 2);        // 2 primeiros caracteres
-        String fileName = objectHash.substring(2);         // 38 caracteres restantes
-        
-        Path objectsPath = Paths.get(repositorioPath, ".criptogit", "objects");
-        Path objectFile = objectsPath.resolve(dirName).resolve(fileName);
-        
-        return Files.exists(objectFile) ? objectFile : null;
+    private Path getObjectsPath(String repositorioPath) {
+        return Paths.get(repositorioPath, ".criptogit", "objects");
     }
     
     /**
@@ -536,16 +814,16 @@ public class UnlockService {
      * @param repositorioPath Caminho do repositório
      * @return Commit parseado
      */
-    private Commit parseCommitContent(String commitContent, String commitHash, String repositorioPath) {
+    private Commit parseCommitContent(String commitContent, ObjectId commitHash, String repositorioPath) {
         Commit commit = new Commit();
         commit.setHash(commitHash);
         
         String[] lines = commitContent.split("\n");
-        String treeHash = null;
+        ObjectId treeHash = null;
         
         for (String line : lines) {
             if (line.startsWith("tree ")) {
-                treeHash = line.substring(5).trim();
+                treeHash = ObjectId.fromHex(line.substring(5).trim());
             } else if (line.startsWith("author ")) {
                 commit.setAuthor(line.substring(7).trim());
             } else if (line.startsWith("date ")) {
@@ -553,7 +831,7 @@ public class UnlockService {
             } else if (line.startsWith("message ")) {
                 commit.setMessage(line.substring(8).trim());
             } else if (line.startsWith("parent ")) {
-                commit.setParent(line.substring(7).trim());
+                commit.setParent(ObjectId.fromHex(line.substring(7).trim()));
             }
         }
         
@@ -572,17 +850,14 @@ public class UnlockService {
      * @param treeHash Hash da tree
      * @return Tree carregada ou null se erro
      */
-    private Tree loadTree(String repositorioPath, String treeHash) {
+    private Tree loadTree(String repositorioPath, ObjectId treeHash) {
         try {
-            // Procura pelo arquivo da tree na pasta objects
-            Path treeFile = findObjectFile(repositorioPath, treeHash);
-            if (treeFile == null) {
+            // Lê a tree da pasta objects (solta ou empacotada)
+            byte[] treeData = ObjectStoreService.readObject(getObjectsPath(repositorioPath), treeHash);
+            if (treeData == null) {
                 System.out.println("X Arquivo da tree não encontrado: " + treeHash);
                 return null;
             }
-            
-            // Lê o conteúdo do arquivo
-            byte[] treeData = Files.readAllBytes(treeFile);
             String treeContent = new String(treeData);
             
             // Parse da tree
@@ -601,7 +876,7 @@ public class UnlockService {
      * @param repositorioPath Caminho do repositório
      * @return Tree parseada
      */
-    private Tree parseTreeContent(String treeContent, String treeHash, String repositorioPath) {
+    private Tree parseTreeContent(String treeContent, ObjectId treeHash, String repositorioPath) {
         Tree tree = new Tree();
         tree.setHash(treeHash);
         
@@ -609,11 +884,11 @@ public class UnlockService {
         
         for (String line : lines) {
             if (line.startsWith("blob ")) {
-                // Formato: blob <hash> <nome>
-                String[] parts = line.substring(5).trim().split(" ", 2);
-                if (parts.length == 2) {
-                    String fileName = parts[0];
-                    String blobHash = parts[1];
+                // Formato: blob <nome> <hash>
+                String[] parts = TreeService.splitTreeLine(line.trim());
+                if (parts != null) {
+                    String fileName = parts[1];
+                    ObjectId blobHash = ObjectId.fromHex(parts[2]);
                     
                     Arquivo arquivo = new Arquivo();
                     arquivo.setName(fileName);
@@ -625,11 +900,11 @@ public class UnlockService {
                     tree.addArquivo(arquivo);
                 }
             } else if (line.startsWith("tree ")) {
-                // Formato: tree <hash> <nome>
-                String[] parts = line.substring(5).trim().split(" ", 2);
-                if (parts.length == 2) {
-                    String treeName = parts[0];
-                    String subTreeHash = parts[1];
+                // Formato: tree <nome> <hash>
+                String[] parts = TreeService.splitTreeLine(line.trim());
+                if (parts != null) {
+                    String treeName = parts[1];
+                    ObjectId subTreeHash = ObjectId.fromHex(parts[2]);
                     
                     Tree subTree = loadTree(repositorioPath, subTreeHash);
                     if (subTree != null) {
@@ -656,14 +931,15 @@ public class UnlockService {
             Blob blob = arquivo.getBlob();
             String fileName = arquivo.getName();
             
-            // Carrega o conteúdo do blob
-            byte[] blobContent = loadBlobContent(repositorioPath, blob.getHash());
-            if (blobContent != null) {
-                // Cria o arquivo
-                Path filePath = currentPath.resolve(fileName);
-                Files.write(filePath, blobContent);
-            } else {
-                System.out.println("  X Erro ao carregar blob: " + blob.getHash());
+            // Carrega o conteúdo do blob e cria o arquivo, copiando-o em blocos
+            try (InputStream blobContent = loadBlobContent(repositorioPath, blob.getHash())) {
+                if (blobContent != null) {
+                    // Cria o arquivo
+                    Path filePath = currentPath.resolve(fileName);
+                    Files.copy(blobContent, filePath, StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    System.out.println("  X Erro ao carregar blob: " + blob.getHash());
+                }
             }
         }
         
@@ -681,33 +957,47 @@ public class UnlockService {
     }
     
     /**
-     * Carrega o conteúdo de um blob
+     * Abre o conteúdo de um blob, descompactando-o se necessário
      * @param repositorioPath Caminho do repositório
      * @param blobHash Hash do blob
-     * @return Conteúdo do blob ou null se erro
+     * @return InputStream com o conteúdo do blob ou null se erro
      */
-    private byte[] loadBlobContent(String repositorioPath, String blobHash) {
+    private InputStream loadBlobContent(String repositorioPath, ObjectId blobHash) {
         try {
-            // Procura pelo arquivo do blob na pasta objects
-            Path blobFile = findObjectFile(repositorioPath, blobHash);
-            if (blobFile == null) {
+            // Abre o blob da pasta objects (solto ou empacotado)
+            InputStream blobStream = ObjectStoreService.openObject(getObjectsPath(repositorioPath), blobHash);
+            if (blobStream == null) {
                 System.out.println("X Arquivo do blob não encontrado: " + blobHash);
                 return null;
             }
+            BufferedInputStream blobData = new BufferedInputStream(blobStream, BLOB_PREFIX_LIMIT);
             
-            // Lê o conteúdo do arquivo
-            byte[] blobData = Files.readAllBytes(blobFile);
-            
-            // Remove o prefixo "blob " se existir
-            String blobContent = new String(blobData);
-            if (blobContent.startsWith("blob ")) {
-                // Encontra a primeira quebra de linha após "blob "
-                int newlineIndex = blobContent.indexOf('\n');
-                if (newlineIndex != -1) {
-                    return blobContent.substring(newlineIndex + 1).getBytes();
+            // Arquivo dividido em chunks: remonta o conteúdo a partir dos chunks
+            blobData.mark(BLOB_PREFIX_LIMIT);
+            if (ChunkService.isChunkList(blobData.readNBytes(ChunkService.MAGIC.length))) {
+                blobData.reset();
+                byte[] chunkList;
+                try (blobData) {
+                    chunkList = blobData.readAllBytes();
                 }
+                return ChunkService.openChunks(getObjectsPath(repositorioPath), ChunkService.parseChunkList(chunkList));
             }
+            blobData.reset();
             
+            // Remove o prefixo "blob " se existir, até a primeira quebra de linha
+            blobData.mark(BLOB_PREFIX_LIMIT);
+            byte[] prefix = blobData.readNBytes(5);
+            if (new String(prefix).equals("blob ")) {
+                int read;
+                int count = prefix.length;
+                while ((read = blobData.read()) != -1 && read != '\n' && count < BLOB_PREFIX_LIMIT - 1) {
+                    count++;
+                }
+                if (read == '\n') {
+                    return blobData;
+                }
+            }
+            blobData.reset();
             return blobData;
             
         } catch (Exception e) {
@@ -0,0 +1,87 @@
+package fateczl.CriptoGitClient.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fateczl.CriptoGitClient.model.Tree;
+import fateczl.CriptoGitClient.service.FileService;
+import fateczl.CriptoGitClient.service.RepositorioService;
+import fateczl.CriptoGitClient.service.TreeService;
+
+/**
+ * Mede a montagem das trees do commit com 100 mil arquivos no index
+ *
+ * Para executar:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=CommitTreesBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class CommitTreesBenchmark {
+
+    @Param({"100000"})
+    private int files;
+
+    private Path repositorio;
+    private RepositorioService repositorioService;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        repositorio = Files.createTempDirectory("criptogit-commit-bench");
+        // 100 arquivos por diretório, em 10 subdiretórios de cada diretório
+        for (int i = 0; i < files; i++) {
+            Path dir = repositorio.resolve("dir" + (i / 1000)).resolve("sub" + (i / 100 % 10));
+            Files.createDirectories(dir);
+            Files.writeString(dir.resolve("arquivo" + i + ".txt"), "conteudo " + i);
+        }
+        repositorioService = new RepositorioService();
+        repositorioService.init(repositorio.toString());
+        FileService fileService = new FileService();
+        fileService.setRepositorioPath(repositorio.toString());
+        fileService.setIndex(repositorioService.getIndex());
+        fileService.setJobs(Runtime.getRuntime().availableProcessors());
+        fileService.add(".");
+    }
+
+    @Benchmark
+    public Tree commitTrees() throws Exception {
+        TreeService treeService = new TreeService();
+        treeService.setIndex(repositorioService.getIndex());
+        treeService.setRepositorioPath(repositorio.toString());
+        // Sem o cache-tree, todas as trees são recalculadas a partir do index
+        repositorioService.getIndex().setCacheTree(new HashMap<>());
+        return treeService.buildTreesFromIndex(Paths.get(repositorio.toString(), ".criptogit", "objects"),
+            MessageDigest.getInstance("SHA-1"));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(repositorio)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
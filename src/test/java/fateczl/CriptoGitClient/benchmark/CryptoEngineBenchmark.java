@@ -0,0 +1,152 @@
+package fateczl.CriptoGitClient.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fateczl.CriptoGitClient.service.CryptoEngine;
+import fateczl.CriptoGitClient.service.SegmentedCipher;
+
+/**
+ * Mede as operações feitas por object na criptografia do commit e no unlock: criptografia e
+ * descriptografia do conteúdo (SegmentedCipher) de 100 B a 100 MB, geração da chave simétrica e
+ * criptografia da chave com RSA. As variantes "getInstance" criam o contexto a cada chamada, como
+ * era feito antes do CryptoEngine, para comparação.
+ *
+ * Para executar:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=CryptoEngineBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class CryptoEngineBenchmark {
+
+    @State(Scope.Thread)
+    public static class ObjectState {
+        @Param({"100", "10240", "1048576", "104857600"})
+        private int size;
+
+        private byte[] content;
+        private byte[] encrypted;
+        private SecretKey key;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            content = new byte[size];
+            new Random(size).nextBytes(content);
+            key = CryptoEngine.generateAesKey();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(size + size / 1024 + 64);
+            SegmentedCipher.encrypt(Channels.newChannel(new ByteArrayInputStream(content)), Channels.newChannel(out), key);
+            encrypted = out.toByteArray();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class KeyState {
+        private SecretKey key;
+        private KeyPair keyPair;
+        private byte[] wrapped;
+
+        @Setup(Level.Trial)
+        public void setup() throws Exception {
+            key = CryptoEngine.generateAesKey();
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+            keyPair = generator.generateKeyPair();
+            wrapped = CryptoEngine.wrapKey(key, keyPair.getPublic());
+        }
+    }
+
+    /**
+     * Descarta o conteúdo gravado, contando apenas os bytes
+     */
+    private static final class CountingChannel implements WritableByteChannel {
+        private long count;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int remaining = src.remaining();
+            src.position(src.limit());
+            count += remaining;
+            return remaining;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Benchmark
+    public long encryptObject(ObjectState state) throws IOException {
+        CountingChannel out = new CountingChannel();
+        SegmentedCipher.encrypt(Channels.newChannel(new ByteArrayInputStream(state.content)), out, state.key);
+        return out.count;
+    }
+
+    @Benchmark
+    public long decryptObject(ObjectState state) throws IOException {
+        CountingChannel out = new CountingChannel();
+        SegmentedCipher.decrypt(Channels.newChannel(new ByteArrayInputStream(state.encrypted)), out, state.key);
+        return out.count;
+    }
+
+    @Benchmark
+    public SecretKey generateKey() throws GeneralSecurityException {
+        return CryptoEngine.generateAesKey();
+    }
+
+    @Benchmark
+    public SecretKey generateKeyGetInstance() throws GeneralSecurityException {
+        KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+        keyGenerator.init(CryptoEngine.AES_KEY_SIZE);
+        return keyGenerator.generateKey();
+    }
+
+    @Benchmark
+    public byte[] wrapKey(KeyState state) throws GeneralSecurityException {
+        return CryptoEngine.wrapKey(state.key, state.keyPair.getPublic());
+    }
+
+    @Benchmark
+    public byte[] wrapKeyGetInstance(KeyState state) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(CryptoEngine.RSA);
+        cipher.init(Cipher.ENCRYPT_MODE, state.keyPair.getPublic());
+        return cipher.doFinal(state.key.getEncoded());
+    }
+
+    @Benchmark
+    public byte[] unwrapKey(KeyState state) throws GeneralSecurityException {
+        return CryptoEngine.decryptRsa(state.wrapped, state.keyPair.getPrivate());
+    }
+}
@@ -0,0 +1,85 @@
+package fateczl.CriptoGitClient.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import fateczl.CriptoGitClient.model.Blob;
+import fateczl.CriptoGitClient.model.FileStat;
+import fateczl.CriptoGitClient.model.Index;
+import fateczl.CriptoGitClient.model.ObjectId;
+import fateczl.CriptoGitClient.service.IndexService;
+
+/**
+ * Mede o tempo de carregamento do index binário com 1 milhão de entradas
+ *
+ * Para executar:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=org.openjdk.jmh.Main -Dexec.args=IndexLoadBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class IndexLoadBenchmark {
+
+    @Param({"1000000"})
+    private int entries;
+
+    private Path repositorio;
+    private IndexService indexService;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        repositorio = Files.createTempDirectory("criptogit-index-bench");
+        Files.createDirectories(repositorio.resolve(".criptogit"));
+        indexService = new IndexService();
+
+        List<Blob> blobs = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            Blob blob = new Blob();
+            blob.setHash(ObjectId.fromHex(String.format("%040x", i)));
+            blob.setRelativePath(String.format("/src/dir%04d/arquivo %07d.txt", i % 1000, i));
+            FileStat stat = new FileStat();
+            stat.setSize(i);
+            stat.setMtime(System.nanoTime());
+            stat.setCtime(stat.getMtime());
+            stat.setFileKey(i);
+            blob.setStat(stat);
+            blobs.add(blob);
+        }
+        Index index = new Index();
+        index.setBlobs(blobs);
+        indexService.write(index, repositorio.toString());
+    }
+
+    @Benchmark
+    public Index load() throws IOException {
+        return indexService.load(repositorio.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(repositorio.resolve(".criptogit").resolve("index"));
+        Files.deleteIfExists(repositorio.resolve(".criptogit"));
+        Files.deleteIfExists(repositorio);
+    }
+}
@@ -0,0 +1,166 @@
+package fateczl.CriptoGitClient.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import fateczl.CriptoGitClient.model.Blob;
+import fateczl.CriptoGitClient.model.CacheTreeEntry;
+import fateczl.CriptoGitClient.model.Index;
+import fateczl.CriptoGitClient.model.ObjectId;
+import fateczl.CriptoGitClient.model.Tree;
+
+/**
+ * Extensão cache-tree do index: invalidação ao longo do caminho das entradas alteradas, remoção das
+ * entradas de arquivos apagados no 'add .' e reaproveitamento das trees no commit seguinte
+ */
+class CacheTreeTests {
+
+    @TempDir
+    Path repositorio;
+
+    private String repositorioPath;
+    private Index index;
+    private FileService fileService;
+
+    @BeforeEach
+    void createRepository() throws Exception {
+        repositorioPath = repositorio.toString();
+        RepositorioService repositorioService = new RepositorioService();
+        repositorioService.init(repositorioPath);
+        index = repositorioService.getIndex();
+        fileService = new FileService();
+        fileService.setRepositorioPath(repositorioPath);
+        fileService.setIndex(index);
+    }
+
+    @Test
+    void changedEntryInvalidatesOnlyItsAncestors() {
+        Map<String, CacheTreeEntry> cacheTree = new HashMap<>();
+        for (String directory : new String[] { "", "/a", "/a/b", "/a/b/c", "/a/d", "/e" }) {
+            cacheTree.put(directory, new CacheTreeEntry(hash(directory.length()), 1));
+        }
+        index.setCacheTree(cacheTree);
+
+        Blob blob = new Blob();
+        blob.setHash(hash(100));
+        index.addBlob(blob, repositorioPath, repositorioPath + "/a/b/c/x.txt");
+
+        assertNull(index.getCacheTree(""));
+        assertNull(index.getCacheTree("/a"));
+        assertNull(index.getCacheTree("/a/b"));
+        assertNull(index.getCacheTree("/a/b/c"));
+        // Diretórios irmãos continuam com a tree calculada
+        assertNotNull(index.getCacheTree("/a/d"));
+        assertNotNull(index.getCacheTree("/e"));
+    }
+
+    @Test
+    void sameContentKeepsCacheTree() {
+        Blob blob = new Blob();
+        blob.setHash(hash(1));
+        index.addBlob(blob, repositorioPath, repositorioPath + "/a/x.txt");
+        index.setCacheTree(Map.of("", new CacheTreeEntry(hash(2), 1), "/a", new CacheTreeEntry(hash(3), 1)));
+
+        // Apenas o stat mudou: as trees não são afetadas
+        Blob sameContent = new Blob();
+        sameContent.setHash(hash(1));
+        index.addBlob(sameContent, repositorioPath, repositorioPath + "/a/x.txt");
+
+        assertNotNull(index.getCacheTree(""));
+        assertNotNull(index.getCacheTree("/a"));
+    }
+
+    @Test
+    void addAllRemovesDeletedFiles() throws Exception {
+        write("a/keep.txt", "keep");
+        write("a/b/gone.txt", "gone");
+        write("c/other.txt", "other");
+        fileService.add(".");
+        buildTrees();
+        assertNotNull(index.findByPath("/a/b/gone.txt"));
+        assertNotNull(index.getCacheTree("/c"));
+
+        Files.delete(repositorio.resolve("a/b/gone.txt"));
+        fileService.add(".");
+
+        assertNull(index.findByPath("/a/b/gone.txt"));
+        assertNotNull(index.findByPath("/a/keep.txt"));
+        assertNull(index.getCacheTree("/a/b"));
+        assertNull(index.getCacheTree("/a"));
+        assertNull(index.getCacheTree(""));
+        assertNotNull(index.getCacheTree("/c"));
+    }
+
+    @Test
+    void secondCommitRebuildsOnlyChangedPath() throws Exception {
+        // Quatro diretórios em cada um de três níveis, além da raiz
+        for (String first : new String[] { "p", "q", "r", "s" }) {
+            for (String second : new String[] { "1", "2", "3", "4" }) {
+                write(first + "/" + second + "/file.txt", first + second);
+                write(first + "/" + second + "/deep/file.txt", "deep " + first + second);
+            }
+        }
+        fileService.add(".");
+        TreeService first = buildTrees();
+        // Raiz + 4 + 16 + 16 diretórios
+        assertEquals(37, first.getRebuiltTrees());
+        ObjectId firstRoot = index.getCacheTree("").getHash();
+
+        write("q/3/deep/file.txt", "alterado com outro tamanho");
+        fileService.add(".");
+        TreeService second = buildTrees();
+        // Só os diretórios no caminho do arquivo: raiz, q, q/3 e q/3/deep
+        assertEquals(4, second.getRebuiltTrees());
+        ObjectId secondRoot = index.getCacheTree("").getHash();
+        assertNotEquals(firstRoot, secondRoot);
+
+        // Sem cache-tree, todas as trees são recalculadas e a raiz é a mesma
+        Index fresh = new Index();
+        fresh.setBlobs(index.getBlobs());
+        TreeService full = new TreeService();
+        full.setIndex(fresh);
+        full.setRepositorioPath(repositorioPath);
+        Tree root = full.buildTreesFromIndex(objectsPath(), MessageDigest.getInstance("SHA-1"));
+        assertEquals(37, full.getRebuiltTrees());
+        assertEquals(secondRoot, root.getHash());
+    }
+
+    private TreeService buildTrees() throws Exception {
+        TreeService treeService = new TreeService();
+        treeService.setIndex(index);
+        treeService.setRepositorioPath(repositorioPath);
+        Tree root = treeService.buildTreesFromIndex(objectsPath(), MessageDigest.getInstance("SHA-1"));
+        assertEquals(root.getHash(), index.getCacheTree("").getHash());
+        return treeService;
+    }
+
+    private Path objectsPath() {
+        return Paths.get(repositorioPath, ".criptogit", "objects");
+    }
+
+    private void write(String relativePath, String content) throws Exception {
+        Path file = repositorio.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static ObjectId hash(int seed) {
+        byte[] bytes = new byte[ObjectId.SIZE];
+        bytes[0] = (byte) seed;
+        bytes[1] = 1;
+        return ObjectId.fromBytes(bytes);
+    }
+}
@@ -0,0 +1,151 @@
+package fateczl.CriptoGitClient.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Arquivo commit-graph: ida e volta dos registros, busca pelo fan-out (inclusive de hashes ausentes nas
+ * pontas da tabela), números de geração em um merge e recusa de um arquivo corrompido
+ */
+class CommitGraphTests {
+
+    @TempDir
+    Path objectsPath;
+
+    @Test
+    void missingGraphLoadsNull() throws Exception {
+        assertNull(CommitGraph.load(objectsPath));
+    }
+
+    @Test
+    void writeLoadRoundTrip() throws Exception {
+        ObjectId root = id(0x00, 1);
+        ObjectId second = id(0x7f, 2);
+        ObjectId third = id(0xff, 3);
+        List<CommitGraph.Entry> entries = new ArrayList<>();
+        // Fora de ordem: o arquivo ordena as hashes
+        entries.add(new CommitGraph.Entry(third, id(0x20, 30), List.of(second), 1_700_000_300L));
+        entries.add(new CommitGraph.Entry(root, id(0x20, 10), List.of(), 1_700_000_100L));
+        entries.add(new CommitGraph.Entry(second, id(0x20, 20), List.of(root), 1_700_000_200L));
+        CommitGraph.write(objectsPath, entries);
+
+        CommitGraph graph = CommitGraph.load(objectsPath);
+        assertEquals(3, graph.getCount());
+        for (CommitGraph.Entry entry : entries) {
+            int position = graph.find(entry.id);
+            assertTrue(position >= 0, "commit não encontrado: " + entry.id);
+            assertEquals(entry.id, graph.getId(position));
+            assertEquals(entry.tree, graph.getTree(position));
+            assertEquals(entry.timestamp, graph.getTimestamp(position));
+            int parent = graph.getParent(position, 0);
+            assertEquals(entry.parents.isEmpty() ? null : entry.parents.get(0),
+                parent == CommitGraph.NO_PARENT ? null : graph.getId(parent));
+            assertEquals(CommitGraph.NO_PARENT, graph.getParent(position, 1));
+        }
+    }
+
+    @Test
+    void findMissingIds() throws Exception {
+        List<CommitGraph.Entry> entries = new ArrayList<>();
+        for (int first : new int[] { 0x00, 0x10, 0x10, 0x10, 0x80, 0xff }) {
+            entries.add(new CommitGraph.Entry(id(first, entries.size()), id(0x20, 0), List.of(), 0));
+        }
+        CommitGraph.write(objectsPath, entries);
+        CommitGraph graph = CommitGraph.load(objectsPath);
+
+        for (CommitGraph.Entry entry : entries) {
+            assertEquals(entry.id, graph.getId(graph.find(entry.id)));
+        }
+        // Primeiro byte presente na tabela, mas hash ausente (antes, entre e depois das hashes do mesmo byte)
+        assertEquals(-1, graph.find(id(0x10, 0)));
+        assertEquals(-1, graph.find(id(0x10, 99)));
+        assertEquals(-1, graph.find(id(0x00, 99)));
+        assertEquals(-1, graph.find(id(0xff, 99)));
+        // Primeiro byte sem nenhuma hash
+        assertEquals(-1, graph.find(id(0x01, 1)));
+        assertEquals(-1, graph.find(id(0xfe, 1)));
+    }
+
+    @Test
+    void emptyGraphFindsNothing() throws Exception {
+        CommitGraph.write(objectsPath, List.of());
+        CommitGraph graph = CommitGraph.load(objectsPath);
+        assertEquals(0, graph.getCount());
+        assertEquals(-1, graph.find(id(0x00, 0)));
+        assertEquals(-1, graph.find(id(0xff, 0)));
+    }
+
+    @Test
+    void generationsOnMerge() throws Exception {
+        //   a - b - c - d - m
+        //        \         /
+        //         e ----- f
+        ObjectId a = id(0x90, 1);
+        ObjectId b = id(0x50, 2);
+        ObjectId c = id(0xa0, 3);
+        ObjectId d = id(0x10, 4);
+        ObjectId e = id(0xc0, 5);
+        ObjectId f = id(0x30, 6);
+        ObjectId m = id(0x70, 7);
+        CommitGraph.write(objectsPath, List.of(
+            entry(m, d, f), entry(f, e), entry(e, b), entry(d, c), entry(c, b), entry(b, a), entry(a)));
+        CommitGraph graph = CommitGraph.load(objectsPath);
+
+        assertEquals(1, graph.getGeneration(graph.find(a)));
+        assertEquals(2, graph.getGeneration(graph.find(b)));
+        assertEquals(3, graph.getGeneration(graph.find(c)));
+        assertEquals(4, graph.getGeneration(graph.find(d)));
+        assertEquals(3, graph.getGeneration(graph.find(e)));
+        assertEquals(4, graph.getGeneration(graph.find(f)));
+        // Um a mais que o maior dos pais
+        assertEquals(5, graph.getGeneration(graph.find(m)));
+        int merge = graph.find(m);
+        assertEquals(d, graph.getId(graph.getParent(merge, 0)));
+        assertEquals(f, graph.getId(graph.getParent(merge, 1)));
+    }
+
+    @Test
+    void parentOutsideGraphIsDropped() throws Exception {
+        ObjectId child = id(0x40, 1);
+        CommitGraph.write(objectsPath, List.of(entry(child, id(0x41, 2))));
+        CommitGraph graph = CommitGraph.load(objectsPath);
+        assertEquals(CommitGraph.NO_PARENT, graph.getParent(graph.find(child), 0));
+        assertEquals(1, graph.getGeneration(graph.find(child)));
+    }
+
+    @Test
+    void corruptedGraphFails() throws Exception {
+        CommitGraph.write(objectsPath, List.of(entry(id(0x40, 1))));
+        Path graphPath = CommitGraph.graphPath(objectsPath);
+        byte[] content = Files.readAllBytes(graphPath);
+        content[content.length - ObjectId.SIZE - 1] ^= 1;
+        Files.write(graphPath, content);
+        assertThrows(IOException.class, () -> CommitGraph.load(objectsPath));
+    }
+
+    static CommitGraph.Entry entry(ObjectId id, ObjectId... parents) {
+        return new CommitGraph.Entry(id, id(0x20, 0), List.of(parents), 0);
+    }
+
+    // Hash com o primeiro byte escolhido, para posicionar o commit na tabela de fan-out
+    static ObjectId id(int first, int seed) {
+        byte[] bytes = new byte[ObjectId.SIZE];
+        bytes[0] = (byte) first;
+        bytes[1] = (byte) seed;
+        bytes[ObjectId.SIZE - 1] = 1;
+        return ObjectId.fromBytes(bytes);
+    }
+}
@@ -0,0 +1,118 @@
+package fateczl.CriptoGitClient.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Deltas entre objects: ida e volta em alterações comuns, limites de create e recusa de deltas que não
+ * correspondem à base
+ */
+class DeltaTests {
+
+    @Test
+    void roundTripSmallEdit() throws Exception {
+        byte[] base = content(100_000, 1);
+        byte[] target = base.clone();
+        target[50_000] ^= 1;
+        byte[] delta = assertRoundTrip(base, target);
+        // Quase tudo é copiado da base
+        assertTrue(delta.length < 100, "delta com " + delta.length + " bytes");
+    }
+
+    @Test
+    void roundTripInsertAndDelete() throws Exception {
+        byte[] base = content(200_000, 2);
+        byte[] inserted = content(5_000, 3);
+        byte[] target = new byte[base.length - 10_000 + inserted.length];
+        // Remove 10 KB no meio e insere 5 KB perto do início
+        System.arraycopy(base, 0, target, 0, 1_000);
+        System.arraycopy(inserted, 0, target, 1_000, inserted.length);
+        System.arraycopy(base, 1_000, target, 1_000 + inserted.length, 99_000);
+        System.arraycopy(base, 110_000, target, 105_000, 90_000);
+        assertRoundTrip(base, target);
+    }
+
+    @Test
+    void roundTripUnrelatedContent() throws Exception {
+        // Nada em comum: o delta só tem inserções
+        assertRoundTrip(content(1_000, 4), content(1_000, 5));
+    }
+
+    @Test
+    void roundTripLongCopy() throws Exception {
+        // Cópia maior que o tamanho máximo de uma instrução
+        byte[] base = content(0xFFFFFF + 1_000, 6);
+        byte[] target = Arrays.copyOf(base, base.length + 10);
+        assertRoundTrip(base, target);
+    }
+
+    @Test
+    void createRejectsTinyInputs() {
+        assertNull(Delta.create(new byte[15], content(1_000, 7), Integer.MAX_VALUE));
+        assertNull(Delta.create(content(1_000, 7), new byte[15], Integer.MAX_VALUE));
+    }
+
+    @Test
+    void createRespectsMaxSize() {
+        assertNull(Delta.create(content(1_000, 8), content(1_000, 9), 500));
+    }
+
+    @Test
+    void createRejectsNonPositiveMaxSize() {
+        // Limite calculado pelo repack para um blob de 30 bytes: 30 / 2 - 20
+        byte[] base = content(30, 14);
+        byte[] target = base.clone();
+        target[0] ^= 1;
+        assertNull(Delta.create(base, target, -5));
+        assertNull(Delta.create(base, target, 0));
+    }
+
+    @Test
+    void applyRejectsOtherBase() throws Exception {
+        byte[] base = content(1_000, 10);
+        byte[] delta = Delta.create(base, content(1_000, 11), Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> Delta.apply(Arrays.copyOf(base, 999), delta, 0));
+    }
+
+    @Test
+    void applyRejectsTruncatedDelta() throws Exception {
+        byte[] base = content(1_000, 12);
+        byte[] target = base.clone();
+        target[10] ^= 1;
+        byte[] delta = Delta.create(base, target, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> Delta.apply(base, Arrays.copyOf(delta, delta.length - 1), 0));
+    }
+
+    @Test
+    void applyReadsFromOffset() throws Exception {
+        byte[] base = content(1_000, 13);
+        byte[] target = base.clone();
+        target[500] ^= 1;
+        byte[] delta = Delta.create(base, target, Integer.MAX_VALUE);
+        byte[] prefixed = new byte[delta.length + 7];
+        System.arraycopy(delta, 0, prefixed, 7, delta.length);
+        assertArrayEquals(target, Delta.apply(base, prefixed, 7));
+    }
+
+    private static byte[] assertRoundTrip(byte[] base, byte[] target) throws IOException {
+        byte[] delta = Delta.create(base, target, Integer.MAX_VALUE);
+        assertNotNull(delta);
+        assertArrayEquals(target, Delta.apply(base, delta, 0));
+        return delta;
+    }
+
+    private static byte[] content(int size, long seed) {
+        byte[] content = new byte[size];
+        new Random(seed).nextBytes(content);
+        return content;
+    }
+}
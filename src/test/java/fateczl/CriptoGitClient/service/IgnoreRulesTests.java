@@ -0,0 +1,190 @@
+package fateczl.CriptoGitClient.service;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Regras do .criptogitignore: classes de caracteres e escapes, "**", padrões ancorados e por nome,
+ * inclusão com "!", regras só para diretórios e prioridade dos arquivos de subdiretórios
+ */
+class IgnoreRulesTests {
+
+    @TempDir
+    Path repositorio;
+
+    @Test
+    void unclosedBracketIsLiteral() throws Exception {
+        IgnoreRules rules = rules("a[b", "[");
+        assertTrue(rules.isIgnored("/a[b", false));
+        assertTrue(rules.isIgnored("/[", false));
+        assertFalse(rules.isIgnored("/ab", false));
+    }
+
+    @Test
+    void characterClasses() throws Exception {
+        IgnoreRules rules = rules("file[0-9].txt", "x[!a-z]", "[]]y", "z[ab-]");
+        assertTrue(rules.isIgnored("/file7.txt", false));
+        assertFalse(rules.isIgnored("/fileA.txt", false));
+        assertTrue(rules.isIgnored("/x1", false));
+        assertTrue(rules.isIgnored("/xA", false));
+        assertFalse(rules.isIgnored("/xq", false));
+        assertTrue(rules.isIgnored("/]y", false));
+        assertTrue(rules.isIgnored("/z-", false));
+        assertTrue(rules.isIgnored("/zb", false));
+        assertFalse(rules.isIgnored("/zc", false));
+    }
+
+    @Test
+    void negatedClassDoesNotCrossDirectories() throws Exception {
+        IgnoreRules rules = rules("/a[!b]c");
+        assertTrue(rules.isIgnored("/axc", false));
+        assertFalse(rules.isIgnored("/a/c", false));
+    }
+
+    @Test
+    void regexCharactersInClassesAreLiteral() throws Exception {
+        // Sem o escape, "[a&&b]", "[\\d]" e "[^x]" mudariam de sentido (ou não compilariam) como regex
+        IgnoreRules rules = rules("p[a&&b]", "q[\\d]", "r[^x]", "s[[]");
+        assertTrue(rules.isIgnored("/p&", false));
+        assertTrue(rules.isIgnored("/pa", false));
+        assertFalse(rules.isIgnored("/pc", false));
+        assertTrue(rules.isIgnored("/qd", false));
+        assertFalse(rules.isIgnored("/q1", false));
+        assertTrue(rules.isIgnored("/r^", false));
+        assertTrue(rules.isIgnored("/rx", false));
+        assertFalse(rules.isIgnored("/ry", false));
+        assertTrue(rules.isIgnored("/s[", false));
+    }
+
+    @Test
+    void backslashEscapes() throws Exception {
+        IgnoreRules rules = rules("\\#notes", "\\!important", "star\\*", "q\\?", "b\\[x]");
+        assertTrue(rules.isIgnored("/#notes", false));
+        assertTrue(rules.isIgnored("/!important", false));
+        assertTrue(rules.isIgnored("/star*", false));
+        assertFalse(rules.isIgnored("/starfish", false));
+        assertTrue(rules.isIgnored("/q?", false));
+        assertFalse(rules.isIgnored("/qa", false));
+        assertTrue(rules.isIgnored("/b[x]", false));
+        assertFalse(rules.isIgnored("/bx", false));
+    }
+
+    @Test
+    void trailingBackslashIsLiteral() throws Exception {
+        IgnoreRules rules = rules("bad\\", "*.tmp");
+        assertTrue(rules.isIgnored("/bad\\", false));
+        assertFalse(rules.isIgnored("/bad", false));
+        assertTrue(rules.isIgnored("/x.tmp", false));
+    }
+
+    @Test
+    void doubleStar() throws Exception {
+        IgnoreRules rules = rules("**/cache", "logs/**/*.log", "docs/**");
+        assertTrue(rules.isIgnored("/cache", true));
+        assertTrue(rules.isIgnored("/a/b/cache", true));
+        assertTrue(rules.isIgnored("/logs/app.log", false));
+        assertTrue(rules.isIgnored("/logs/2024/01/app.log", false));
+        assertFalse(rules.isIgnored("/other/app.log", false));
+        assertTrue(rules.isIgnored("/docs/a/b.md", false));
+        assertFalse(rules.isIgnored("/docs", true));
+    }
+
+    @Test
+    void anchoredAndUnanchoredPatterns() throws Exception {
+        IgnoreRules rules = rules("/root.txt", "build/out", "*.o", "star*");
+        assertTrue(rules.isIgnored("/root.txt", false));
+        assertFalse(rules.isIgnored("/sub/root.txt", false));
+        // Com "/" no meio, o padrão é comparado com o caminho inteiro
+        assertTrue(rules.isIgnored("/build/out", false));
+        assertFalse(rules.isIgnored("/sub/build/out", false));
+        // Sem "/", vale em qualquer nível
+        assertTrue(rules.isIgnored("/main.o", false));
+        assertTrue(rules.isIgnored("/a/b/main.o", false));
+        // "*" não passa de um nível para outro
+        assertFalse(rules("a*c").isIgnored("/ab/c", false));
+        assertTrue(rules.isIgnored("/startup", false));
+    }
+
+    @Test
+    void negationReincludes() throws Exception {
+        IgnoreRules rules = rules("*.log", "!keep.log");
+        assertTrue(rules.isIgnored("/debug.log", false));
+        assertFalse(rules.isIgnored("/keep.log", false));
+        assertFalse(rules.isIgnored("/sub/keep.log", false));
+        // O último padrão que corresponde é o que vale
+        IgnoreRules reversed = rules("!keep.log", "*.log");
+        assertTrue(reversed.isIgnored("/keep.log", false));
+    }
+
+    @Test
+    void directoryOnlyRules() throws Exception {
+        IgnoreRules rules = rules("tmp/");
+        assertTrue(rules.isIgnored("/tmp", true));
+        assertTrue(rules.isIgnored("/a/tmp", true));
+        assertFalse(rules.isIgnored("/tmp", false));
+    }
+
+    @Test
+    void criptogitIsAlwaysIgnored() throws Exception {
+        IgnoreRules rules = rules();
+        assertTrue(rules.isIgnored("/.criptogit", true));
+        assertFalse(rules.isIgnored("/readme.md", false));
+    }
+
+    @Test
+    void nestedFileTakesPrecedence() throws Exception {
+        write(".criptogitignore", "*.log", "secret/");
+        write("sub/.criptogitignore", "!keep.log", "local.txt");
+        Files.createDirectories(repositorio.resolve("other"));
+        IgnoreRules root = IgnoreRules.load(repositorio);
+        IgnoreRules sub = root.forDirectory(repositorio.resolve("sub"), "/sub");
+        IgnoreRules other = root.forDirectory(repositorio.resolve("other"), "/other");
+
+        assertTrue(root.isIgnored("/keep.log", false));
+        assertFalse(sub.isIgnored("/sub/keep.log", false));
+        assertTrue(sub.isIgnored("/sub/debug.log", false));
+        assertTrue(sub.isIgnored("/sub/local.txt", false));
+        assertTrue(sub.isIgnored("/sub/secret", true));
+        // As regras de sub não valem fora dele
+        assertTrue(other.isIgnored("/other/keep.log", false));
+        assertFalse(other.isIgnored("/other/local.txt", false));
+    }
+
+    @Test
+    void ignoredDirectoryCannotBeReincluded() throws Exception {
+        write(".criptogitignore", "build/", "!build/keep.txt");
+        write("build/keep.txt");
+        write("src/main.txt");
+        IgnoreRules root = IgnoreRules.load(repositorio);
+        assertTrue(root.isIgnoredFile(repositorio, repositorio.resolve("build/keep.txt")));
+        assertFalse(root.isIgnoredFile(repositorio, repositorio.resolve("src/main.txt")));
+    }
+
+    @Test
+    void ignoredFileThroughNestedRules() throws Exception {
+        write("sub/.criptogitignore", "*.bin");
+        write("sub/deep/data.bin");
+        write("data.bin");
+        IgnoreRules root = IgnoreRules.load(repositorio);
+        assertTrue(root.isIgnoredFile(repositorio, repositorio.resolve("sub/deep/data.bin")));
+        assertFalse(root.isIgnoredFile(repositorio, repositorio.resolve("data.bin")));
+    }
+
+    private IgnoreRules rules(String... lines) throws Exception {
+        write(".criptogitignore", lines);
+        return IgnoreRules.load(repositorio);
+    }
+
+    private void write(String relativePath, String... lines) throws Exception {
+        Path file = repositorio.resolve(relativePath);
+        Files.createDirectories(file.getParent());
+        Files.write(file, List.of(lines));
+    }
+}
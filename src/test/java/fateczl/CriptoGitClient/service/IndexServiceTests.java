@@ -0,0 +1,165 @@
+package fateczl.CriptoGitClient.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import fateczl.CriptoGitClient.model.Blob;
+import fateczl.CriptoGitClient.model.CacheTreeEntry;
+import fateczl.CriptoGitClient.model.FileStat;
+import fateczl.CriptoGitClient.model.Index;
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Formato binário do index (CGIX): ida e volta das entradas, dos dados de stat e da cache-tree,
+ * conversão do formato texto antigo e recusa de um index com o checksum errado
+ */
+class IndexServiceTests {
+
+    @TempDir
+    Path repositorio;
+
+    private final IndexService indexService = new IndexService();
+
+    @BeforeEach
+    void createRepository() throws IOException {
+        Files.createDirectories(repositorio.resolve(".criptogit"));
+    }
+
+    @Test
+    void missingIndexLoadsEmpty() throws Exception {
+        assertTrue(indexService.load(repositorio.toString()).isEmpty());
+    }
+
+    @Test
+    void emptyIndexRoundTrip() throws Exception {
+        indexService.write(new Index(), repositorio.toString());
+        Index loaded = indexService.load(repositorio.toString());
+        assertTrue(loaded.isEmpty());
+        assertNull(loaded.getBaseCommit());
+        assertTrue(loaded.getCacheTree().isEmpty());
+    }
+
+    @Test
+    void entriesRoundTrip() throws Exception {
+        List<Blob> blobs = new ArrayList<>();
+        blobs.add(blob(1, "src/Main.java", stat(1234, 1700000000123L, 1700000000456L, 42)));
+        blobs.add(blob(2, "README.md", null));
+        blobs.add(blob(3, "docs/ação.txt", stat(0, -1, Long.MAX_VALUE, Long.MIN_VALUE)));
+        Index index = new Index();
+        index.setBlobs(blobs);
+        indexService.write(index, repositorio.toString());
+
+        Index loaded = indexService.load(repositorio.toString());
+        assertEquals(3, loaded.size());
+        // As entradas são gravadas ordenadas pelo caminho
+        assertEquals(List.of("README.md", "docs/ação.txt", "src/Main.java"),
+            loaded.getBlobs().stream().map(Blob::getRelativePath).toList());
+        for (Blob expected : blobs) {
+            Blob actual = loaded.findByPath(expected.getRelativePath());
+            assertEquals(expected.getHash(), actual.getHash());
+            if (expected.getStat() == null) {
+                assertNull(actual.getStat());
+            } else {
+                assertEquals(expected.getStat().getSize(), actual.getStat().getSize());
+                assertEquals(expected.getStat().getMtime(), actual.getStat().getMtime());
+                assertEquals(expected.getStat().getCtime(), actual.getStat().getCtime());
+                assertEquals(expected.getStat().getFileKey(), actual.getStat().getFileKey());
+            }
+        }
+    }
+
+    @Test
+    void cacheTreeRoundTrip() throws Exception {
+        Index index = new Index();
+        index.setBlobs(List.of(blob(1, "src/Main.java", null), blob(2, "README.md", null)));
+        Map<String, CacheTreeEntry> cacheTree = new HashMap<>();
+        cacheTree.put("", new CacheTreeEntry(hash(10), 2));
+        cacheTree.put("src", new CacheTreeEntry(hash(11), 1));
+        index.setCacheTree(cacheTree);
+        index.setBaseCommit(hash(12));
+        indexService.write(index, repositorio.toString());
+
+        Index loaded = indexService.load(repositorio.toString());
+        assertEquals(hash(12), loaded.getBaseCommit());
+        assertEquals(2, loaded.getCacheTree().size());
+        assertEquals(hash(10), loaded.getCacheTree("").getHash());
+        assertEquals(2, loaded.getCacheTree("").getEntryCount());
+        assertEquals(hash(11), loaded.getCacheTree("src").getHash());
+        assertEquals(1, loaded.getCacheTree("src").getEntryCount());
+    }
+
+    @Test
+    void legacyIndexIsConverted() throws Exception {
+        String legacy = hash(1) + " 10:20:30:40 src/Main.java\n"
+            + "\n"
+            + hash(2) + " README.md\n"
+            // A linha mais recente do mesmo caminho prevalece
+            + hash(3) + " README.md\n";
+        Files.writeString(repositorio.resolve(".criptogit").resolve("index"), legacy);
+
+        Index converted = indexService.load(repositorio.toString());
+        assertEquals(2, converted.size());
+        assertEquals(hash(3), converted.findByPath("README.md").getHash());
+        assertNull(converted.findByPath("README.md").getStat());
+        FileStat stat = converted.findByPath("src/Main.java").getStat();
+        assertEquals(10, stat.getSize());
+        assertEquals(40, stat.getFileKey());
+
+        // O arquivo foi regravado no formato binário e carrega igual
+        Index reloaded = indexService.load(repositorio.toString());
+        assertEquals(hash(1), reloaded.findByPath("src/Main.java").getHash());
+        assertEquals(30, reloaded.findByPath("src/Main.java").getStat().getCtime());
+    }
+
+    @Test
+    void corruptedIndexFails() throws Exception {
+        Index index = new Index();
+        index.setBlobs(List.of(blob(1, "README.md", null)));
+        indexService.write(index, repositorio.toString());
+        Path indexPath = repositorio.resolve(".criptogit").resolve("index");
+        byte[] content = Files.readAllBytes(indexPath);
+        // Último byte antes do checksum
+        content[content.length - ObjectId.SIZE - 1] ^= 1;
+        Files.write(indexPath, content);
+        assertThrows(IOException.class, () -> indexService.load(repositorio.toString()));
+    }
+
+    private static Blob blob(int seed, String relativePath, FileStat stat) {
+        Blob blob = new Blob();
+        blob.setHash(hash(seed));
+        blob.setRelativePath(relativePath);
+        blob.setStat(stat);
+        return blob;
+    }
+
+    private static FileStat stat(long size, long mtime, long ctime, long fileKey) {
+        FileStat stat = new FileStat();
+        stat.setSize(size);
+        stat.setMtime(mtime);
+        stat.setCtime(ctime);
+        stat.setFileKey(fileKey);
+        return stat;
+    }
+
+    private static ObjectId hash(int seed) {
+        byte[] bytes = new byte[ObjectId.SIZE];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (seed * 31 + i);
+        }
+        return ObjectId.fromBytes(bytes);
+    }
+}
@@ -0,0 +1,115 @@
+package fateczl.CriptoGitClient.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Pacotes de chaves: gravação e leitura das entradas, busca pelo fingerprint e recusa de arquivos que
+ * não são pacotes
+ */
+class KeyBundleTests {
+
+    private static KeyPair alice;
+    private static KeyPair bob;
+
+    @TempDir
+    Path lockedPath;
+
+    @BeforeAll
+    static void generateKeys() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        alice = generator.generateKeyPair();
+        bob = generator.generateKeyPair();
+    }
+
+    @Test
+    void entriesRoundTrip() throws Exception {
+        SecretKey objectKey = CryptoEngine.generateAesKey();
+        MasterKey masterKey = MasterKey.generate();
+        try (KeyBundle bundle = KeyBundle.create(lockedPath, alice.getPublic(), "commit1")) {
+            bundle.add("1.head", CryptoEngine.wrapKey(objectKey, alice.getPublic()));
+            bundle.add(KeyBundle.MASTER_KEY_ENTRY, masterKey.wrap(alice.getPublic()));
+        }
+
+        List<Path> bundles = KeyBundle.find(lockedPath, KeyBundle.fingerprint(alice.getPrivate()));
+        assertEquals(1, bundles.size());
+        List<String> names = new ArrayList<>();
+        List<byte[]> keys = new ArrayList<>();
+        KeyBundle.read(bundles.get(0), (lockedName, wrappedKey) -> {
+            names.add(lockedName);
+            try {
+                keys.add(CryptoEngine.decryptRsa(wrappedKey, alice.getPrivate()));
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+        });
+        assertEquals(List.of("1.head", KeyBundle.MASTER_KEY_ENTRY), names);
+        assertArrayEquals(objectKey.getEncoded(), keys.get(0));
+        assertArrayEquals(masterKey.getEncoded(), MasterKey.fromDecrypted(keys.get(1)).getEncoded());
+    }
+
+    @Test
+    void findReturnsOnlyTheRecipientBundles() throws Exception {
+        KeyBundle.create(lockedPath, alice.getPublic(), "commit1").close();
+        KeyBundle.create(lockedPath, alice.getPublic(), "commit2").close();
+        KeyBundle.create(lockedPath, bob.getPublic(), "commit1").close();
+        Files.write(lockedPath.resolve("0123abcd"), new byte[] { 1, 2, 3 });
+
+        assertEquals(2, KeyBundle.find(lockedPath, KeyBundle.fingerprint(alice.getPublic())).size());
+        assertEquals(1, KeyBundle.find(lockedPath, KeyBundle.fingerprint(bob.getPrivate())).size());
+    }
+
+    @Test
+    void privateAndPublicFingerprintsMatch() throws Exception {
+        assertEquals(KeyBundle.fingerprint(alice.getPublic()), KeyBundle.fingerprint(alice.getPrivate()));
+    }
+
+    @Test
+    void emptyBundleHasNoEntries() throws Exception {
+        KeyBundle.create(lockedPath, alice.getPublic(), "commit1").close();
+        Path bundle = KeyBundle.find(lockedPath, KeyBundle.fingerprint(alice.getPublic())).get(0);
+        List<String> names = new ArrayList<>();
+        KeyBundle.read(bundle, (lockedName, wrappedKey) -> names.add(lockedName));
+        assertEquals(List.of(), names);
+    }
+
+    @Test
+    void readRejectsOtherFiles() throws Exception {
+        Path file = lockedPath.resolve("x.keys");
+        Files.write(file, new byte[] { 'C', 'G', 'A', 'E', 1, 0, 0 });
+        assertThrows(IOException.class, () -> KeyBundle.read(file, (lockedName, wrappedKey) -> { }));
+    }
+
+    @Test
+    void truncatedEntryFails() throws Exception {
+        try (KeyBundle bundle = KeyBundle.create(lockedPath, alice.getPublic(), "commit1")) {
+            bundle.add("1.head", new byte[256]);
+        }
+        Path file = KeyBundle.find(lockedPath, KeyBundle.fingerprint(alice.getPublic())).get(0);
+        byte[] content = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(content, content.length - 1));
+        assertThrows(IOException.class, () -> KeyBundle.read(file, (lockedName, wrappedKey) -> { }));
+    }
+
+    @Test
+    void lockedNameFileSitsNextToTheKey() {
+        Path keyFile = lockedPath.resolve("ab").resolve("ab12.key");
+        assertEquals(lockedPath.resolve("ab").resolve("ab12.locked"), KeyBundle.lockedNameFile(keyFile));
+    }
+}
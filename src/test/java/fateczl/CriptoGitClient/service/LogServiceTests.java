@@ -0,0 +1,93 @@
+package fateczl.CriptoGitClient.service;
+
+import static fateczl.CriptoGitClient.service.CommitGraphTests.entry;
+import static fateczl.CriptoGitClient.service.CommitGraphTests.id;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import fateczl.CriptoGitClient.model.ObjectId;
+
+/**
+ * Merge-base e ancestralidade sobre o commit-graph de um histórico com ramos:
+ *
+ *   a - b - c - d - m
+ *        \         /
+ *         e ----- f - g
+ *
+ *   x (outra raiz)
+ */
+class LogServiceTests {
+
+    private static final ObjectId A = id(0x90, 1);
+    private static final ObjectId B = id(0x50, 2);
+    private static final ObjectId C = id(0xa0, 3);
+    private static final ObjectId D = id(0x10, 4);
+    private static final ObjectId E = id(0xc0, 5);
+    private static final ObjectId F = id(0x30, 6);
+    private static final ObjectId G = id(0xe0, 7);
+    private static final ObjectId M = id(0x70, 8);
+    private static final ObjectId X = id(0x00, 9);
+
+    @TempDir
+    Path repositorio;
+
+    private final LogService logService = new LogService();
+
+    @BeforeEach
+    void writeGraph() throws Exception {
+        logService.setRepositorioPath(repositorio.toString());
+        CommitGraph.write(repositorio.resolve(".criptogit").resolve("objects"), List.of(
+            entry(A), entry(B, A), entry(C, B), entry(D, C), entry(E, B), entry(F, E), entry(G, F),
+            entry(M, D, F), entry(X)));
+    }
+
+    @Test
+    void mergeBaseOfBranches() throws Exception {
+        assertEquals(B, logService.mergeBase(D, F));
+        assertEquals(B, logService.mergeBase(F, D));
+        assertEquals(B, logService.mergeBase(C, E));
+        assertEquals(B, logService.mergeBase(D, G));
+    }
+
+    @Test
+    void mergeBaseAfterMerge() throws Exception {
+        // Depois do merge, o ramo e - f já faz parte do histórico de m
+        assertEquals(F, logService.mergeBase(M, G));
+        assertEquals(F, logService.mergeBase(M, F));
+        assertEquals(D, logService.mergeBase(M, D));
+    }
+
+    @Test
+    void mergeBaseOfSameCommit() throws Exception {
+        assertEquals(M, logService.mergeBase(M, M));
+    }
+
+    @Test
+    void mergeBaseOfUnrelatedCommits() throws Exception {
+        assertNull(logService.mergeBase(D, X));
+    }
+
+    @Test
+    void ancestry() throws Exception {
+        assertTrue(logService.isAncestor(A, M));
+        assertTrue(logService.isAncestor(B, G));
+        assertTrue(logService.isAncestor(F, M));
+        assertTrue(logService.isAncestor(E, M));
+        assertTrue(logService.isAncestor(D, D));
+        assertFalse(logService.isAncestor(M, F));
+        assertFalse(logService.isAncestor(E, D));
+        assertFalse(logService.isAncestor(G, M));
+        assertFalse(logService.isAncestor(C, G));
+        assertFalse(logService.isAncestor(X, M));
+        assertFalse(logService.isAncestor(A, X));
+    }
+}
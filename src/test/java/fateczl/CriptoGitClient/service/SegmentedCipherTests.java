@@ -0,0 +1,122 @@
+package fateczl.CriptoGitClient.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.Arrays;
+import java.util.Random;
+import javax.crypto.SecretKey;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Formato segmentado dos objects da pasta locked: ida e volta nos tamanhos que mudam a quantidade de
+ * segmentos, e falha da tag quando a chave está errada ou o conteúdo foi alterado
+ */
+class SegmentedCipherTests {
+
+    private static final int SEGMENT_SIZE = SegmentedCipher.SEGMENT_SIZE;
+    // Tamanho de um segmento completo no arquivo criptografado
+    private static final int ENCRYPTED_SEGMENT_SIZE = SEGMENT_SIZE + SegmentedCipher.TAG_SIZE;
+
+    @Test
+    void roundTripEmpty() throws Exception {
+        assertRoundTrip(0);
+    }
+
+    @Test
+    void roundTripOneByte() throws Exception {
+        assertRoundTrip(1);
+    }
+
+    @Test
+    void roundTripExactlyOneSegment() throws Exception {
+        assertRoundTrip(SEGMENT_SIZE);
+    }
+
+    @Test
+    void roundTripOneByteOverSegment() throws Exception {
+        assertRoundTrip(SEGMENT_SIZE + 1);
+    }
+
+    @Test
+    void emptyContentStillHasOneAuthenticatedSegment() throws Exception {
+        byte[] encrypted = encrypt(new byte[0], CryptoEngine.generateAesKey());
+        assertEquals(SegmentedCipher.HEADER_SIZE + SegmentedCipher.TAG_SIZE, encrypted.length);
+        assertTrue(SegmentedCipher.isSegmented(encrypted));
+    }
+
+    @Test
+    void wrongKeyFails() throws Exception {
+        byte[] encrypted = encrypt(content(1000), CryptoEngine.generateAesKey());
+        assertThrows(IOException.class, () -> decrypt(encrypted, CryptoEngine.generateAesKey()));
+    }
+
+    @Test
+    void flippedHeaderByteFails() throws Exception {
+        SecretKey key = CryptoEngine.generateAesKey();
+        byte[] encrypted = encrypt(content(1000), key);
+        // Último byte do prefixo do nonce: o cabeçalho continua válido, mas é autenticado em todos os segmentos
+        encrypted[SegmentedCipher.HEADER_SIZE - 1] ^= 1;
+        assertThrows(IOException.class, () -> decrypt(encrypted, key));
+    }
+
+    @Test
+    void swappedSegmentsFail() throws Exception {
+        SecretKey key = CryptoEngine.generateAesKey();
+        byte[] encrypted = encrypt(content(2 * SEGMENT_SIZE + 10), key);
+        int first = SegmentedCipher.HEADER_SIZE;
+        int second = first + ENCRYPTED_SEGMENT_SIZE;
+        byte[] segment = Arrays.copyOfRange(encrypted, first, second);
+        System.arraycopy(encrypted, second, encrypted, first, ENCRYPTED_SEGMENT_SIZE);
+        System.arraycopy(segment, 0, encrypted, second, ENCRYPTED_SEGMENT_SIZE);
+        assertThrows(IOException.class, () -> decrypt(encrypted, key));
+    }
+
+    @Test
+    void truncatedLastSegmentFails() throws Exception {
+        SecretKey key = CryptoEngine.generateAesKey();
+        byte[] encrypted = encrypt(content(SEGMENT_SIZE + 100), key);
+        byte[] truncated = Arrays.copyOf(encrypted, encrypted.length - 10);
+        assertThrows(IOException.class, () -> decrypt(truncated, key));
+    }
+
+    @Test
+    void removedLastSegmentFails() throws Exception {
+        SecretKey key = CryptoEngine.generateAesKey();
+        byte[] encrypted = encrypt(content(SEGMENT_SIZE + 100), key);
+        // Sem o último segmento, o anterior é lido como último e o nonce não confere
+        byte[] truncated = Arrays.copyOf(encrypted, SegmentedCipher.HEADER_SIZE + ENCRYPTED_SEGMENT_SIZE);
+        assertThrows(IOException.class, () -> decrypt(truncated, key));
+    }
+
+    private static void assertRoundTrip(int size) throws Exception {
+        SecretKey key = CryptoEngine.generateAesKey();
+        byte[] original = content(size);
+        assertArrayEquals(original, decrypt(encrypt(original, key), key));
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private static byte[] encrypt(byte[] content, SecretKey key) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SegmentedCipher.encrypt(Channels.newChannel(new ByteArrayInputStream(content)), Channels.newChannel(out), key);
+        return out.toByteArray();
+    }
+
+    private static byte[] decrypt(byte[] encrypted, SecretKey key) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SegmentedCipher.decrypt(Channels.newChannel(new ByteArrayInputStream(encrypted)), Channels.newChannel(out), key);
+        return out.toByteArray();
+    }
+}